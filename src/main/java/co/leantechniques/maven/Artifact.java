@@ -43,4 +43,9 @@ public class Artifact {
         result = 31 * result + version.hashCode();
         return result;
     }
+
+    @Override
+    public String toString() {
+        return groupId + ":" + artifactId + ":" + version;
+    }
 }
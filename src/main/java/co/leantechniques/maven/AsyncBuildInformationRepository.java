@@ -0,0 +1,214 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.eventspy.EventSpy;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands finished builds to a bounded queue that is drained by a dedicated writer thread, so the
+ * Maven main thread does not wait on the storage after the build is done.
+ */
+public class AsyncBuildInformationRepository implements BuildInformationRepository {
+    public static final String ASYNC_KEY = "plugin.execution.watcher.async";
+    public static final String QUEUE_SIZE_KEY = "plugin.execution.watcher.async.queue.size";
+    public static final String FLUSH_TIMEOUT_KEY = "plugin.execution.watcher.async.flush.timeout";
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+    public static final long DEFAULT_FLUSH_TIMEOUT = 30000L;
+
+    private final BuildInformationRepository delegate;
+    private final BlockingQueue<QueuedBuild> queue;
+    private final long flushTimeoutMillis;
+    private final AtomicLong savedBuilds = new AtomicLong();
+    private final AtomicLong lastFlushLatencyMillis = new AtomicLong();
+    private final AtomicLong maxFlushLatencyMillis = new AtomicLong();
+    private volatile boolean closed = true;
+    private volatile Writer writer;
+
+    public AsyncBuildInformationRepository(BuildInformationRepository delegate) {
+        this(delegate,
+                Integer.getInteger(QUEUE_SIZE_KEY, DEFAULT_QUEUE_SIZE),
+                Long.getLong(FLUSH_TIMEOUT_KEY, DEFAULT_FLUSH_TIMEOUT));
+    }
+
+    public AsyncBuildInformationRepository(BuildInformationRepository delegate, int queueSize, long flushTimeoutMillis) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<QueuedBuild>(queueSize);
+        this.flushTimeoutMillis = flushTimeoutMillis;
+    }
+
+    @Override
+    public synchronized void initialize(EventSpy.Context context) {
+        delegate.initialize(context);
+        startWriter();
+    }
+
+    @Override
+    public void save(BuildInformation buildInformation) {
+        QueuedBuild queuedBuild = new QueuedBuild(buildInformation);
+        if (closed || !queue.offer(queuedBuild)) {
+            // the writer is gone or is falling behind, so fall back to saving on the caller's thread
+            write(queuedBuild);
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        closed = true;
+        Writer writerToWaitOn;
+        synchronized (this) {
+            writerToWaitOn = writer;
+            writer = null;
+        }
+        if (writerToWaitOn != null) {
+            if (!writerToWaitOn.await(flushTimeoutMillis) && writerToWaitOn.deferCleanUp()) {
+                // the writer may be in the middle of a save, the storage is cleaned up once it is done
+                System.out.println("[WARNING] Gave up waiting on " + getQueueDepth() + " build(s) to be saved after " + flushTimeoutMillis + "ms");
+                return;
+            }
+            drainQueue();
+        }
+        delegate.cleanUp();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSavedBuilds() {
+        return savedBuilds.get();
+    }
+
+    public long getLastFlushLatencyMillis() {
+        return lastFlushLatencyMillis.get();
+    }
+
+    public long getMaxFlushLatencyMillis() {
+        return maxFlushLatencyMillis.get();
+    }
+
+    private void startWriter() {
+        closed = false;
+        if (writer == null) {
+            writer = new Writer();
+            writer.start();
+        }
+    }
+
+    private void drainQueue() {
+        QueuedBuild queuedBuild;
+        while ((queuedBuild = queue.poll()) != null) {
+            try {
+                write(queuedBuild);
+            } catch (RuntimeException e) {
+                System.out.println("[WARNING] Failed to save the build information: " + e.getMessage());
+            }
+        }
+    }
+
+    private void write(QueuedBuild queuedBuild) {
+        try {
+            delegate.save(queuedBuild.buildInformation);
+            savedBuilds.incrementAndGet();
+        } finally {
+            recordLatency(System.currentTimeMillis() - queuedBuild.queuedAt);
+        }
+    }
+
+    private void recordLatency(long latency) {
+        lastFlushLatencyMillis.set(latency);
+        long max;
+        do {
+            max = maxFlushLatencyMillis.get();
+        } while (latency > max && !maxFlushLatencyMillis.compareAndSet(max, latency));
+    }
+
+    private class Writer implements Runnable {
+        private final Thread thread = new Thread(this, "plugin-execution-watcher-writer");
+        private boolean finished;
+        private boolean cleanUpDeferred;
+
+        private void start() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed || !queue.isEmpty()) {
+                    try {
+                        QueuedBuild queuedBuild = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (queuedBuild != null) {
+                            write(queuedBuild);
+                        }
+                    } catch (InterruptedException e) {
+                        // the queued builds would be lost otherwise
+                        drainQueue();
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (RuntimeException e) {
+                        System.out.println("[WARNING] Failed to save the build information: " + e.getMessage());
+                    }
+                }
+            } finally {
+                finish();
+            }
+        }
+
+        private boolean await(long timeoutMillis) {
+            try {
+                thread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return !thread.isAlive();
+        }
+
+        /**
+         * @return false when the writer is already done and the caller has to clean up
+         */
+        private synchronized boolean deferCleanUp() {
+            if (finished) {
+                return false;
+            }
+            cleanUpDeferred = true;
+            return true;
+        }
+
+        private void finish() {
+            boolean cleanUp;
+            synchronized (this) {
+                finished = true;
+                cleanUp = cleanUpDeferred;
+            }
+            if (cleanUp) {
+                delegate.cleanUp();
+            }
+        }
+    }
+
+    private static class QueuedBuild {
+        private final BuildInformation buildInformation;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private QueuedBuild(BuildInformation buildInformation) {
+            this.buildInformation = buildInformation;
+        }
+    }
+}
@@ -14,44 +14,134 @@
 package co.leantechniques.maven;
 
 import co.leantechniques.maven.scm.CodeRevision;
+import co.leantechniques.maven.scm.PendingCodeRevision;
 import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectDependencyGraph;
 import org.apache.maven.project.MavenProject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class BuildInformation {
-    private final MavenSession session;
+    private static final String[] SYSTEM_PROPERTIES = {
+            "java.version", "maven.version", "env.COMPUTERNAME", "os.name", "user.name", "os.arch"
+    };
+
+    private final List<String> goals;
+    private final Date startTime;
+    private final Properties systemProperties = new Properties();
+    private final Artifact topLevelProject;
     private String userSpecifiedBuildData;
-    private ArrayList<ExecutionEvent> eventsProcessed = new ArrayList<ExecutionEvent>();
-    private Date endTime;
-    private ArrayList<Project> projects = new ArrayList<Project>();
-    private CodeRevision codeRevision;
+    private final ConcurrentLinkedQueue<MavenEvent> eventsProcessed = new ConcurrentLinkedQueue<MavenEvent>();
+    private final RawEventBuffer rawEvents = RawEventBuffer.fromSystemProperties();
+    private volatile Date endTime;
+    private volatile boolean failed;
+    private final ArrayList<Project> projects = new ArrayList<Project>();
+    private volatile Map<MavenProject, Project> projectsByMavenProject = new IdentityHashMap<MavenProject, Project>();
+    private final Map<Artifact, Project> projectsByCoordinates = new HashMap<Artifact, Project>();
+    private final PendingCodeRevision codeRevision;
+    private final int threads;
 
     public BuildInformation(MavenSession session, String userSpecifiedBuildData, CodeRevision codeRevision) {
+        this(session, userSpecifiedBuildData, PendingCodeRevision.of(codeRevision));
+    }
+
+    public BuildInformation(MavenSession session, String userSpecifiedBuildData, PendingCodeRevision codeRevision) {
+        // only copy what is stored, holding on to the session would keep the whole reactor model reachable
+        this.goals = new ArrayList<String>(session.getRequest().getGoals());
+        this.startTime = session.getRequest().getStartTime();
+        this.topLevelProject = coordinatesOf(session.getTopLevelProject());
         this.userSpecifiedBuildData = userSpecifiedBuildData;
-        this.session = session;
         this.codeRevision = codeRevision;
+        copySystemProperties(session.getRequest().getSystemProperties());
         initializeProjects(session);
+        this.threads = threadsOf(session.getRequest());
+    }
+
+    /**
+     * Restores a build that was recorded earlier, e.g. read back from the journal.
+     */
+    public BuildInformation(Date startTime, Date endTime, List<String> goals, Artifact topLevelProject,
+                            Properties systemProperties, String userSpecifiedBuildData, CodeRevision codeRevision,
+                            List<Project> projects, int threads) {
+        this.goals = new ArrayList<String>(goals);
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.topLevelProject = topLevelProject;
+        this.userSpecifiedBuildData = userSpecifiedBuildData;
+        this.codeRevision = PendingCodeRevision.of(codeRevision);
+        this.projectsByMavenProject = Collections.emptyMap();
+        this.threads = threads;
+        copySystemProperties(systemProperties);
+        for (Project project : projects) {
+            this.projects.add(project);
+            if (project.getOutcome() == Outcome.FAILURE) {
+                failed = true;
+            }
+        }
     }
 
     public List<String> getGoals() {
-        return session.getRequest().getGoals();
+        return goals;
     }
 
     public String getUserSpecifiedBuildData() {
         return userSpecifiedBuildData;
     }
 
-    public List<ExecutionEvent> getMavenEvents() {
-        return eventsProcessed;
+    public List<MavenEvent> getMavenEvents() {
+        return new ArrayList<MavenEvent>(eventsProcessed);
+    }
+
+    public List<ExecutionEvent> getRawMavenEvents() {
+        if (rawEvents == null) {
+            return Collections.emptyList();
+        }
+        return rawEvents.getEvents();
     }
 
     public void addMavenEvent(ExecutionEvent event) {
-        eventsProcessed.add(event);
-        projectOf(event).addPluginExecution(event);
+        Project project = projectOf(event);
+        PluginExecution execution = project.addPluginExecution(event);
+        eventsProcessed.add(new MavenEvent(event.getType(), System.currentTimeMillis(), project, execution));
+        if (rawEvents != null) {
+            rawEvents.add(event);
+        }
+    }
+
+    public void projectStarted(ExecutionEvent event) {
+        Project project = projectOf(event);
+        project.start(new Date());
+        eventsProcessed.add(new MavenEvent(event.getType(), System.currentTimeMillis(), project, null));
+        if (rawEvents != null) {
+            rawEvents.add(event);
+        }
+    }
+
+    public void projectFinished(ExecutionEvent event) {
+        Project project = projectOf(event);
+        Outcome outcome = Outcome.of(event.getType());
+        project.finish(outcome);
+        if (outcome == Outcome.FAILURE) {
+            failed = true;
+        }
+        eventsProcessed.add(new MavenEvent(event.getType(), System.currentTimeMillis(), project, null));
+        if (rawEvents != null) {
+            rawEvents.add(event);
+        }
+    }
+
+    public Outcome getOutcome() {
+        return failed ? Outcome.FAILURE : Outcome.SUCCESS;
     }
 
     public long getId() {
@@ -59,7 +149,7 @@ public class BuildInformation {
     }
 
     public Date getStartTime() {
-        return session.getRequest().getStartTime();
+        return startTime;
     }
 
     public String getJavaVersion() {
@@ -78,18 +168,36 @@ public class BuildInformation {
         return getSystemProperty("os.name");
     }
 
+    /**
+     * @return a copy of the system properties that are stored with the build
+     */
+    public Properties getSystemProperties() {
+        Properties copy = new Properties();
+        copy.putAll(systemProperties);
+        return copy;
+    }
+
     private String getSystemProperty(String name) {
-        return session.getRequest().getSystemProperties().getProperty(name);
+        return systemProperties.getProperty(name);
     }
 
-    public Artifact getTopLevelProject() {
-        MavenProject project = session.getTopLevelProject();
-        return new Project(project.getGroupId(), project.getArtifactId(), project.getVersion());
+    private void copySystemProperties(Properties properties) {
+        for (String name : SYSTEM_PROPERTIES) {
+            String value = properties.getProperty(name);
+            if (value != null) {
+                systemProperties.setProperty(name, value);
+            }
+        }
     }
 
+    public Artifact getTopLevelProject() {
+        return topLevelProject;
+    }
 
     public void setEndTime(Date endTime) {
         this.endTime = endTime;
+        // no more events will come in, so let go of the maven projects
+        projectsByMavenProject = Collections.emptyMap();
     }
 
     public Date getEndTime() {
@@ -100,24 +208,80 @@ public class BuildInformation {
         return projects;
     }
 
+    /**
+     * @return the number of builder threads Maven was asked for (<code>-T</code>), 1 for a serial build
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    private int threadsOf(MavenExecutionRequest request) {
+        String threadCount = request.getThreadCount();
+        if (!request.isThreadConfigurationPresent() || threadCount == null) {
+            return 1;
+        }
+        try {
+            float count = Float.parseFloat(threadCount.replace("C", ""));
+            if (request.isPerCoreThreadCount() || threadCount.contains("C")) {
+                count *= Runtime.getRuntime().availableProcessors();
+            }
+            // like Maven, never more threads than projects to build
+            return Math.max(1, Math.min(Math.round(count), projects.size()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
     private Project projectOf(ExecutionEvent event) {
         MavenProject mavenProject = event.getProject();
-        Project currentProject = new Project(
-                mavenProject.getGroupId(),
-                mavenProject.getArtifactId(),
-                mavenProject.getVersion()
-        );
-        return projects.get(projects.indexOf(currentProject));
+        Project project = projectsByMavenProject.get(mavenProject);
+        if (project == null) {
+            // forked executions run against a clone of the reactor project
+            project = projectsByCoordinates.get(coordinatesOf(mavenProject));
+        }
+        if (project == null) {
+            throw new IllegalStateException("The project " + coordinatesOf(mavenProject) + " is not part of the reactor");
+        }
+        return project;
     }
 
     private void initializeProjects(MavenSession session) {
         for (MavenProject mavenProject : session.getProjects()) {
-            projects.add(new Project(
+            Project project = new Project(
                     mavenProject.getGroupId(),
                     mavenProject.getArtifactId(),
                     mavenProject.getVersion()
-            ));
+            );
+            projects.add(project);
+
+            Artifact coordinates = coordinatesOf(mavenProject);
+            if (!projectsByCoordinates.containsKey(coordinates)) {
+                projectsByCoordinates.put(coordinates, project);
+            }
+            projectsByMavenProject.put(mavenProject, projectsByCoordinates.get(coordinates));
+        }
+        linkUpstreamProjects(session.getProjectDependencyGraph());
+    }
+
+    private void linkUpstreamProjects(ProjectDependencyGraph graph) {
+        if (graph == null) {
+            return;
+        }
+        for (Map.Entry<MavenProject, Project> project : projectsByMavenProject.entrySet()) {
+            for (MavenProject upstream : graph.getUpstreamProjects(project.getKey(), false)) {
+                Project upstreamProject = projectsByMavenProject.get(upstream);
+                if (upstreamProject != null) {
+                    project.getValue().addUpstreamProject(upstreamProject);
+                }
+            }
+        }
+    }
+
+    private Artifact coordinatesOf(MavenProject mavenProject) {
+        if (mavenProject == null) {
+            return null;
         }
+        return new Artifact(mavenProject.getGroupId(), mavenProject.getArtifactId(), mavenProject.getVersion());
     }
 
     public String getUsername() {
@@ -128,7 +292,10 @@ public class BuildInformation {
         return getSystemProperty("os.arch");
     }
 
+    /**
+     * Waits on the code revision when it is still being determined.
+     */
     public CodeRevision getCodeRevision() {
-        return codeRevision;
+        return codeRevision.get();
     }
 }
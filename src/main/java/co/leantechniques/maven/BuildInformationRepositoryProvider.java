@@ -17,6 +17,8 @@ import co.leantechniques.maven.h2.H2BuildInformationRepository;
 import org.openide.util.Lookup;
 
 public class BuildInformationRepositoryProvider {
+    public static final String REPOSITORY_KEY = "plugin.execution.watcher.repository";
+
     private Lookup lookup;
 
     public BuildInformationRepositoryProvider() {
@@ -28,10 +30,28 @@ public class BuildInformationRepositoryProvider {
     }
 
     public BuildInformationRepository provide() {
-        BuildInformationRepository buildInformationRepository = lookup.lookup(BuildInformationRepository.class);
+        BuildInformationRepository buildInformationRepository = select(System.getProperty(REPOSITORY_KEY));
         if (buildInformationRepository == null) {
             buildInformationRepository = new H2BuildInformationRepository();
         }
+        if (Boolean.getBoolean(AsyncBuildInformationRepository.ASYNC_KEY)) {
+            buildInformationRepository = new AsyncBuildInformationRepository(buildInformationRepository);
+        }
         return buildInformationRepository;
     }
+
+    private BuildInformationRepository select(String name) {
+        BuildInformationRepository custom = null;
+        for (BuildInformationRepository candidate : lookup.lookupAll(BuildInformationRepository.class)) {
+            if (candidate instanceof NamedBuildInformationRepository) {
+                // the repositories of the extension itself must not shadow the default when they are not asked for
+                if (name != null && name.equals(((NamedBuildInformationRepository) candidate).getName())) {
+                    return candidate;
+                }
+            } else if (custom == null) {
+                custom = candidate;
+            }
+        }
+        return custom;
+    }
 }
@@ -0,0 +1,74 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.plugin.MojoExecution;
+
+/**
+ * Identifies a mojo execution within a project by plugin groupId, artifactId, goal and execution id.
+ */
+public final class ExecutionKey {
+    private final String groupId, artifactId, goal, executionId;
+    private final int hashCode;
+
+    public ExecutionKey(MojoExecution mojoExecution) {
+        this(mojoExecution.getGroupId(), mojoExecution.getArtifactId(), mojoExecution.getGoal(), mojoExecution.getExecutionId());
+    }
+
+    public ExecutionKey(String groupId, String artifactId, String goal, String executionId) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.goal = goal;
+        this.executionId = executionId;
+        this.hashCode = computeHashCode();
+    }
+
+    public boolean matches(MojoExecution mojoExecution) {
+        return same(groupId, mojoExecution.getGroupId())
+                && same(artifactId, mojoExecution.getArtifactId())
+                && same(goal, mojoExecution.getGoal())
+                && same(executionId, mojoExecution.getExecutionId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ExecutionKey that = (ExecutionKey) o;
+
+        return hashCode == that.hashCode
+                && same(groupId, that.groupId)
+                && same(artifactId, that.artifactId)
+                && same(goal, that.goal)
+                && same(executionId, that.executionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
+        int result = groupId != null ? groupId.hashCode() : 0;
+        result = 31 * result + (artifactId != null ? artifactId.hashCode() : 0);
+        result = 31 * result + (goal != null ? goal.hashCode() : 0);
+        result = 31 * result + (executionId != null ? executionId.hashCode() : 0);
+        return result;
+    }
+
+    private static boolean same(String value, String other) {
+        return value == null ? other == null : value.equals(other);
+    }
+}
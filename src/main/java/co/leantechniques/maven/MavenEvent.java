@@ -0,0 +1,51 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.execution.ExecutionEvent;
+
+/**
+ * Compact record of an {@link ExecutionEvent}. Unlike the event itself it does not keep the
+ * session, the maven project or the mojo execution reachable.
+ */
+public final class MavenEvent {
+    private static final ExecutionEvent.Type[] TYPES = ExecutionEvent.Type.values();
+
+    public final long timestamp;
+    private final byte type;
+    public final Project project;
+    /**
+     * null for project events
+     */
+    public final PluginExecution execution;
+
+    public MavenEvent(ExecutionEvent.Type type, long timestamp, Project project, PluginExecution execution) {
+        this.type = (byte) type.ordinal();
+        this.timestamp = timestamp;
+        this.project = project;
+        this.execution = execution;
+    }
+
+    public ExecutionEvent.Type getType() {
+        return TYPES[type];
+    }
+
+    @Override
+    public String toString() {
+        if (execution == null) {
+            return getType() + " " + project;
+        }
+        return getType() + " " + project + " " + execution.goal + " (" + execution.executionId + ")";
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+/**
+ * A repository that ships with the extension but is only used when it is selected by name
+ * with the system property <code>plugin.execution.watcher.repository</code>.
+ */
+public interface NamedBuildInformationRepository extends BuildInformationRepository {
+    String getName();
+}
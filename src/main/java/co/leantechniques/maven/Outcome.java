@@ -0,0 +1,32 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.execution.ExecutionEvent;
+
+public enum Outcome {
+    SUCCESS, FAILURE;
+
+    public static Outcome of(ExecutionEvent.Type type) {
+        switch (type) {
+            case MojoSucceeded:
+            case ProjectSucceeded:
+                return SUCCESS;
+            case MojoFailed:
+            case ProjectFailed:
+                return FAILURE;
+        }
+        return null;
+    }
+}
@@ -14,17 +14,74 @@
 package co.leantechniques.maven;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 public class PluginExecution extends Artifact {
     public final String goal;
     public final String executionId;
-    public final Date startTime = new Date();
-    public Date endTime;
+    public final Date startTime;
+    public final long startNanos;
+    /**
+     * The builder thread that ran the execution, null when it is not known.
+     */
+    public final String threadName;
+    public final long threadId;
+    public volatile long endNanos;
+    public volatile Outcome outcome;
+    public volatile Date endTime;
 
     public PluginExecution(Artifact plugin, String goal, String executionId) {
         super(plugin.groupId, plugin.artifactId, plugin.version);
         this.goal = goal;
         this.executionId = executionId;
+        this.startTime = new Date();
+        this.startNanos = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        this.threadName = thread.getName();
+        this.threadId = thread.getId();
+    }
+
+    /**
+     * Restores an execution that was recorded earlier, the duration is kept relative to a start of zero nanos.
+     */
+    public PluginExecution(Artifact plugin, String goal, String executionId, Date startTime, Date endTime,
+                           Long durationNanos, Outcome outcome) {
+        this(plugin, goal, executionId, startTime, endTime, durationNanos, outcome, null, 0L);
+    }
+
+    public PluginExecution(Artifact plugin, String goal, String executionId, Date startTime, Date endTime,
+                           Long durationNanos, Outcome outcome, String threadName, long threadId) {
+        super(plugin.groupId, plugin.artifactId, plugin.version);
+        this.goal = goal;
+        this.executionId = executionId;
+        this.startTime = startTime;
+        this.startNanos = 0L;
+        this.threadName = threadName;
+        this.threadId = threadId;
+        if (endTime != null) {
+            this.endNanos = durationNanos != null
+                    ? durationNanos
+                    : TimeUnit.MILLISECONDS.toNanos(endTime.getTime() - startTime.getTime());
+        }
+        this.outcome = outcome;
+        this.endTime = endTime;
+    }
+
+    public void finish(Outcome outcome) {
+        this.outcome = outcome;
+        endNanos = System.nanoTime();
+        // derive the end from the monotonic clock so a wall-clock adjustment can not skew the duration
+        endTime = new Date(startTime.getTime() + TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+    }
+
+    /**
+     * @return the monotonic duration of the execution or null when it has not finished
+     */
+    public Long getDurationNanos() {
+        if (endTime == null) {
+            return null;
+        }
+        return endNanos - startNanos;
     }
 
     @Override
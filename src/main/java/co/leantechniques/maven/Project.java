@@ -18,58 +18,82 @@ import org.apache.maven.plugin.MojoExecution;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class Project extends Artifact {
-    private ArrayList<PluginExecution> pluginExecutions = new ArrayList<PluginExecution>();
-    private HashMap<String, PluginExecution> indexedExecutions = new HashMap<String, PluginExecution>();
+    private static final ThreadLocal<RunningExecution> RUNNING_EXECUTION = new ThreadLocal<RunningExecution>();
+
+    private ConcurrentLinkedQueue<PluginExecution> pluginExecutions = new ConcurrentLinkedQueue<PluginExecution>();
+    private ConcurrentHashMap<ExecutionKey, PluginExecution> indexedExecutions = new ConcurrentHashMap<ExecutionKey, PluginExecution>();
+    private final List<Project> upstreamProjects = new ArrayList<Project>();
+    private volatile Outcome outcome;
+    private volatile Date startTime;
+    private volatile Date endTime;
 
     public Project(String groupId, String artifactId, String version) {
         super(groupId, artifactId, version);
     }
 
-    public void addPluginExecution(ExecutionEvent event) {
+    public PluginExecution addPluginExecution(ExecutionEvent event) {
         PluginExecution execution = findOrCreateExecution(event);
         if (isMojoFinished(event)) {
-            execution.endTime = new Date();
+            execution.finish(Outcome.of(event.getType()));
         }
+        return execution;
     }
 
-    private PluginExecution findOrCreateExecution(ExecutionEvent event) {
-        String pluginExecutionKey = generateKeyFrom(event);
-
-        if (isExecutionAlreadyStored(pluginExecutionKey)) {
-            return indexedExecutions.get(pluginExecutionKey);
+    /**
+     * Adds an execution that was recorded earlier, e.g. read back from the journal.
+     */
+    public void addPluginExecution(PluginExecution execution) {
+        ExecutionKey key = new ExecutionKey(execution.groupId, execution.artifactId, execution.goal, execution.executionId);
+        if (indexedExecutions.putIfAbsent(key, execution) == null) {
+            pluginExecutions.add(execution);
         }
-
-        return addExecution(event);
     }
 
-    private boolean isExecutionAlreadyStored(String pluginExecutionKey) {
-        return indexedExecutions.containsKey(pluginExecutionKey);
+    private PluginExecution findOrCreateExecution(ExecutionEvent event) {
+        MojoExecution mojoExecution = event.getMojoExecution();
+        RunningExecution runningExecution = RUNNING_EXECUTION.get();
+
+        // a mojo finishes on the builder thread that started it, so most lookups never need a key
+        PluginExecution execution;
+        if (runningExecution != null && runningExecution.isOf(this, mojoExecution)) {
+            execution = runningExecution.execution;
+        } else {
+            ExecutionKey key = new ExecutionKey(mojoExecution);
+            execution = indexedExecutions.get(key);
+            if (execution == null) {
+                execution = addExecution(key, event);
+            }
+            if (event.getType() == ExecutionEvent.Type.MojoStarted) {
+                RUNNING_EXECUTION.set(new RunningExecution(this, mojoExecution, key, execution));
+            }
+        }
+        if (isMojoFinished(event)) {
+            // builder threads outlive the build under mvnd, do not let them hold on to it
+            RUNNING_EXECUTION.remove();
+        }
+        return execution;
     }
 
-    private PluginExecution addExecution(ExecutionEvent event) {
+    private PluginExecution addExecution(ExecutionKey key, ExecutionEvent event) {
         MojoExecution mojoExecution = event.getMojoExecution();
         PluginExecution execution = new PluginExecution(
                 plugin(event), mojoExecution.getGoal(), mojoExecution.getExecutionId()
         );
+        PluginExecution alreadyStored = indexedExecutions.putIfAbsent(key, execution);
+        if (alreadyStored != null) {
+            return alreadyStored;
+        }
         pluginExecutions.add(execution);
-        indexedExecutions.put(generateKeyFrom(event), execution);
         return execution;
     }
 
-    private String generateKeyFrom(ExecutionEvent event) {
-        MojoExecution mojoExecution = event.getMojoExecution();
-        return mojoExecution.getGroupId()
-                + mojoExecution.getArtifactId()
-                + mojoExecution.getGoal()
-                + mojoExecution.getExecutionId();
-    }
-
     private boolean isMojoFinished(ExecutionEvent event) {
-        return event.getType() == ExecutionEvent.Type.MojoSucceeded;
+        return Outcome.of(event.getType()) != null;
     }
 
     private Artifact plugin(ExecutionEvent event) {
@@ -80,7 +104,97 @@ public class Project extends Artifact {
         );
     }
 
+    public void start(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public void finish(Outcome outcome) {
+        finish(outcome, new Date());
+    }
+
+    public void finish(Outcome outcome, Date endTime) {
+        this.outcome = outcome;
+        this.endTime = endTime;
+        RUNNING_EXECUTION.remove();
+    }
+
+    static boolean isRunningAnExecution() {
+        return RUNNING_EXECUTION.get() != null;
+    }
+
+    /**
+     * @return when the project started or, when that was not recorded, when its first execution started
+     */
+    public Date getStartTime() {
+        if (startTime != null) {
+            return startTime;
+        }
+        Date first = null;
+        for (PluginExecution execution : pluginExecutions) {
+            if (execution.startTime != null && (first == null || execution.startTime.before(first))) {
+                first = execution.startTime;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * @return when the project finished or, when that was not recorded, when its last execution finished
+     */
+    public Date getEndTime() {
+        if (endTime != null) {
+            return endTime;
+        }
+        Date last = null;
+        for (PluginExecution execution : pluginExecutions) {
+            if (execution.endTime != null && (last == null || execution.endTime.after(last))) {
+                last = execution.endTime;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * The projects of the reactor this project directly depends on.
+     */
+    public void addUpstreamProject(Project project) {
+        if (!upstreamProjects.contains(project)) {
+            upstreamProjects.add(project);
+        }
+    }
+
+    public List<Project> getUpstreamProjects() {
+        return new ArrayList<Project>(upstreamProjects);
+    }
+
+    /**
+     * @return the outcome of the project or null when it has not been built (yet)
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
     public List<PluginExecution> getPluginExecutions() {
-        return pluginExecutions;
+        return new ArrayList<PluginExecution>(pluginExecutions);
+    }
+
+    private static class RunningExecution {
+        private final Project project;
+        private final MojoExecution mojoExecution;
+        private final ExecutionKey key;
+        private final PluginExecution execution;
+
+        private RunningExecution(Project project, MojoExecution mojoExecution, ExecutionKey key, PluginExecution execution) {
+            this.project = project;
+            this.mojoExecution = mojoExecution;
+            this.key = key;
+            this.execution = execution;
+        }
+
+        private boolean isOf(Project project, MojoExecution mojoExecution) {
+            return this.project == project
+                    && this.mojoExecution == mojoExecution
+                    && key.matches(mojoExecution);
+        }
     }
 }
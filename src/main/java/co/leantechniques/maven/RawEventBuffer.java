@@ -0,0 +1,51 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.execution.ExecutionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps only the most recent raw {@link ExecutionEvent}s, for when the compact {@link MavenEvent}s are not enough
+ * to debug a build. Disabled unless a capacity is given with {@link #CAPACITY_KEY}.
+ */
+public class RawEventBuffer {
+    public static final String CAPACITY_KEY = "plugin.execution.watcher.raw.events";
+
+    private final ExecutionEvent[] events;
+    private long received;
+
+    public RawEventBuffer(int capacity) {
+        events = new ExecutionEvent[capacity];
+    }
+
+    public static RawEventBuffer fromSystemProperties() {
+        int capacity = Integer.getInteger(CAPACITY_KEY, 0);
+        return capacity > 0 ? new RawEventBuffer(capacity) : null;
+    }
+
+    public synchronized void add(ExecutionEvent event) {
+        events[(int) (received++ % events.length)] = event;
+    }
+
+    public synchronized List<ExecutionEvent> getEvents() {
+        List<ExecutionEvent> oldestFirst = new ArrayList<ExecutionEvent>(events.length);
+        for (long i = Math.max(0, received - events.length); i < received; i++) {
+            oldestFirst.add(events[(int) (i % events.length)]);
+        }
+        return oldestFirst;
+    }
+}
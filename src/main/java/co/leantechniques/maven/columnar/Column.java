@@ -0,0 +1,61 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file of fixed-width values, one per row, that is read and appended through memory mappings.
+ */
+class Column {
+    private final File file;
+    private final int width;
+
+    Column(File file, int width) {
+        this.file = file;
+        this.width = width;
+    }
+
+    /**
+     * Maps the space of the rows that are about to be appended, growing the file when needed.
+     */
+    MappedByteBuffer mapForAppend(long rows, int numberOfRows) throws IOException {
+        return map(FileChannel.MapMode.READ_WRITE, rows, numberOfRows, "rw");
+    }
+
+    /**
+     * Maps a chunk of the rows, a single mapping can not be larger than 2 GB, so a column is read chunk by chunk.
+     */
+    ByteBuffer mapForRead(long firstRow, int numberOfRows) throws IOException {
+        if (numberOfRows == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        return map(FileChannel.MapMode.READ_ONLY, firstRow, numberOfRows, "r");
+    }
+
+    private MappedByteBuffer map(FileChannel.MapMode mode, long firstRow, long numberOfRows, String fileMode) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, fileMode);
+        try {
+            // the mapping stays valid after the channel is closed
+            return randomAccessFile.getChannel().map(mode, firstRow * width, numberOfRows * width);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.columnar;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.BuildInformationRepository;
+import co.leantechniques.maven.NamedBuildInformationRepository;
+import co.leantechniques.maven.h2.DatabaseDirectoryProvider;
+import co.leantechniques.maven.h2.SystemPropertyDirectoryProvider;
+import org.apache.maven.eventspy.EventSpy;
+import org.openide.util.lookup.ServiceProvider;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Stores the plugin executions in a {@link ColumnarStore} for fast trend analysis.
+ * <p/>
+ * Selected with <code>plugin.execution.watcher.repository=columnar</code>.
+ */
+@ServiceProvider(service = BuildInformationRepository.class)
+public class ColumnarBuildInformationRepository implements NamedBuildInformationRepository {
+    public static final String NAME = "columnar";
+
+    private final DatabaseDirectoryProvider directoryProvider;
+    private ColumnarStore store;
+
+    public ColumnarBuildInformationRepository() {
+        this(new SystemPropertyDirectoryProvider());
+    }
+
+    public ColumnarBuildInformationRepository(DatabaseDirectoryProvider directoryProvider) {
+        this.directoryProvider = directoryProvider;
+    }
+
+    public static File storeDirectoryOf(File directory) {
+        return new File(directory, NAME);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized void initialize(EventSpy.Context context) {
+        if (store == null) {
+            store = new ColumnarStore(storeDirectoryOf(directoryProvider.provide()));
+        }
+    }
+
+    @Override
+    public void save(BuildInformation buildInformation) {
+        initialize(null);
+        try {
+            store.append(buildInformation);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to append the build to the columnar store", e);
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+    }
+
+    public synchronized ColumnarStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.columnar;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the plugin executions column by column, one fixed-width file per column with the strings
+ * (project, plugin, goal) dictionary encoded, so a trend query only scans the columns it needs.
+ * <p/>
+ * Appends are serialized with a file lock. The number of rows is written last, rows past it are
+ * invisible to readers and are overwritten by the next append.
+ */
+public class ColumnarStore {
+    // a file lock is held by the whole process, the threads of this process wait on this monitor
+    private static final Object LOCK = new Object();
+    private static final long NOT_FINISHED = -1L;
+    // 8 MB of an 8 byte column per mapping
+    private static final int DEFAULT_CHUNK_ROWS = 1024 * 1024;
+
+    private final File directory;
+    private final File rowCountFile;
+    private final int chunkRows;
+    private final Column buildIds, projectIds, pluginIds, goalIds, startTimes, durations, outcomes;
+    private final Dictionary projects, plugins, goals;
+
+    public ColumnarStore(File directory) {
+        this(directory, DEFAULT_CHUNK_ROWS);
+    }
+
+    ColumnarStore(File directory, int chunkRows) {
+        this.directory = directory;
+        this.chunkRows = chunkRows;
+        this.rowCountFile = new File(directory, "rows");
+        buildIds = new Column(new File(directory, "build_id.col"), 8);
+        projectIds = new Column(new File(directory, "project_id.col"), 4);
+        pluginIds = new Column(new File(directory, "plugin_id.col"), 4);
+        goalIds = new Column(new File(directory, "goal_id.col"), 4);
+        startTimes = new Column(new File(directory, "start_time.col"), 8);
+        durations = new Column(new File(directory, "duration_nanos.col"), 8);
+        outcomes = new Column(new File(directory, "outcome.col"), 1);
+        projects = new Dictionary(new File(directory, "project.dict"));
+        plugins = new Dictionary(new File(directory, "plugin.dict"));
+        goals = new Dictionary(new File(directory, "goal.dict"));
+    }
+
+    public void append(BuildInformation buildInformation) throws IOException {
+        synchronized (LOCK) {
+            directory.mkdirs();
+            RandomAccessFile lockFile = new RandomAccessFile(new File(directory, "lock"), "rw");
+            try {
+                FileLock lock = lockFile.getChannel().lock();
+                try {
+                    appendWhileLocked(buildInformation);
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                lockFile.close();
+            }
+        }
+    }
+
+    /**
+     * Sums the durations of the finished executions of a goal of a plugin (any version) per build.
+     *
+     * @return a point per build in the order the builds were stored
+     */
+    public List<TrendPoint> trend(String pluginGroupId, String pluginArtifactId, String goal) throws IOException {
+        return trend(null, null, pluginGroupId, pluginArtifactId, goal, Long.MIN_VALUE);
+    }
+
+    /**
+     * Sums the durations of the finished executions of a goal of a plugin (any version) per build, only in the
+     * given project (any version, every project when the group id is null) and only the executions that started
+     * at or after the given time.
+     *
+     * @return a point per build in the order the builds were stored
+     */
+    public List<TrendPoint> trend(String projectGroupId, String projectArtifactId, String pluginGroupId,
+                                  String pluginArtifactId, String goal, long startedSince) throws IOException {
+        synchronized (LOCK) {
+            List<TrendPoint> points = new ArrayList<TrendPoint>();
+            // the dictionaries are written before the rows, so every row counted here can be decoded
+            long rows = readRowCount();
+            projects.refresh();
+            plugins.refresh();
+            goals.refresh();
+            Integer goalId = goals.idOf(goal);
+            boolean[] pluginMatches = matching(plugins, pluginGroupId + ":" + pluginArtifactId + ":");
+            boolean[] projectMatches = projectGroupId == null ? null : matching(projects, projectGroupId + ":" + projectArtifactId + ":");
+            if (rows == 0 || goalId == null) {
+                return points;
+            }
+
+            TrendPoint current = null;
+            for (long firstRow = 0; firstRow < rows; firstRow += chunkRows) {
+                int numberOfRows = (int) Math.min(chunkRows, rows - firstRow);
+                LongBuffer buildIdColumn = buildIds.mapForRead(firstRow, numberOfRows).asLongBuffer();
+                IntBuffer pluginIdColumn = pluginIds.mapForRead(firstRow, numberOfRows).asIntBuffer();
+                IntBuffer goalIdColumn = goalIds.mapForRead(firstRow, numberOfRows).asIntBuffer();
+                LongBuffer durationColumn = durations.mapForRead(firstRow, numberOfRows).asLongBuffer();
+                ByteBuffer outcomeColumn = outcomes.mapForRead(firstRow, numberOfRows);
+                // the columns of a filter that is not used are not mapped at all
+                IntBuffer projectIdColumn = projectMatches == null ? null : projectIds.mapForRead(firstRow, numberOfRows).asIntBuffer();
+                LongBuffer startTimeColumn = startedSince == Long.MIN_VALUE ? null : startTimes.mapForRead(firstRow, numberOfRows).asLongBuffer();
+                for (int row = 0; row < numberOfRows; row++) {
+                    if (goalIdColumn.get(row) != goalId || !pluginMatches[pluginIdColumn.get(row)]) {
+                        continue;
+                    }
+                    if (projectIdColumn != null && !projectMatches[projectIdColumn.get(row)]) {
+                        continue;
+                    }
+                    if (startTimeColumn != null && startTimeColumn.get(row) < startedSince) {
+                        continue;
+                    }
+                    long durationNanos = durationColumn.get(row);
+                    if (durationNanos == NOT_FINISHED) {
+                        continue;
+                    }
+                    long buildId = buildIdColumn.get(row);
+                    if (current == null || current.buildId != buildId) {
+                        current = new TrendPoint(buildId);
+                        points.add(current);
+                    }
+                    current.add(durationNanos, outcomeColumn.get(row) == Outcome.FAILURE.ordinal());
+                }
+            }
+            return points;
+        }
+    }
+
+    public long getRowCount() throws IOException {
+        synchronized (LOCK) {
+            return readRowCount();
+        }
+    }
+
+    private boolean[] matching(Dictionary dictionary, String prefix) {
+        boolean[] matches = new boolean[dictionary.size()];
+        for (int id = 0; id < matches.length; id++) {
+            matches[id] = dictionary.valueOf(id).startsWith(prefix);
+        }
+        return matches;
+    }
+
+    private void appendWhileLocked(BuildInformation buildInformation) throws IOException {
+        projects.refresh();
+        plugins.refresh();
+        goals.refresh();
+
+        List<Project> executionProjects = new ArrayList<Project>();
+        List<PluginExecution> executions = new ArrayList<PluginExecution>();
+        for (Project project : buildInformation.getProjects()) {
+            for (PluginExecution execution : project.getPluginExecutions()) {
+                executionProjects.add(project);
+                executions.add(execution);
+            }
+        }
+        if (executions.isEmpty()) {
+            return;
+        }
+
+        long rows = readRowCount();
+        int numberOfRows = executions.size();
+        MappedByteBuffer buildIdColumn = buildIds.mapForAppend(rows, numberOfRows);
+        MappedByteBuffer projectIdColumn = projectIds.mapForAppend(rows, numberOfRows);
+        MappedByteBuffer pluginIdColumn = pluginIds.mapForAppend(rows, numberOfRows);
+        MappedByteBuffer goalIdColumn = goalIds.mapForAppend(rows, numberOfRows);
+        MappedByteBuffer startTimeColumn = startTimes.mapForAppend(rows, numberOfRows);
+        MappedByteBuffer durationColumn = durations.mapForAppend(rows, numberOfRows);
+        MappedByteBuffer outcomeColumn = outcomes.mapForAppend(rows, numberOfRows);
+        for (int i = 0; i < numberOfRows; i++) {
+            PluginExecution execution = executions.get(i);
+            Long durationNanos = execution.getDurationNanos();
+            buildIdColumn.putLong(buildInformation.getId());
+            projectIdColumn.putInt(projects.findOrAdd(keyOf(executionProjects.get(i))));
+            pluginIdColumn.putInt(plugins.findOrAdd(keyOf(execution)));
+            goalIdColumn.putInt(goals.findOrAdd(execution.goal));
+            startTimeColumn.putLong(execution.startTime.getTime());
+            durationColumn.putLong(durationNanos == null ? NOT_FINISHED : durationNanos);
+            outcomeColumn.put((byte) (execution.outcome == null ? -1 : execution.outcome.ordinal()));
+        }
+        force(buildIdColumn, projectIdColumn, pluginIdColumn, goalIdColumn, startTimeColumn, durationColumn, outcomeColumn);
+        writeRowCount(rows + numberOfRows);
+    }
+
+    private void force(MappedByteBuffer... columns) {
+        for (MappedByteBuffer column : columns) {
+            column.force();
+        }
+    }
+
+    private long readRowCount() throws IOException {
+        if (!rowCountFile.exists() || rowCountFile.length() < 8) {
+            return 0;
+        }
+        RandomAccessFile file = new RandomAccessFile(rowCountFile, "r");
+        try {
+            return file.readLong();
+        } finally {
+            file.close();
+        }
+    }
+
+    private void writeRowCount(long rows) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(rowCountFile, "rw");
+        try {
+            file.writeLong(rows);
+        } finally {
+            file.close();
+        }
+    }
+
+    private String keyOf(Artifact artifact) {
+        return artifact.groupId + ":" + artifact.artifactId + ":" + artifact.version;
+    }
+
+    /**
+     * The executions of a plugin goal within a single build.
+     */
+    public static class TrendPoint {
+        public final long buildId;
+        private int executions;
+        private int failures;
+        private long totalDurationNanos;
+
+        TrendPoint(long buildId) {
+            this.buildId = buildId;
+        }
+
+        void add(long durationNanos, boolean failed) {
+            executions++;
+            if (failed) {
+                failures++;
+            }
+            totalDurationNanos += durationNanos;
+        }
+
+        public int getExecutions() {
+            return executions;
+        }
+
+        /**
+         * @return how many of the executions failed, their durations are part of the total
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        public long getTotalDurationNanos() {
+            return totalDurationNanos;
+        }
+
+        public long getAverageDurationNanos() {
+            return totalDurationNanos / executions;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only dictionary that encodes strings as the int position they were first added at.
+ */
+class Dictionary {
+    private final File file;
+    private final List<String> values = new ArrayList<String>();
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private long length;
+
+    Dictionary(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Picks up the entries that were added by other processes since the last refresh.
+     */
+    void refresh() throws IOException {
+        if (!file.exists() || file.length() == length) {
+            return;
+        }
+        byte[] bytes;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            bytes = new byte[(int) (randomAccessFile.length() - length)];
+            randomAccessFile.seek(length);
+            randomAccessFile.readFully(bytes);
+        } finally {
+            randomAccessFile.close();
+        }
+        ByteArrayInputStream remaining = new ByteArrayInputStream(bytes);
+        DataInputStream input = new DataInputStream(remaining);
+        int consumed = 0;
+        while (remaining.available() > 0) {
+            try {
+                add(input.readUTF());
+            } catch (EOFException e) {
+                // the entry is still being written
+                break;
+            }
+            consumed = bytes.length - remaining.available();
+        }
+        length += consumed;
+    }
+
+    Integer idOf(String value) {
+        return ids.get(value);
+    }
+
+    String valueOf(int id) {
+        return values.get(id);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    int findOrAdd(String value) throws IOException {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        new DataOutputStream(entry).writeUTF(value);
+        FileOutputStream output = new FileOutputStream(file, true);
+        try {
+            entry.writeTo(output);
+        } finally {
+            output.close();
+        }
+        length += entry.size();
+        return add(value);
+    }
+
+    private int add(String value) {
+        ids.put(value, values.size());
+        values.add(value);
+        return values.size() - 1;
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Housekeeping that does not need to happen for every build. Each run is recorded in maintenance_run, so it only
+ * runs again once the interval has passed no matter how many builds or processes share the database.
+ * <p/>
+ * When an {@link ExecutionRetention} is enabled the old executions are rolled up as well. The daily {@link ExecutionSketches} of finished days are always merged into their week and month and the
+ * {@link RegressionDetector} looks at the builds that were saved since its last run.
+ */
+public class DatabaseMaintenance {
+    public static final String INTERVAL_KEY = "plugin.execution.watcher.maintenance.interval";
+    public static final long DEFAULT_INTERVAL = 24L * 60 * 60 * 1000;
+    public static final String DELETE_PARTIAL_BUILDS = "delete_partial_builds";
+
+    private final long intervalMillis;
+    private final ExecutionRetention retention;
+    private final ExecutionSketches sketches = new ExecutionSketches();
+    private final RegressionDetector regressionDetector = new RegressionDetector();
+    private volatile long nextRunAt;
+    private volatile boolean stopped;
+
+    public DatabaseMaintenance() {
+        this(Long.getLong(INTERVAL_KEY, DEFAULT_INTERVAL), ExecutionRetention.fromSystemProperties());
+    }
+
+    public DatabaseMaintenance(long intervalMillis) {
+        this(intervalMillis, null);
+    }
+
+    public DatabaseMaintenance(long intervalMillis, ExecutionRetention retention) {
+        this.intervalMillis = intervalMillis;
+        this.retention = retention;
+    }
+
+    public boolean isDue() {
+        return System.currentTimeMillis() >= nextRunAt;
+    }
+
+    /**
+     * Runs every task that is due in a transaction of its own, a task that fails is reported and tried again
+     * once the interval has passed.
+     */
+    public void runWhenDue(DBI dbi) {
+        long now = System.currentTimeMillis();
+        long nextRun = runWhenDue(dbi, now, new Task(DELETE_PARTIAL_BUILDS) {
+            long run(Handle handle) {
+                return deletePartialBuilds(handle);
+            }
+        });
+        nextRun = Math.min(nextRun, runWhenDue(dbi, now, new Task(ExecutionSketches.ROLL_UP_SKETCHES) {
+            long run(Handle handle) {
+                return sketches.rollUp(handle);
+            }
+
+            boolean hasMoreWork() {
+                return sketches.hasMoreWork();
+            }
+        }));
+        nextRun = Math.min(nextRun, runWhenDue(dbi, now, new Task(RegressionDetector.DETECT_REGRESSIONS) {
+            long run(Handle handle) {
+                return regressionDetector.run(handle);
+            }
+
+            boolean hasMoreWork() {
+                return regressionDetector.hasMoreWork();
+            }
+        }));
+        if (retention != null) {
+            nextRun = Math.min(nextRun, rollUpExecutionsWhenDue(dbi, now));
+        }
+        nextRunAt = nextRun;
+    }
+
+    /**
+     * Runs the tasks until none of them is due any more or the maintenance is stopped, a task that stopped at
+     * its limit is due again right away.
+     */
+    public void runUntilDone(DBI dbi) {
+        do {
+            runWhenDue(dbi);
+        } while (isDue() && !stopped);
+    }
+
+    /**
+     * Makes a running maintenance stop after the step it is in, the rest is done by a later run.
+     */
+    public void stop() {
+        stopped = true;
+        if (retention != null) {
+            retention.stop();
+        }
+    }
+
+    public void resume() {
+        stopped = false;
+        if (retention != null) {
+            retention.resume();
+        }
+    }
+
+    /**
+     * @return when the task is due again
+     */
+    private long runWhenDue(DBI dbi, long now, Task task) {
+        if (stopped) {
+            return now;
+        }
+        Handle handle = dbi.open();
+        try {
+            handle.begin();
+            Timestamp lastRun = lastRunOf(handle, task.name);
+            long nextRun;
+            if (!isDue(lastRun, now, intervalMillis)) {
+                nextRun = lastRun.getTime() + intervalMillis;
+            } else {
+                long affectedRows = task.run(handle);
+                // a task that stopped at its limit carries on with the next run
+                nextRun = task.hasMoreWork() ? now : record(handle, task.name, now, affectedRows).getTime() + intervalMillis;
+            }
+            handle.commit();
+            return nextRun;
+        } catch (RuntimeException e) {
+            handle.rollback();
+            System.out.println("[WARNING] The database maintenance task " + task.name + " failed: " + e.getMessage());
+            return now + intervalMillis;
+        } finally {
+            handle.close();
+        }
+    }
+
+    /**
+     * The retention commits its batches one at a time, so it is not run inside a transaction.
+     */
+    private long rollUpExecutionsWhenDue(DBI dbi, long now) {
+        if (stopped) {
+            return now;
+        }
+        Handle handle = dbi.open();
+        try {
+            Timestamp lastRollUp = lastRunOf(handle, ExecutionRetention.ROLL_UP_EXECUTIONS);
+            if (!isDue(lastRollUp, now, intervalMillis)) {
+                return lastRollUp.getTime() + intervalMillis;
+            }
+            long rolledUp = retention.run(dbi);
+            if (retention.hasMoreWork()) {
+                return now;
+            }
+            return record(handle, ExecutionRetention.ROLL_UP_EXECUTIONS, now, rolledUp).getTime() + intervalMillis;
+        } catch (RuntimeException e) {
+            System.out.println("[WARNING] The database maintenance task " + ExecutionRetention.ROLL_UP_EXECUTIONS + " failed: " + e.getMessage());
+            return now + intervalMillis;
+        } finally {
+            handle.close();
+        }
+    }
+
+    /**
+     * Catches up with the maintenance and compacts the database, which gives the space of the rolled up
+     * executions back to the file system. Compacting rewrites the whole file, so it is left to this command
+     * instead of holding up the exit of a build, a schedule is up to the scheduler of the machine (cron). It is
+     * skipped while another process uses the database.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.setProperty(SystemPropertyDirectoryProvider.DB_DIRECTORY_KEY, args[0]);
+        }
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        try {
+            new DatabaseMaintenance().runUntilDone(new DBI(databaseManager.load()));
+            if (!databaseManager.compact()) {
+                System.out.println("The database is in use by another process, it was not compacted");
+                return;
+            }
+            System.out.println("Compacted the database");
+        } finally {
+            databaseManager.unload();
+        }
+    }
+
+    private Timestamp lastRunOf(Handle handle, String task) {
+        return handle.createQuery("select max(run_time) from maintenance_run where task = ?")
+                .bind(0, task)
+                .mapTo(Timestamp.class)
+                .first();
+    }
+
+    private boolean isDue(Timestamp lastRun, long now, long interval) {
+        return lastRun == null || now - lastRun.getTime() >= interval;
+    }
+
+    private Timestamp record(Handle handle, String task, long now, long affectedRows) {
+        Timestamp runTime = new Timestamp(now);
+        handle.createStatement("insert into maintenance_run (task, run_time, affected_rows) values (?,?,?)")
+                .bind(0, task)
+                .bind(1, runTime)
+                .bind(2, (int) Math.min(affectedRows, Integer.MAX_VALUE))
+                .execute();
+        return runTime;
+    }
+
+    private int deletePartialBuilds(Handle handle) {
+        List<Long> buildIds = handle.createQuery("select id from build where end_time is null and start_time < ?")
+                .bind(0, today())
+                .mapTo(Long.class)
+                .list();
+        for (Long buildId : buildIds) {
+            handle.createStatement("delete from plugin_execution where build_id = ?").bind(0, buildId).execute();
+            handle.createStatement("delete from build_project where build_id = ?").bind(0, buildId).execute();
+            handle.createStatement("delete from build_project_dependency where build_id = ?").bind(0, buildId).execute();
+            handle.createStatement("delete from build_thread where build_id = ?").bind(0, buildId).execute();
+            handle.createStatement("delete from build where id = ?").bind(0, buildId).execute();
+        }
+        return buildIds.size();
+    }
+
+    private java.sql.Date today() {
+        Calendar instance = Calendar.getInstance();
+        instance.set(Calendar.HOUR_OF_DAY, 0);
+        instance.set(Calendar.MINUTE, 0);
+        instance.set(Calendar.SECOND, 0);
+        instance.set(Calendar.MILLISECOND, 0);
+        return new java.sql.Date(instance.getTimeInMillis());
+    }
+
+    private abstract static class Task {
+        private final String name;
+
+        private Task(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the number of rows the task affected
+         */
+        abstract long run(Handle handle);
+
+        boolean hasMoreWork() {
+            return false;
+        }
+    }
+}
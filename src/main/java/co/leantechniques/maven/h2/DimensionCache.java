@@ -0,0 +1,84 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.Artifact;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the database ids of a dimension table (plugin, project) keyed by groupId/artifactId/version.
+ */
+public class DimensionCache {
+    private final LeastRecentlyUsed ids;
+    private long hits, misses;
+
+    public DimensionCache(int capacity) {
+        ids = new LeastRecentlyUsed(capacity);
+    }
+
+    public synchronized Long get(Artifact artifact) {
+        Long id = ids.get(keyOf(artifact));
+        if (id == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return id;
+    }
+
+    public synchronized void put(Artifact artifact, long id) {
+        ids.put(keyOf(artifact), id);
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private Artifact keyOf(Artifact artifact) {
+        // Project and PluginExecution are not equal to a plain Artifact with the same coordinates
+        if (artifact.getClass() == Artifact.class) {
+            return artifact;
+        }
+        return new Artifact(artifact.groupId, artifact.artifactId, artifact.version);
+    }
+
+    private static class LeastRecentlyUsed extends LinkedHashMap<Artifact, Long> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        private LeastRecentlyUsed(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Artifact, Long> eldest) {
+            return size() > capacity;
+        }
+    }
+}
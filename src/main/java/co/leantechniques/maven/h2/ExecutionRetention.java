@@ -0,0 +1,307 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.sketch.LatencySketch;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.util.LongMapper;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Rolls the plugin executions that are older than the retention period up into daily aggregates per project,
+ * plugin and goal (count, sum, min, max and percentiles) and deletes them. It works on a handle of its own and the
+ * executions are deleted in small batches that are committed one at a time, so no lock is held for long. A run
+ * stops after a maximum number of rows, the rest is rolled up by the next run.
+ */
+public class ExecutionRetention {
+    public static final String DAYS_KEY = "plugin.execution.watcher.retention.days";
+    public static final String BATCH_SIZE_KEY = "plugin.execution.watcher.retention.batch.size";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final String MAX_ROWS_KEY = "plugin.execution.watcher.retention.max.rows";
+    public static final long DEFAULT_MAX_ROWS = 100000L;
+    public static final String ROLL_UP_EXECUTIONS = "roll_up_executions";
+
+    private final int days;
+    private final int batchSize;
+    private final long maxRows;
+    private boolean moreWork;
+    private volatile boolean stopped;
+
+    public ExecutionRetention(int days, int batchSize, long maxRows) {
+        this.days = days;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * @return the retention configured through the system properties or null when it is not enabled
+     */
+    public static ExecutionRetention fromSystemProperties() {
+        Integer days = Integer.getInteger(DAYS_KEY);
+        if (days == null) {
+            return null;
+        }
+        return new ExecutionRetention(days, Integer.getInteger(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE), Long.getLong(MAX_ROWS_KEY, DEFAULT_MAX_ROWS));
+    }
+
+    /**
+     * Works on a handle of its own and commits after every batch.
+     *
+     * @return the number of executions that were deleted
+     */
+    public long run(DBI dbi) {
+        Handle handle = dbi.open();
+        try {
+            return run(handle);
+        } catch (RuntimeException e) {
+            if (handle.isInTransaction()) {
+                handle.rollback();
+            }
+            throw e;
+        } finally {
+            handle.close();
+        }
+    }
+
+    private long run(Handle handle) {
+        Timestamp cutoff = startOfDay(System.currentTimeMillis(), -days);
+        long deleted = 0;
+        moreWork = false;
+        while (true) {
+            Timestamp oldest = handle.createQuery("select min(start_time) from plugin_execution where start_time < ?")
+                    .bind(0, cutoff)
+                    .mapTo(Timestamp.class)
+                    .first();
+            if (oldest == null) {
+                return deleted;
+            }
+            Timestamp day = startOfDay(oldest.getTime(), 0);
+            Timestamp nextDay = startOfDay(oldest.getTime(), 1);
+            handle.begin();
+            long rolledUpThrough = rollUp(handle, day, nextDay);
+            handle.commit();
+            deleted += delete(handle, day, nextDay, rolledUpThrough, maxRows - deleted);
+            if (deleted >= maxRows || stopped) {
+                moreWork = true;
+                return deleted;
+            }
+        }
+    }
+
+    /**
+     * Makes a running roll up stop after the batch it is in.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public void resume() {
+        stopped = false;
+    }
+
+    /**
+     * @return whether the last run stopped before all the old executions were rolled up
+     */
+    public boolean hasMoreWork() {
+        return moreWork;
+    }
+
+    /**
+     * Aggregates the executions of the day that were not rolled up yet, executions that arrive after the day was
+     * rolled up (a journal import, a concurrent save) are merged into its aggregates.
+     *
+     * @return the id of the newest execution of the day that is part of the aggregates
+     */
+    private long rollUp(Handle handle, Timestamp day, Timestamp nextDay) {
+        java.sql.Date date = new java.sql.Date(day.getTime());
+        // no max() here, the long mapper would turn the null of an empty day into 0
+        // for update keeps a second process from rolling up the same executions until this one is committed
+        Long rolledUpThrough = handle.createQuery("select last_execution_id from plugin_execution_daily where day = ? " +
+                "order by last_execution_id desc limit 1 for update")
+                .bind(0, date)
+                .map(LongMapper.FIRST)
+                .first();
+        long after = rolledUpThrough == null ? Long.MIN_VALUE : rolledUpThrough;
+        Long newest = handle.createQuery("select id from plugin_execution where start_time >= ? and start_time < ? and id > ? " +
+                "order by id desc limit 1")
+                .bind(0, day)
+                .bind(1, nextDay)
+                .bind(2, after)
+                .map(LongMapper.FIRST)
+                .first();
+        if (newest == null) {
+            return after;
+        }
+
+        // sorted by duration within a group, so the percentiles can be picked by position
+        ResultIterator<Map<String, Object>> rows = handle.createQuery("select project_id, plugin_id, goal, " +
+                "coalesce(duration_nanos, elapsed_millis_time * 1000000) as duration_nanos from plugin_execution " +
+                "where start_time >= ? and start_time < ? and id > ? and id <= ? and end_time is not null " +
+                "order by project_id, plugin_id, goal, duration_nanos")
+                .bind(0, day)
+                .bind(1, nextDay)
+                .bind(2, after)
+                .bind(3, newest)
+                .iterator();
+        PreparedBatch batch = handle.prepareBatch("merge into plugin_execution_daily (day, project_id, plugin_id, goal, " +
+                "executions, total_nanos, min_nanos, max_nanos, p50_nanos, p90_nanos, p99_nanos, sketch, last_execution_id) " +
+                "key(day, plugin_id, project_id, goal) values (?,?,?,?,?,?,?,?,?,?,?,?,?)");
+        boolean lateExecutions = rolledUpThrough != null;
+        try {
+            Group group = null;
+            while (rows.hasNext()) {
+                Map<String, Object> row = rows.next();
+                if (group == null || !group.isOf(row)) {
+                    add(handle, batch, date, group, lateExecutions, newest);
+                    group = new Group(row);
+                }
+                group.add((Long) row.get("duration_nanos"));
+            }
+            add(handle, batch, date, group, lateExecutions, newest);
+        } finally {
+            rows.close();
+        }
+        if (batch.getSize() > 0) {
+            batch.execute();
+        }
+        handle.createStatement("update plugin_execution_daily set last_execution_id = ? where day = ?")
+                .bind(0, newest)
+                .bind(1, date)
+                .execute();
+        return newest;
+    }
+
+    private void add(Handle handle, PreparedBatch batch, java.sql.Date day, Group group, boolean lateExecutions, long lastExecutionId) {
+        if (group == null) {
+            return;
+        }
+        long executions = group.size;
+        long total = group.total;
+        long min = group.durations[0];
+        long max = group.durations[group.size - 1];
+        long p50 = group.percentile(50);
+        long p90 = group.percentile(90);
+        long p99 = group.percentile(99);
+        LatencySketch sketch = group.sketch();
+        Map<String, Object> aggregate = lateExecutions ? aggregateOf(handle, day, group) : null;
+        if (aggregate != null) {
+            // count, sum, min and max merge exactly, the percentiles of the whole day come from the merged sketch,
+            // they are within the accuracy of the sketch instead of exact
+            executions += ((Number) aggregate.get("executions")).longValue();
+            total += ((Number) aggregate.get("total_nanos")).longValue();
+            min = Math.min(min, ((Number) aggregate.get("min_nanos")).longValue());
+            max = Math.max(max, ((Number) aggregate.get("max_nanos")).longValue());
+            sketch.merge(LatencySketch.fromBytes((byte[]) aggregate.get("sketch")));
+            p50 = sketch.quantile(0.5);
+            p90 = sketch.quantile(0.9);
+            p99 = sketch.quantile(0.99);
+        }
+        batch.add(day, group.projectId, group.pluginId, group.goal, executions, total, min, max, p50, p90, p99, sketch.toBytes(), lastExecutionId);
+    }
+
+    private Map<String, Object> aggregateOf(Handle handle, java.sql.Date day, Group group) {
+        return handle.createQuery("select executions, total_nanos, min_nanos, max_nanos, sketch " +
+                "from plugin_execution_daily where day = ? and plugin_id = ? and project_id = ? and goal = ?")
+                .bind(0, day)
+                .bind(1, group.pluginId)
+                .bind(2, group.projectId)
+                .bind(3, group.goal)
+                .first();
+    }
+
+    private long delete(Handle handle, Timestamp day, Timestamp nextDay, long rolledUpThrough, long limit) {
+        long deleted = 0;
+        while (deleted < limit) {
+            handle.begin();
+            // executions that arrived after the roll up are left for the next round
+            int deletedInBatch = handle.createStatement("delete from plugin_execution where start_time >= ? and start_time < ? and id <= ? limit ?")
+                    .bind(0, day)
+                    .bind(1, nextDay)
+                    .bind(2, rolledUpThrough)
+                    .bind(3, (int) Math.min(batchSize, limit - deleted))
+                    .execute();
+            handle.commit();
+            deleted += deletedInBatch;
+            if (deletedInBatch == 0) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private Timestamp startOfDay(long time, int daysToAdd) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, daysToAdd);
+        return new Timestamp(calendar.getTimeInMillis());
+    }
+
+    private static class Group {
+        private final Object projectId, pluginId, goal;
+        private long[] durations = new long[16];
+        private int size;
+        private long total;
+
+        private Group(Map<String, Object> row) {
+            projectId = row.get("project_id");
+            pluginId = row.get("plugin_id");
+            goal = row.get("goal");
+        }
+
+        private boolean isOf(Map<String, Object> row) {
+            return same(projectId, row.get("project_id"))
+                    && same(pluginId, row.get("plugin_id"))
+                    && same(goal, row.get("goal"));
+        }
+
+        private void add(long duration) {
+            if (size == durations.length) {
+                durations = Arrays.copyOf(durations, size * 2);
+            }
+            durations[size++] = duration;
+            total += duration;
+        }
+
+        /**
+         * Nearest-rank percentile of the sorted durations.
+         */
+        private long percentile(int percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * size);
+            return durations[Math.max(rank, 1) - 1];
+        }
+
+        private LatencySketch sketch() {
+            LatencySketch sketch = new LatencySketch();
+            for (int i = 0; i < size; i++) {
+                sketch.add(durations[i]);
+            }
+            return sketch;
+        }
+
+        private static boolean same(Object value, Object other) {
+            return value == null ? other == null : value.equals(other);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.sketch.LatencySketch;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.util.ByteArrayMapper;
+
+import java.sql.Date;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link LatencySketch} of the execution durations per day, week and month for every project, plugin
+ * and goal. The daily sketches are updated when a build is saved, finished days are merged into their week and
+ * month by {@link #rollUp(Handle)}, so percentiles over a period never have to read the raw executions.
+ */
+public class ExecutionSketches {
+    public static final String DAY = "DAY";
+    public static final String WEEK = "WEEK";
+    public static final String MONTH = "MONTH";
+    public static final String ROLL_UP_SKETCHES = "roll_up_sketches";
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final int batchSize;
+    private boolean moreWork;
+
+    public ExecutionSketches() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public ExecutionSketches(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds the durations to the daily sketch, a day that was already rolled up passes them on to its week and month.
+     */
+    public void addToDay(Handle handle, java.util.Date day, long projectId, long pluginId, String goal, LatencySketch sketch) {
+        Date dayStart = dayOf(day);
+        if (add(handle, DAY, dayStart, projectId, pluginId, goal, sketch)) {
+            addToWeekAndMonth(handle, dayStart, projectId, pluginId, goal, sketch);
+        }
+    }
+
+    /**
+     * @return the sketch of a single period or null when nothing was executed in it
+     */
+    public LatencySketch find(Handle handle, String period, java.util.Date periodStart, Artifact project, Artifact plugin, String goal) {
+        byte[] sketch = handle.createQuery("select s.sketch from execution_sketch s " +
+                "inner join project pr on pr.id = s.project_id " +
+                "inner join plugin pl on pl.id = s.plugin_id " +
+                "where s.period = ? and s.period_start = ? and s.goal = ? " +
+                "and pr.group_id = ? and pr.artifact_id = ? and pr.version = ? " +
+                "and pl.group_id = ? and pl.artifact_id = ? and pl.version = ?")
+                .bind(0, period)
+                .bind(1, startOf(periodStart, fieldOf(period)))
+                .bind(2, goal)
+                .bind(3, project.groupId)
+                .bind(4, project.artifactId)
+                .bind(5, project.version)
+                .bind(6, plugin.groupId)
+                .bind(7, plugin.artifactId)
+                .bind(8, plugin.version)
+                .map(ByteArrayMapper.FIRST)
+                .first();
+        return sketch == null ? null : LatencySketch.fromBytes(sketch);
+    }
+
+    /**
+     * Merges the daily sketches of the days from the first up to and including the last day.
+     */
+    public LatencySketch findDays(Handle handle, java.util.Date firstDay, java.util.Date lastDay, Artifact project, Artifact plugin, String goal) {
+        List<byte[]> sketches = handle.createQuery("select s.sketch from execution_sketch s " +
+                "inner join project pr on pr.id = s.project_id " +
+                "inner join plugin pl on pl.id = s.plugin_id " +
+                "where s.period = ? and s.period_start >= ? and s.period_start <= ? and s.goal = ? " +
+                "and pr.group_id = ? and pr.artifact_id = ? and pr.version = ? " +
+                "and pl.group_id = ? and pl.artifact_id = ? and pl.version = ?")
+                .bind(0, DAY)
+                .bind(1, startOf(firstDay, Calendar.DAY_OF_MONTH))
+                .bind(2, startOf(lastDay, Calendar.DAY_OF_MONTH))
+                .bind(3, goal)
+                .bind(4, project.groupId)
+                .bind(5, project.artifactId)
+                .bind(6, project.version)
+                .bind(7, plugin.groupId)
+                .bind(8, plugin.artifactId)
+                .bind(9, plugin.version)
+                .map(ByteArrayMapper.FIRST)
+                .list();
+        LatencySketch merged = new LatencySketch();
+        for (byte[] sketch : sketches) {
+            merged.merge(LatencySketch.fromBytes(sketch));
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the next batch of days before today into their week and month. A save waits on the lock of
+     * <code>execution_sketch</code> while the transaction of the batch is open, so the batches are kept small and
+     * the caller commits after each one.
+     *
+     * @return the number of days that were rolled up
+     */
+    public int rollUp(Handle handle) {
+        Date today = startOf(new java.util.Date(), Calendar.DAY_OF_MONTH);
+        List<Map<String, Object>> days = handle.createQuery("select id, period_start, project_id, plugin_id, goal, sketch from execution_sketch " +
+                "where period = ? and rolled_up = false and period_start < ? order by id limit ?")
+                .bind(0, DAY)
+                .bind(1, today)
+                .bind(2, batchSize)
+                .list();
+        for (Map<String, Object> day : days) {
+            addToWeekAndMonth(handle, (Date) day.get("period_start"), (Long) day.get("project_id"),
+                    (Long) day.get("plugin_id"), (String) day.get("goal"), LatencySketch.fromBytes((byte[]) day.get("sketch")));
+            handle.createStatement("update execution_sketch set rolled_up = true where id = ?")
+                    .bind(0, day.get("id"))
+                    .execute();
+        }
+        moreWork = days.size() == batchSize;
+        return days.size();
+    }
+
+    /**
+     * @return whether the last roll up stopped at the batch size before it reached today
+     */
+    public boolean hasMoreWork() {
+        return moreWork;
+    }
+
+    private void addToWeekAndMonth(Handle handle, Date day, long projectId, long pluginId, String goal, LatencySketch sketch) {
+        add(handle, WEEK, startOf(day, Calendar.WEEK_OF_YEAR), projectId, pluginId, goal, sketch);
+        add(handle, MONTH, startOf(day, Calendar.MONTH), projectId, pluginId, goal, sketch);
+    }
+
+    /**
+     * @return whether the period was already rolled up into the longer periods
+     */
+    private boolean add(Handle handle, String period, Date periodStart, long projectId, long pluginId, String goal, LatencySketch sketch) {
+        // for update keeps a concurrent build from merging into the same row in between
+        Map<String, Object> row = handle.createQuery("select id, sketch, rolled_up from execution_sketch " +
+                "where period = ? and period_start = ? and plugin_id = ? and project_id = ? and goal = ? for update")
+                .bind(0, period)
+                .bind(1, periodStart)
+                .bind(2, pluginId)
+                .bind(3, projectId)
+                .bind(4, goal)
+                .first();
+        if (row == null) {
+            handle.createStatement("insert into execution_sketch (period, period_start, project_id, plugin_id, goal, executions, sketch) values (?,?,?,?,?,?,?)")
+                    .bind(0, period)
+                    .bind(1, periodStart)
+                    .bind(2, projectId)
+                    .bind(3, pluginId)
+                    .bind(4, goal)
+                    .bind(5, sketch.getCount())
+                    .bind(6, sketch.toBytes())
+                    .execute();
+            return false;
+        }
+        LatencySketch merged = LatencySketch.fromBytes((byte[]) row.get("sketch"));
+        merged.merge(sketch);
+        handle.createStatement("update execution_sketch set executions = ?, sketch = ? where id = ?")
+                .bind(0, merged.getCount())
+                .bind(1, merged.toBytes())
+                .bind(2, row.get("id"))
+                .execute();
+        return Boolean.TRUE.equals(row.get("rolled_up"));
+    }
+
+    /**
+     * @return the start of the day of the given time
+     */
+    public static Date dayOf(java.util.Date date) {
+        return startOf(date, Calendar.DAY_OF_MONTH);
+    }
+
+    private int fieldOf(String period) {
+        if (WEEK.equals(period)) {
+            return Calendar.WEEK_OF_YEAR;
+        }
+        if (MONTH.equals(period)) {
+            return Calendar.MONTH;
+        }
+        return Calendar.DAY_OF_MONTH;
+    }
+
+    private static Date startOf(java.util.Date date, int period) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (period == Calendar.WEEK_OF_YEAR) {
+            calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
+        } else if (period == Calendar.MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        return new Date(calendar.getTimeInMillis());
+    }
+}
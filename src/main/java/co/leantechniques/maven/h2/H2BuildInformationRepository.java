@@ -15,114 +15,383 @@
 package co.leantechniques.maven.h2;
 
 import co.leantechniques.maven.*;
+import co.leantechniques.maven.schedule.CriticalPath;
+import co.leantechniques.maven.schedule.ThreadTimeline;
+import co.leantechniques.maven.sketch.LatencySketch;
 import org.apache.maven.eventspy.EventSpy;
 import org.codehaus.plexus.util.StringUtils;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.skife.jdbi.v2.util.LongMapper;
 
-import java.util.Calendar;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class H2BuildInformationRepository implements BuildInformationRepository {
+    public static final String BATCH_SIZE_KEY = "plugin.execution.watcher.batch.size";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final String DIMENSION_CACHE_SIZE_KEY = "plugin.execution.watcher.dimension.cache.size";
+    public static final int DEFAULT_DIMENSION_CACHE_SIZE = 10000;
+
+    private static final String DUPLICATE_KEY = "23505";
+
     private H2DatabaseManager h2DatabaseManager;
+    private int batchSize = Integer.getInteger(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+    private int dimensionCacheSize = Integer.getInteger(DIMENSION_CACHE_SIZE_KEY, DEFAULT_DIMENSION_CACHE_SIZE);
+    private DimensionCache pluginIds = new DimensionCache(dimensionCacheSize);
+    private DimensionCache projectIds = new DimensionCache(dimensionCacheSize);
+    private Map<String, Long> machineInfoIds = new ConcurrentHashMap<String, Long>();
+    private DatabaseMaintenance maintenance = new DatabaseMaintenance();
+    private final ExecutionSketches executionSketches = new ExecutionSketches();
+    private volatile Future<Void> initialization;
+    private final Object maintenanceLock = new Object();
+    private Thread maintenanceThread;
 
     public H2BuildInformationRepository() {
         h2DatabaseManager = new H2DatabaseManager();
     }
 
+    /**
+     * Opens the database on a background thread, builds that never get saved do not have to wait on it.
+     */
     @Override
     public void initialize(EventSpy.Context context) {
-        execute(new Transaction() {
-            public void inTransaction(Handle handle) {
-                deletePartialBuilds(handle);
+        maintenance.resume();
+        FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+            public Void call() throws Exception {
+                open();
+                return null;
             }
         });
+        initialization = task;
+        Thread thread = new Thread(task, "plugin-execution-watcher-init");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     @Override
     public void cleanUp() {
+        try {
+            awaitInitialization();
+        } catch (RuntimeException e) {
+            // it was already reported by the save that waited on it
+        }
+        stopMaintenance();
         h2DatabaseManager.unload();
     }
 
     @Override
     public void save(final BuildInformation buildInformation) {
+        awaitInitialization();
         execute(new Transaction() {
             public void inTransaction(Handle handle) {
-                Long machineInfoId = insertMachineInfo(handle, buildInformation);
-                insertBuild(handle, buildInformation, machineInfoId);
-                insertProjects(handle, buildInformation);
-                insertPluginExecutions(handle, buildInformation);
+                insert(handle, buildInformation);
             }
         });
+        if (maintenance.isDue()) {
+            startMaintenance();
+        }
+    }
+
+    /**
+     * Saves the builds in a single transaction, builds that are already stored are skipped so a
+     * bulk import can be repeated.
+     *
+     * @return the number of builds that were inserted
+     */
+    public int saveAll(final List<BuildInformation> builds) {
+        awaitInitialization();
+        final int[] inserted = new int[1];
+        execute(new Transaction() {
+            public void inTransaction(Handle handle) {
+                for (BuildInformation buildInformation : builds) {
+                    if (buildDoesNotExist(handle, buildInformation.getId())) {
+                        insert(handle, buildInformation);
+                        inserted[0]++;
+                    }
+                }
+            }
+        });
+        return inserted[0];
+    }
+
+    private void insert(Handle handle, BuildInformation buildInformation) {
+        long machineInfoId = findOrCreateMachineInfo(handle, buildInformation);
+        CriticalPath criticalPath = CriticalPath.of(buildInformation.getProjects());
+        ThreadTimeline timeline = ThreadTimeline.of(buildInformation);
+        insertBuild(handle, buildInformation, machineInfoId, criticalPath, timeline);
+        insertProjects(handle, buildInformation, criticalPath);
+        insertThreads(handle, buildInformation, timeline);
+        insertPluginExecutions(handle, buildInformation);
+    }
+
+    private boolean buildDoesNotExist(Handle handle, long buildId) {
+        return handle.createQuery("select count(1) from build where id = ?")
+                .bind(0, buildId)
+                .mapTo(Integer.class)
+                .first() == 0;
+    }
+
+    private void open() {
+        execute(new Transaction() {
+            public void inTransaction(Handle handle) {
+                warmUp(handle, "plugin", pluginIds);
+                warmUp(handle, "project", projectIds);
+            }
+        });
+        startMaintenance();
+    }
+
+    /**
+     * Runs the maintenance on a thread of its own, with its own connections, so no save waits on it. A
+     * maintenance that is already running picks up whatever else is due.
+     */
+    private void startMaintenance() {
+        synchronized (maintenanceLock) {
+            if (maintenanceThread != null && maintenanceThread.isAlive()) {
+                return;
+            }
+            maintenanceThread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        maintenance.runUntilDone(new DBI(h2DatabaseManager.load()));
+                    } catch (RuntimeException e) {
+                        System.out.println("[WARNING] The database maintenance failed: " + e.getMessage());
+                    }
+                }
+            }, "plugin-execution-watcher-maintenance");
+            maintenanceThread.setDaemon(true);
+            maintenanceThread.start();
+        }
+    }
+
+    /**
+     * Waits until the database is open and the maintenance it started caught up, for tools and tests that read
+     * the results of the maintenance.
+     */
+    public void awaitMaintenance() {
+        awaitInitialization();
+        Thread thread;
+        synchronized (maintenanceLock) {
+            thread = maintenanceThread;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Lets a running maintenance finish the step it is in, the rest is left to a later build.
+     */
+    private void stopMaintenance() {
+        Thread thread;
+        synchronized (maintenanceLock) {
+            thread = maintenanceThread;
+            maintenanceThread = null;
+        }
+        maintenance.stop();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
-    private Long insertMachineInfo(Handle handle, BuildInformation buildInformation) {
-        Map<String, Object> insertResult = handle.createStatement("insert into machine_info (maven_version, java_version, computer_name, os, username, os_arch) values (?,?,?,?,?,?)")
-                .bind(0, buildInformation.getMavenVersion())
-                .bind(1, buildInformation.getJavaVersion())
-                .bind(2, buildInformation.getComputerName())
-                .bind(3, buildInformation.getOsName())
-                .bind(4, buildInformation.getUsername())
-                .bind(5, buildInformation.getOsArch())
-                .executeAndReturnGeneratedKeys()
+    private void awaitInitialization() {
+        Future<Void> task = initialization;
+        if (task == null) {
+            return;
+        }
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting on the database to open", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to open the database", e.getCause());
+        }
+    }
+
+    private long findOrCreateMachineInfo(Handle handle, BuildInformation buildInformation) {
+        String fingerprint = MachineFingerprint.of(
+                buildInformation.getUsername(),
+                buildInformation.getMavenVersion(),
+                buildInformation.getJavaVersion(),
+                buildInformation.getComputerName(),
+                buildInformation.getOsName(),
+                buildInformation.getOsArch()
+        );
+        Long cachedId = machineInfoIds.get(fingerprint);
+        if (cachedId != null) {
+            return cachedId;
+        }
+        Long machineInfoId = findMachineInfo(handle, fingerprint);
+        if (machineInfoId == null) {
+            try {
+                handle.createStatement("insert into machine_info (maven_version, java_version, computer_name, os, username, os_arch, fingerprint) values (?,?,?,?,?,?,?)")
+                        .bind(0, buildInformation.getMavenVersion())
+                        .bind(1, buildInformation.getJavaVersion())
+                        .bind(2, buildInformation.getComputerName())
+                        .bind(3, buildInformation.getOsName())
+                        .bind(4, buildInformation.getUsername())
+                        .bind(5, buildInformation.getOsArch())
+                        .bind(6, fingerprint)
+                        .execute();
+            } catch (UnableToExecuteStatementException e) {
+                if (!isDuplicateKey(e)) {
+                    throw e;
+                }
+                // a build of another process stored the same machine first
+            }
+            machineInfoId = findMachineInfo(handle, fingerprint);
+        }
+        if (machineInfoId == null) {
+            throw new IllegalStateException("Could not find or create the machine_info " + fingerprint);
+        }
+        machineInfoIds.put(fingerprint, machineInfoId);
+        return machineInfoId;
+    }
+
+    private Long findMachineInfo(Handle handle, String fingerprint) {
+        return handle.createQuery("select id from machine_info where fingerprint = ?")
+                .bind(0, fingerprint)
+                .map(LongMapper.FIRST)
                 .first();
-        return (Long) insertResult.values().iterator().next();
     }
 
     private void insertPluginExecutions(Handle handle, BuildInformation buildInformation) {
+        PreparedBatch batch = newPluginExecutionBatch(handle);
+        Map<SketchKey, LatencySketch> sketches = new LinkedHashMap<SketchKey, LatencySketch>();
         for (Project project : buildInformation.getProjects()) {
             long projectId = findOrCreateProject(handle, project);
             for (PluginExecution pluginExecution : project.getPluginExecutions()) {
-                insertPluginExecutionFor(handle, buildInformation.getId(), projectId, pluginExecution);
+                long pluginId = findOrCreatePlugin(handle, pluginExecution);
+                addToSketch(sketches, buildInformation, projectId, pluginId, pluginExecution);
+                batch.add(
+                        projectId,
+                        pluginId,
+                        pluginExecution.goal,
+                        pluginExecution.executionId,
+                        pluginExecution.startTime,
+                        pluginExecution.endTime,
+                        pluginExecution.getDurationNanos(),
+                        nameOf(pluginExecution.outcome),
+                        buildInformation.getId(),
+                        pluginExecution.threadName,
+                        pluginExecution.threadName == null ? null : pluginExecution.threadId
+                );
+                if (batch.getSize() >= batchSize) {
+                    batch.execute();
+                    batch = newPluginExecutionBatch(handle);
+                }
             }
         }
+        if (batch.getSize() > 0) {
+            batch.execute();
+        }
+        for (Map.Entry<SketchKey, LatencySketch> sketch : sketches.entrySet()) {
+            SketchKey key = sketch.getKey();
+            executionSketches.addToDay(handle, key.day, key.projectId, key.pluginId, key.goal, sketch.getValue());
+        }
     }
 
-    private void insertPluginExecutionFor(Handle handle, long buildId, long projectId, PluginExecution pluginExecution) {
-        long pluginId = findOrCreatePlugin(handle, pluginExecution);
-        handle.createStatement("insert into plugin_execution (project_id, plugin_id, goal, execution_id, start_time, end_time, build_id) values (?,?,?,?,?,?,?)")
-                .bind(0, projectId)
-                .bind(1, pluginId)
-                .bind(2, pluginExecution.goal)
-                .bind(3, pluginExecution.executionId)
-                .bind(4, pluginExecution.startTime)
-                .bind(5, pluginExecution.endTime)
-                .bind(6, buildId)
-                .execute();
+    private void addToSketch(Map<SketchKey, LatencySketch> sketches, BuildInformation buildInformation,
+                             long projectId, long pluginId, PluginExecution pluginExecution) {
+        Long durationNanos = pluginExecution.getDurationNanos();
+        if (durationNanos == null) {
+            return;
+        }
+        Date startTime = pluginExecution.startTime != null ? pluginExecution.startTime : buildInformation.getStartTime();
+        SketchKey key = new SketchKey(ExecutionSketches.dayOf(startTime), projectId, pluginId, pluginExecution.goal);
+        LatencySketch sketch = sketches.get(key);
+        if (sketch == null) {
+            sketch = new LatencySketch();
+            sketches.put(key, sketch);
+        }
+        sketch.add(durationNanos);
+    }
+
+    private PreparedBatch newPluginExecutionBatch(Handle handle) {
+        return handle.prepareBatch("insert into plugin_execution (project_id, plugin_id, goal, execution_id, start_time, end_time, duration_nanos, outcome, build_id, thread_name, thread_id) values (?,?,?,?,?,?,?,?,?,?,?)");
     }
 
     private long findOrCreatePlugin(Handle handle, Artifact artifact) {
-        String groupId = artifact.groupId;
-        String artifactId = artifact.artifactId;
-        String version = artifact.version;
-
-        if (pluginDoesNotExist(handle, groupId, artifactId, version)) {
-            handle.createStatement("insert into plugin (group_id, artifact_id, version) values (?,?,?)")
-                    .bind(0, groupId)
-                    .bind(1, artifactId)
-                    .bind(2, version)
-                    .execute();
-        }
-
-        return handle.createQuery("select id from plugin where group_id = ? and artifact_id = ? and version = ?")
-                .bind(0, groupId)
-                .bind(1, artifactId)
-                .bind(2, version)
-                .mapTo(Long.class)
-                .first();
+        Long cachedId = pluginIds.get(artifact);
+        if (cachedId != null) {
+            return cachedId;
+        }
+        long pluginId = findOrCreate(handle, "plugin", artifact);
+        pluginIds.put(artifact, pluginId);
+        return pluginId;
     }
 
-    private void insertProjects(Handle handle, BuildInformation buildInformation) {
+    private void insertProjects(Handle handle, BuildInformation buildInformation, CriticalPath criticalPath) {
+        PreparedBatch projects = handle.prepareBatch("insert into build_project (build_id, project_id, start_time, end_time, " +
+                "duration_millis, earliest_start_millis, slack_millis, saving_millis, critical, critical_path_position) values (?,?,?,?,?,?,?,?,?,?)");
+        PreparedBatch dependencies = handle.prepareBatch("insert into build_project_dependency (build_id, project_id, upstream_project_id) values (?,?,?)");
+        Set<Long> inserted = new HashSet<Long>();
         for (Project project : buildInformation.getProjects()) {
-            findOrCreateProject(handle, project);
+            long projectId = findOrCreateProject(handle, project);
+            if (!inserted.add(projectId)) {
+                // a reactor can list the same coordinates twice, only the first one is built
+                continue;
+            }
+            CriticalPath.Module module = criticalPath.moduleOf(project);
+            projects.add(buildInformation.getId(), projectId, project.getStartTime(), project.getEndTime(),
+                    module.getDurationMillis(), module.getEarliestStartMillis(), module.getSlackMillis(),
+                    module.getSavingMillis(), module.isCritical(), module.getPosition());
+            for (Project upstream : project.getUpstreamProjects()) {
+                dependencies.add(buildInformation.getId(), projectId, findOrCreateProject(handle, upstream));
+            }
+        }
+        if (projects.getSize() > 0) {
+            projects.execute();
+        }
+        if (dependencies.getSize() > 0) {
+            dependencies.execute();
         }
     }
 
-    private void insertBuild(Handle handle, BuildInformation buildInformation, Long machineInfoId) {
+    private void insertThreads(Handle handle, BuildInformation buildInformation, ThreadTimeline timeline) {
+        if (timeline.getThreads().isEmpty()) {
+            return;
+        }
+        PreparedBatch batch = handle.prepareBatch("insert into build_thread (build_id, thread_id, thread_name, executions, " +
+                "first_start_time, last_end_time, busy_millis, idle_millis, longest_idle_millis) values (?,?,?,?,?,?,?,?,?)");
+        for (ThreadTimeline.BuilderThread thread : timeline.getThreads()) {
+            batch.add(buildInformation.getId(), thread.getThreadId(), thread.getThreadName(), thread.getExecutions(),
+                    new Date(thread.getFirstStartMillis()), new Date(thread.getLastEndMillis()),
+                    thread.getBusyMillis(), thread.getIdleMillis(), thread.getLongestIdleMillis());
+        }
+        batch.execute();
+    }
+
+    private void insertBuild(Handle handle, BuildInformation buildInformation, long machineInfoId, CriticalPath criticalPath,
+                             ThreadTimeline timeline) {
         long projectId = findOrCreateProject(handle, buildInformation.getTopLevelProject());
 
-        handle.createStatement("insert into build (id, start_time, goals, top_level_project_id, data, end_time, machine_info_id, scm, scm_revision) values (?,?,?,?,?,?,?,?,?)")
+        handle.createStatement("insert into build (id, start_time, goals, top_level_project_id, data, end_time, machine_info_id, scm, scm_revision, outcome, critical_path_millis, threads, busy_millis, parallel_efficiency) values (?,?,?,?,?,?,?,?,?,?,?,?,?,?)")
                 .bind(0, buildInformation.getId())
                 .bind(1, buildInformation.getStartTime())
                 .bind(2, StringUtils.join(buildInformation.getGoals().iterator(), " "))
@@ -132,86 +401,145 @@ public class H2BuildInformationRepository implements BuildInformationRepository
                 .bind(6, machineInfoId)
                 .bind(7, buildInformation.getCodeRevision().scm)
                 .bind(8, buildInformation.getCodeRevision().revision)
+                .bind(9, nameOf(buildInformation.getOutcome()))
+                .bind(10, criticalPath.getMakespanMillis())
+                .bind(11, timeline.getThreadCount())
+                .bind(12, timeline.getBusyMillis())
+                .bind(13, timeline.getParallelEfficiency())
                 .execute();
     }
 
-    private boolean pluginDoesNotExist(Handle handle, String groupId, String artifactId, String version) {
-        return handle.createQuery("select count(1) from plugin where group_id = ? and artifact_id = ? and version = ?")
-                .bind(0, groupId)
-                .bind(1, artifactId)
-                .bind(2, version)
-                .mapTo(Integer.class)
-                .first() == 0;
+    private String nameOf(Outcome outcome) {
+        return outcome == null ? null : outcome.name();
     }
 
     private long findOrCreateProject(Handle handle, Artifact project) {
-        if (projectDoesNotExist(handle, project)) {
-            insertProject(handle, project.groupId, project.artifactId, project.version);
+        Long cachedId = projectIds.get(project);
+        if (cachedId != null) {
+            return cachedId;
         }
-        return findProject(handle, project.groupId, project.artifactId, project.version);
+        long projectId = findOrCreate(handle, "project", project);
+        projectIds.put(project, projectId);
+        return projectId;
     }
 
-    private long findProject(Handle handle, String groupId, String artifactId, String version) {
-        return handle.createQuery("select id from project where group_id = ? and artifact_id = ? and version = ?")
-                .bind(0, groupId)
-                .bind(1, artifactId)
-                .bind(2, version)
-                .mapTo(Long.class)
-                .first();
+    private long findOrCreate(Handle handle, String dimensionTable, Artifact artifact) {
+        Long id = find(handle, dimensionTable, artifact);
+        if (id == null) {
+            try {
+                handle.createStatement("insert into " + dimensionTable + " (group_id, artifact_id, version) values (?,?,?)")
+                        .bind(0, artifact.groupId)
+                        .bind(1, artifact.artifactId)
+                        .bind(2, artifact.version)
+                        .execute();
+            } catch (UnableToExecuteStatementException e) {
+                if (!isDuplicateKey(e)) {
+                    throw e;
+                }
+                // a build of another process stored the same coordinates first
+            }
+            id = find(handle, dimensionTable, artifact);
+        }
+        if (id == null) {
+            throw new IllegalStateException("Could not find or create the " + dimensionTable + " " + artifact);
+        }
+        return id;
     }
 
-    private void insertProject(Handle handle, String groupId, String artifactId, String version) {
-        handle.createStatement("insert into project (group_id, artifact_id, version) values (?,?,?)")
-                .bind(0, groupId)
-                .bind(1, artifactId)
-                .bind(2, version)
-                .execute();
+    private Long find(Handle handle, String dimensionTable, Artifact artifact) {
+        return handle.createQuery("select id from " + dimensionTable + " where group_id = ? and artifact_id = ? and version = ?")
+                .bind(0, artifact.groupId)
+                .bind(1, artifact.artifactId)
+                .bind(2, artifact.version)
+                .map(LongMapper.FIRST)
+                .first();
     }
 
-    private boolean projectDoesNotExist(Handle handle, Artifact project) {
-        return handle.createQuery("select count(1) from project where group_id = ? and artifact_id = ? and version = ?")
-                .bind(0, project.groupId)
-                .bind(1, project.artifactId)
-                .bind(2, project.version)
-                .mapTo(Integer.class)
-                .first() == 0;
+    static boolean isDuplicateKey(UnableToExecuteStatementException e) {
+        return e.getCause() instanceof SQLException && DUPLICATE_KEY.equals(((SQLException) e.getCause()).getSQLState());
     }
 
-    private void deletePartialBuilds(Handle handle) {
-        List<Long> buildIds = handle.createQuery("select id from build where end_time is null and start_time < ?")
-                .bind(0, today())
-                .mapTo(Long.class)
+    private void warmUp(Handle handle, String dimensionTable, DimensionCache cache) {
+        List<Map<String, Object>> rows = handle.createQuery("select id, group_id, artifact_id, version from " + dimensionTable + " order by id desc limit ?")
+                .bind(0, dimensionCacheSize)
                 .list();
-        for (Long buildId : buildIds) {
-            deleteBuildDataFor(handle, buildId);
+        for (Map<String, Object> row : rows) {
+            Artifact artifact = new Artifact((String) row.get("group_id"), (String) row.get("artifact_id"), (String) row.get("version"));
+            cache.put(artifact, (Long) row.get("id"));
         }
     }
 
-    private void deleteBuildDataFor(Handle handle, Long buildId) {
-        handle.createStatement("delete from plugin_execution where build_id = ?").bind(0, buildId).execute();
-        handle.createStatement("delete from build where id = ?").bind(0, buildId).execute();
-    }
-
-    private java.sql.Date today() {
-        Calendar instance = Calendar.getInstance();
-        instance.set(Calendar.HOUR_OF_DAY, 0);
-        instance.set(Calendar.MINUTE, 0);
-        instance.set(Calendar.SECOND, 0);
-        instance.set(Calendar.MILLISECOND, 0);
-        return new java.sql.Date(instance.getTimeInMillis());
-    }
-
     private void execute(Transaction transaction) {
         DBI dbi = new DBI(h2DatabaseManager.load());
         Handle handle = dbi.open();
-        transaction.inTransaction(handle);
-        handle.close();
+        try {
+            handle.begin();
+            transaction.inTransaction(handle);
+            handle.commit();
+        } catch (RuntimeException e) {
+            handle.rollback();
+            // ids of dimension rows inserted by the rolled back transaction are no longer valid
+            pluginIds.clear();
+            projectIds.clear();
+            machineInfoIds.clear();
+            throw e;
+        } finally {
+            handle.close();
+        }
     }
 
     public void setH2DatabaseManager(H2DatabaseManager h2DatabaseManager) {
         this.h2DatabaseManager = h2DatabaseManager;
     }
 
+    public void setDatabaseMaintenance(DatabaseMaintenance maintenance) {
+        this.maintenance = maintenance;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getDimensionCacheHits() {
+        return pluginIds.getHits() + projectIds.getHits();
+    }
+
+    public long getDimensionCacheMisses() {
+        return pluginIds.getMisses() + projectIds.getMisses();
+    }
+
+    private static class SketchKey {
+        private final Date day;
+        private final long projectId;
+        private final long pluginId;
+        private final String goal;
+
+        private SketchKey(Date day, long projectId, long pluginId, String goal) {
+            this.day = day;
+            this.projectId = projectId;
+            this.pluginId = pluginId;
+            this.goal = goal;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SketchKey)) {
+                return false;
+            }
+            SketchKey other = (SketchKey) o;
+            return day.equals(other.day) && projectId == other.projectId && pluginId == other.pluginId
+                    && (goal == null ? other.goal == null : goal.equals(other.goal));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = day.hashCode();
+            result = 31 * result + (int) (projectId ^ (projectId >>> 32));
+            result = 31 * result + (int) (pluginId ^ (pluginId >>> 32));
+            return 31 * result + (goal != null ? goal.hashCode() : 0);
+        }
+    }
+
     private interface Transaction {
         void inTransaction(Handle handle);
     }
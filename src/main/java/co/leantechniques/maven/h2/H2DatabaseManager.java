@@ -19,8 +19,14 @@ import org.h2.jdbcx.JdbcConnectionPool;
 
 import javax.sql.DataSource;
 import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 public class H2DatabaseManager {
+    public static final String LOCK_TIMEOUT_KEY = "plugin.execution.watcher.lock.timeout";
+    public static final long DEFAULT_LOCK_TIMEOUT = 10000;
     private static final Object LOCK = new Object();
     private JdbcConnectionPool cachedDataSource;
     private DatabaseDirectoryProvider directoryProvider;
@@ -39,13 +45,64 @@ public class H2DatabaseManager {
         synchronized (LOCK) {
             if (cachedDataSource == null) {
                 File dbLocation = directoryProvider.provide();
-                cachedDataSource = JdbcConnectionPool.create("jdbc:h2:" + dbLocation.getAbsolutePath() + "/stats;AUTO_SERVER=TRUE", "", "");
-                databaseMigrator.migrate(cachedDataSource);
+                boolean existingDatabase = new File(dbLocation, "stats.h2.db").exists();
+                cachedDataSource = JdbcConnectionPool.create(urlOf(dbLocation), "", "");
+                migrate(cachedDataSource, existingDatabase, new SchemaFingerprint(dbLocation));
             }
             return cachedDataSource;
         }
     }
 
+    private void migrate(DataSource dataSource, boolean existingDatabase, SchemaFingerprint fingerprint) {
+        if (existingDatabase && fingerprint.isCurrent()) {
+            return;
+        }
+        fingerprint.invalidate();
+        databaseMigrator.migrate(dataSource);
+        fingerprint.save();
+    }
+
+    /**
+     * Closes the database and rewrites it with SHUTDOWN COMPACT, which gives the space of deleted rows back to
+     * the file system. Nothing happens when another process is connected through the auto server.
+     *
+     * @return whether the database was compacted
+     */
+    public boolean compact() {
+        synchronized (LOCK) {
+            unload();
+            JdbcConnectionPool dataSource = JdbcConnectionPool.create(urlOf(directoryProvider.provide()), "", "");
+            try {
+                Connection connection = dataSource.getConnection();
+                try {
+                    Statement statement = connection.createStatement();
+                    ResultSet sessions = statement.executeQuery("select count(1) from information_schema.sessions");
+                    sessions.next();
+                    if (sessions.getInt(1) > 1) {
+                        return false;
+                    }
+                    statement.execute("shutdown compact");
+                    return true;
+                } finally {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to compact the database", e);
+            } finally {
+                dataSource.dispose();
+            }
+        }
+    }
+
+    /**
+     * H2 locks whole tables, a save waits up to the lock timeout for the maintenance or the build of another
+     * process to commit. The default of H2 (one second) is shorter than a batch of the maintenance can take.
+     */
+    private String urlOf(File dbLocation) {
+        return "jdbc:h2:" + dbLocation.getAbsolutePath() + "/stats;AUTO_SERVER=TRUE;LOCK_TIMEOUT="
+                + Long.getLong(LOCK_TIMEOUT_KEY, DEFAULT_LOCK_TIMEOUT);
+    }
+
     public void unload() {
         synchronized (LOCK) {
             if (cachedDataSource != null) {
@@ -0,0 +1,135 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.ResultIterator;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the build history out as newline-delimited JSON, one object per row tagged with its table.
+ * H2 materializes a whole result set before returning its first row, so every table is read in pages
+ * of {@link #PAGE_SIZE} rows by id and memory use does not grow with the history.
+ * Timestamps are written as epoch milliseconds and binary values as hex strings.
+ * <p/>
+ * Run it with <code>java -cp ... co.leantechniques.maven.h2.HistoryExporter file|- [directory]</code>,
+ * a file ending with <code>.gz</code> is compressed.
+ */
+public class HistoryExporter {
+    public static final int PAGE_SIZE = 1000;
+
+    private final DataSource dataSource;
+
+    public HistoryExporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return the number of rows that were written
+     */
+    public long export(Writer writer) throws IOException {
+        Handle handle = new DBI(dataSource).open();
+        try {
+            long rows = 0;
+            for (HistoryTable table : HistoryTable.values()) {
+                rows += export(handle, table, writer);
+            }
+            writer.flush();
+            return rows;
+        } finally {
+            handle.close();
+        }
+    }
+
+    private long export(Handle handle, HistoryTable table, Writer writer) throws IOException {
+        long rows = 0;
+        Map<String, Object> line = new LinkedHashMap<String, Object>();
+        long lastId = Long.MIN_VALUE;
+        int pageRows;
+        do {
+            pageRows = 0;
+            ResultIterator<Map<String, Object>> page = handle.createQuery(table.selectPage())
+                    .bind(0, lastId)
+                    .bind(1, PAGE_SIZE)
+                    .iterator();
+            try {
+                while (page.hasNext()) {
+                    Map<String, Object> row = page.next();
+                    writer.write(FlatJson.write(lineOf(table, row, line)));
+                    writer.write('\n');
+                    lastId = ((Number) row.get("id")).longValue();
+                    pageRows++;
+                }
+            } finally {
+                page.close();
+            }
+            rows += pageRows;
+        } while (pageRows == PAGE_SIZE);
+        return rows;
+    }
+
+    private Map<String, Object> lineOf(HistoryTable table, Map<String, Object> row, Map<String, Object> line) {
+        line.clear();
+        line.put("table", table.tableName);
+        for (String column : table.getColumns()) {
+            Object value = row.get(column);
+            if (value instanceof Date) {
+                value = ((Date) value).getTime();
+            } else if (value != null && table.isBinary(column)) {
+                value = MachineFingerprint.toHex((byte[]) value);
+            }
+            line.put(column, value);
+        }
+        return line;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: HistoryExporter file|- [directory]");
+            return;
+        }
+        if (args.length > 1) {
+            System.setProperty(SystemPropertyDirectoryProvider.DB_DIRECTORY_KEY, args[1]);
+        }
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        boolean toStandardOut = "-".equals(args[0]);
+        OutputStream output = toStandardOut ? System.out : new FileOutputStream(new File(args[0]));
+        if (args[0].endsWith(".gz")) {
+            output = new GZIPOutputStream(output, 64 * 1024);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"), 64 * 1024);
+        try {
+            long rows = new HistoryExporter(databaseManager.load()).export(writer);
+            if (!toStandardOut) {
+                System.out.println("Exported " + rows + " row(s) to " + args[0]);
+            }
+        } finally {
+            writer.close();
+            databaseManager.unload();
+        }
+    }
+}
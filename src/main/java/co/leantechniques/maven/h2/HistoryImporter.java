@@ -0,0 +1,172 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads a history written by the {@link HistoryExporter} into an empty database, keeping the ids of
+ * the rows. The file is read line by line and inserted in batches that are committed one at a time,
+ * so a failed import leaves a partial database behind that should be thrown away.
+ * <p/>
+ * Run it with <code>java -cp ... co.leantechniques.maven.h2.HistoryImporter file [directory]</code>,
+ * a file ending with <code>.gz</code> is decompressed.
+ */
+public class HistoryImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public HistoryImporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return the number of rows that were inserted
+     */
+    public long importFrom(Reader reader) throws IOException {
+        Handle handle = new DBI(dataSource).open();
+        try {
+            requireEmptyDatabase(handle);
+            BufferedReader lines = new BufferedReader(reader, 64 * 1024);
+            long rows = 0;
+            HistoryTable table = null;
+            PreparedBatch batch = null;
+            handle.begin();
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                Map<String, Object> row = FlatJson.read(line);
+                HistoryTable rowTable = HistoryTable.named((String) row.get("table"));
+                if (rowTable != table || batch.getSize() >= batchSize) {
+                    flush(handle, batch);
+                    table = rowTable;
+                    batch = handle.prepareBatch(table.insert());
+                }
+                batch.add(valuesOf(table, row));
+                rows++;
+            }
+            flush(handle, batch);
+            restartGeneratedIds(handle);
+            handle.commit();
+            return rows;
+        } catch (RuntimeException e) {
+            if (handle.isInTransaction()) {
+                handle.rollback();
+            }
+            throw e;
+        } finally {
+            handle.close();
+        }
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    private void requireEmptyDatabase(Handle handle) {
+        for (HistoryTable table : HistoryTable.values()) {
+            int count = handle.createQuery("select count(1) from " + table.tableName)
+                    .mapTo(Integer.class)
+                    .first();
+            if (count > 0) {
+                throw new IllegalStateException("The history can only be imported into an empty database, " + table.tableName + " has " + count + " row(s)");
+            }
+        }
+    }
+
+    private void flush(Handle handle, PreparedBatch batch) {
+        if (batch == null || batch.getSize() == 0) {
+            return;
+        }
+        batch.execute();
+        handle.commit();
+        handle.begin();
+    }
+
+    private Object[] valuesOf(HistoryTable table, Map<String, Object> row) {
+        String[] columns = table.getColumns();
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Object value = row.get(columns[i]);
+            if (value != null && table.isTimestamp(columns[i])) {
+                value = new Timestamp((Long) value);
+            } else if (value != null && table.isBinary(columns[i])) {
+                value = bytesOf((String) value);
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private byte[] bytesOf(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private void restartGeneratedIds(Handle handle) {
+        for (HistoryTable table : HistoryTable.values()) {
+            if (!table.generatedId) {
+                continue;
+            }
+            long maxId = handle.createQuery("select coalesce(max(id), 0) from " + table.tableName)
+                    .mapTo(Long.class)
+                    .first();
+            handle.execute("alter table " + table.tableName + " alter column id restart with " + (maxId + 1));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: HistoryImporter file [directory]");
+            return;
+        }
+        if (args.length > 1) {
+            System.setProperty(SystemPropertyDirectoryProvider.DB_DIRECTORY_KEY, args[1]);
+        }
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        InputStream input = new FileInputStream(new File(args[0]));
+        if (args[0].endsWith(".gz")) {
+            input = new GZIPInputStream(input, 64 * 1024);
+        }
+        Reader reader = new InputStreamReader(input, "UTF-8");
+        try {
+            long rows = new HistoryImporter(databaseManager.load()).importFrom(reader);
+            System.out.println("Imported " + rows + " row(s) from " + args[0]);
+        } finally {
+            reader.close();
+            databaseManager.unload();
+        }
+    }
+}
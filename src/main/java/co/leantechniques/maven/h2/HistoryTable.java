@@ -0,0 +1,109 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+/**
+ * The tables of the build history in the order they can be loaded in without breaking a foreign key.
+ */
+public enum HistoryTable {
+    MACHINE_INFO("machine_info", true,
+            "id", "username", "maven_version", "java_version", "computer_name", "os", "os_arch", "fingerprint"),
+    PROJECT("project", true,
+            "id", "group_id", "artifact_id", "version"),
+    PLUGIN("plugin", true,
+            "id", "group_id", "artifact_id", "version"),
+    BUILD("build", false,
+            "id", "top_level_project_id", "goals", "start_time", "end_time", "data", "machine_info_id", "scm",
+            "scm_revision", "outcome", "critical_path_millis", "threads", "busy_millis", "parallel_efficiency"),
+    PLUGIN_EXECUTION("plugin_execution", true,
+            "id", "build_id", "project_id", "plugin_id", "goal", "execution_id", "start_time", "end_time",
+            "duration_nanos", "outcome", "thread_name", "thread_id"),
+    BUILD_PROJECT("build_project", true,
+            "id", "build_id", "project_id", "start_time", "end_time", "duration_millis", "earliest_start_millis",
+            "slack_millis", "saving_millis", "critical", "critical_path_position"),
+    BUILD_PROJECT_DEPENDENCY("build_project_dependency", true,
+            "id", "build_id", "project_id", "upstream_project_id"),
+    BUILD_THREAD("build_thread", true,
+            "id", "build_id", "thread_id", "thread_name", "executions", "first_start_time", "last_end_time",
+            "busy_millis", "idle_millis", "longest_idle_millis"),
+    PLUGIN_EXECUTION_DAILY("plugin_execution_daily", true,
+            "id", "day", "project_id", "plugin_id", "goal", "executions", "total_nanos", "min_nanos", "max_nanos",
+            "p50_nanos", "p90_nanos", "p99_nanos", "sketch", "last_execution_id"),
+    EXECUTION_SKETCH("execution_sketch", true,
+            "id", "period", "period_start", "project_id", "plugin_id", "goal", "executions", "sketch", "rolled_up");
+
+    public final String tableName;
+    /**
+     * Whether the id is generated by the database, its sequence has to be moved past imported rows.
+     */
+    public final boolean generatedId;
+    // computed columns, like elapsed_millis_time, are left out on purpose
+    private final String[] columns;
+
+    HistoryTable(String tableName, boolean generatedId, String... columns) {
+        this.tableName = tableName;
+        this.generatedId = generatedId;
+        this.columns = columns;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public boolean isTimestamp(String column) {
+        return column.endsWith("_time") || column.equals("day") || column.equals("period_start");
+    }
+
+    /**
+     * Binary columns are exported as hex strings.
+     */
+    public boolean isBinary(String column) {
+        return column.equals("sketch");
+    }
+
+    /**
+     * Selects the rows after the given id, bind the last id that was read and the page size.
+     */
+    public String selectPage() {
+        return "select " + join(columns) + " from " + tableName + " where id > ? order by id limit ?";
+    }
+
+    public String insert() {
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            parameters.append(i == 0 ? "?" : ",?");
+        }
+        return "insert into " + tableName + " (" + join(columns) + ") values (" + parameters + ")";
+    }
+
+    public static HistoryTable named(String tableName) {
+        for (HistoryTable table : values()) {
+            if (table.tableName.equals(tableName)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown table " + tableName);
+    }
+
+    private static String join(String[] values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.regression.Cusum;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.util.ByteArrayMapper;
+import org.skife.jdbi.v2.util.LongMapper;
+import org.skife.jdbi.v2.util.StringMapper;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks for shifts in the duration of every project, plugin and goal with a {@link Cusum} and stores each one in
+ * <code>regression</code> with the scm revision of the build it started at. Only the builds that were saved since
+ * the last checkpoint are read, the state of every series is kept in <code>regression_series</code>, so a run
+ * does not depend on the size of the history. A series is keyed on the coordinates without the versions, a new
+ * version of a plugin or project continues the series of the previous one.
+ */
+public class RegressionDetector {
+    public static final String MAX_BUILDS_KEY = "plugin.execution.watcher.regression.max.builds";
+    public static final int DEFAULT_MAX_BUILDS = 1000;
+    public static final String DETECT_REGRESSIONS = "detect_regressions";
+    private static final int CHECKPOINT_ID = 1;
+
+    private final int maxBuilds;
+    private boolean moreWork;
+
+    public RegressionDetector() {
+        this(Integer.getInteger(MAX_BUILDS_KEY, DEFAULT_MAX_BUILDS));
+    }
+
+    public RegressionDetector(int maxBuilds) {
+        this.maxBuilds = maxBuilds;
+    }
+
+    /**
+     * Looks at the next builds after the checkpoint and moves the checkpoint past them.
+     *
+     * @return the number of builds that were looked at
+     */
+    public int run(Handle handle) {
+        long checkpoint = checkpointOf(handle);
+        // builds are saved when they end, the save order is not the order of their ids (start times)
+        List<Long> saveSeqs = handle.createQuery("select save_seq from build where save_seq > ? and end_time is not null " +
+                "order by save_seq limit ?")
+                .bind(0, checkpoint)
+                .bind(1, maxBuilds)
+                .map(LongMapper.FIRST)
+                .list();
+        moreWork = saveSeqs.size() == maxBuilds;
+        if (saveSeqs.isEmpty()) {
+            return 0;
+        }
+        long lastSaveSeq = saveSeqs.get(saveSeqs.size() - 1);
+
+        Map<String, Series> series = new HashMap<String, Series>();
+        ResultIterator<Map<String, Object>> rows = handle.createQuery("select pe.build_id, pr.group_id as project_group_id, " +
+                "pr.artifact_id as project_artifact_id, pl.group_id as plugin_group_id, pl.artifact_id as plugin_artifact_id, pe.goal, " +
+                "sum(coalesce(pe.duration_nanos, pe.elapsed_millis_time * 1000000)) as duration_nanos " +
+                "from plugin_execution pe inner join build b on b.id = pe.build_id " +
+                "inner join project pr on pr.id = pe.project_id inner join plugin pl on pl.id = pe.plugin_id " +
+                "where b.save_seq > ? and b.save_seq <= ? and pe.end_time is not null and b.end_time is not null " +
+                "group by b.save_seq, pe.build_id, pr.group_id, pr.artifact_id, pl.group_id, pl.artifact_id, pe.goal " +
+                "order by b.save_seq")
+                .bind(0, checkpoint)
+                .bind(1, lastSaveSeq)
+                .iterator();
+        try {
+            while (rows.hasNext()) {
+                Map<String, Object> row = rows.next();
+                Series current = seriesOf(handle, series, row);
+                long buildId = (Long) row.get("build_id");
+                Cusum.Shift shift = current.cusum.add(buildId, ((Number) row.get("duration_nanos")).doubleValue());
+                current.lastBuildId = buildId;
+                if (shift != null) {
+                    insertRegression(handle, current, shift, buildId);
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        save(handle, series);
+        handle.createStatement("merge into regression_checkpoint key(id) values (?,?,?)")
+                .bind(0, CHECKPOINT_ID)
+                .bind(1, lastSaveSeq)
+                .bind(2, new Timestamp(System.currentTimeMillis()))
+                .execute();
+        return saveSeqs.size();
+    }
+
+    /**
+     * @return whether the last run stopped before it reached the last saved build
+     */
+    public boolean hasMoreWork() {
+        return moreWork;
+    }
+
+    /**
+     * Catches up with all the saved builds and prints the shifts that were found.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.setProperty(SystemPropertyDirectoryProvider.DB_DIRECTORY_KEY, args[0]);
+        }
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        Handle handle = new DBI(databaseManager.load()).open();
+        try {
+            RegressionDetector detector = new RegressionDetector();
+            do {
+                handle.begin();
+                detector.run(handle);
+                handle.commit();
+            } while (detector.hasMoreWork());
+            List<Map<String, Object>> regressions = handle.createQuery("select direction, scm_revision, baseline_nanos, " +
+                    "shifted_nanos, goal, plugin_artifact_id as plugin, project_artifact_id as project from regression order by start_build_id")
+                    .list();
+            for (Map<String, Object> regression : regressions) {
+                System.out.println(regression.get("project") + " " + regression.get("plugin") + ":" + regression.get("goal")
+                        + " got " + regression.get("direction").toString().toLowerCase()
+                        + " at revision " + regression.get("scm_revision") + ": "
+                        + toMillis(regression.get("baseline_nanos")) + "ms -> " + toMillis(regression.get("shifted_nanos")) + "ms");
+            }
+        } finally {
+            handle.close();
+            databaseManager.unload();
+        }
+    }
+
+    private static long toMillis(Object nanos) {
+        return ((Number) nanos).longValue() / 1000000L;
+    }
+
+    private long checkpointOf(Handle handle) {
+        // for update keeps a second process from looking at the same builds until this run is committed
+        Long lastSaveSeq = handle.createQuery("select last_save_seq from regression_checkpoint where id = ? for update")
+                .bind(0, CHECKPOINT_ID)
+                .map(LongMapper.FIRST)
+                .first();
+        return lastSaveSeq == null ? 0 : lastSaveSeq;
+    }
+
+    private Series seriesOf(Handle handle, Map<String, Series> series, Map<String, Object> row) {
+        Series current = new Series(row);
+        String key = current.key();
+        if (series.containsKey(key)) {
+            current = series.get(key);
+        } else {
+            byte[] state = handle.createQuery("select state from regression_series where plugin_group_id = ? and plugin_artifact_id = ? " +
+                    "and project_group_id = ? and project_artifact_id = ? and goal = ?")
+                    .bind(0, current.pluginGroupId)
+                    .bind(1, current.pluginArtifactId)
+                    .bind(2, current.projectGroupId)
+                    .bind(3, current.projectArtifactId)
+                    .bind(4, current.goal)
+                    .map(ByteArrayMapper.FIRST)
+                    .first();
+            current.cusum = state == null ? new Cusum() : Cusum.fromBytes(state);
+            series.put(key, current);
+        }
+        return current;
+    }
+
+    private void insertRegression(Handle handle, Series series, Cusum.Shift shift, long detectedBuildId) {
+        String scmRevision = handle.createQuery("select scm_revision from build where id = ?")
+                .bind(0, shift.startBuildId)
+                .map(StringMapper.FIRST)
+                .first();
+        handle.createStatement("insert into regression (project_group_id, project_artifact_id, plugin_group_id, plugin_artifact_id, " +
+                "goal, direction, start_build_id, scm_revision, detected_build_id, baseline_nanos, shifted_nanos, detected_time) " +
+                "values (?,?,?,?,?,?,?,?,?,?,?,?)")
+                .bind(0, series.projectGroupId)
+                .bind(1, series.projectArtifactId)
+                .bind(2, series.pluginGroupId)
+                .bind(3, series.pluginArtifactId)
+                .bind(4, series.goal)
+                .bind(5, shift.direction.name())
+                .bind(6, shift.startBuildId)
+                .bind(7, scmRevision)
+                .bind(8, detectedBuildId)
+                .bind(9, shift.baselineNanos)
+                .bind(10, shift.shiftedNanos)
+                .bind(11, new Timestamp(System.currentTimeMillis()))
+                .execute();
+    }
+
+    private void save(Handle handle, Map<String, Series> series) {
+        if (series.isEmpty()) {
+            return;
+        }
+        PreparedBatch batch = handle.prepareBatch("merge into regression_series (project_group_id, project_artifact_id, " +
+                "plugin_group_id, plugin_artifact_id, goal, samples, last_build_id, state) " +
+                "key(plugin_group_id, plugin_artifact_id, project_group_id, project_artifact_id, goal) values (?,?,?,?,?,?,?,?)");
+        for (Series current : series.values()) {
+            batch.add(current.projectGroupId, current.projectArtifactId, current.pluginGroupId, current.pluginArtifactId,
+                    current.goal, current.cusum.getSamples(), current.lastBuildId, current.cusum.toBytes());
+        }
+        batch.execute();
+    }
+
+    private static class Series {
+        private final Object projectGroupId, projectArtifactId, pluginGroupId, pluginArtifactId, goal;
+        private Cusum cusum;
+        private long lastBuildId;
+
+        private Series(Map<String, Object> row) {
+            projectGroupId = row.get("project_group_id");
+            projectArtifactId = row.get("project_artifact_id");
+            pluginGroupId = row.get("plugin_group_id");
+            pluginArtifactId = row.get("plugin_artifact_id");
+            goal = row.get("goal");
+        }
+
+        private String key() {
+            return projectGroupId + ":" + projectArtifactId + ":" + pluginGroupId + ":" + pluginArtifactId + ":" + goal;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Remembers which migrations were applied to the database next to it, so a database that is already up to date
+ * does not have to go through the migrator. The bundled migrations are read from the extension jar's entries
+ * instead of scanning the classpath.
+ */
+public class SchemaFingerprint {
+    public static final String FILE_NAME = "stats.schema";
+    private static final String MIGRATIONS = "db/migration/";
+    private static final Pattern VERSION = Pattern.compile("V(\\d+)__.*");
+
+    private final File file;
+    private final String fingerprint;
+
+    public SchemaFingerprint(File databaseDirectory) {
+        this(databaseDirectory, SchemaFingerprint.class.getProtectionDomain().getCodeSource());
+    }
+
+    SchemaFingerprint(File databaseDirectory, CodeSource codeSource) {
+        this.file = new File(databaseDirectory, FILE_NAME);
+        this.fingerprint = fingerprintOf(codeSource);
+    }
+
+    public boolean isCurrent() {
+        try {
+            return fingerprint != null && file.isFile() && fingerprint.equals(FileUtils.fileRead(file).trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void save() {
+        if (fingerprint == null) {
+            return;
+        }
+        try {
+            FileUtils.fileWrite(file.getAbsolutePath(), fingerprint);
+        } catch (IOException e) {
+            // the migrator simply runs again on the next start
+            file.delete();
+        }
+    }
+
+    public void invalidate() {
+        file.delete();
+    }
+
+    private String fingerprintOf(CodeSource codeSource) {
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return null;
+        }
+        try {
+            File location = new File(codeSource.getLocation().toURI());
+            List<String> entries = location.isDirectory() ? entriesOf(location) : entriesOf(new ZipFile(location));
+            if (entries.isEmpty()) {
+                return null;
+            }
+            Collections.sort(entries);
+            CRC32 checksum = new CRC32();
+            int version = 0;
+            for (String entry : entries) {
+                checksum.update(entry.getBytes("UTF-8"));
+                Matcher matcher = VERSION.matcher(entry.substring(entry.lastIndexOf('/') + 1));
+                if (matcher.matches()) {
+                    version = Math.max(version, Integer.parseInt(matcher.group(1)));
+                }
+            }
+            return "V" + version + ":" + Long.toHexString(checksum.getValue());
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private List<String> entriesOf(ZipFile jar) throws IOException {
+        List<String> entries = new ArrayList<String>();
+        try {
+            Enumeration<? extends ZipEntry> zipEntries = jar.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                if (entry.getName().startsWith(MIGRATIONS) && !entry.isDirectory()) {
+                    entries.add(entry.getName() + "@" + Long.toHexString(entry.getCrc()));
+                }
+            }
+        } finally {
+            jar.close();
+        }
+        return entries;
+    }
+
+    private List<String> entriesOf(File classesDirectory) throws IOException {
+        List<String> entries = new ArrayList<String>();
+        addEntries(new File(classesDirectory, MIGRATIONS), MIGRATIONS, entries);
+        return entries;
+    }
+
+    private void addEntries(File directory, String path, List<String> entries) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File child : files) {
+            if (child.isDirectory()) {
+                addEntries(child, path + child.getName() + "/", entries);
+            } else {
+                CRC32 crc = new CRC32();
+                crc.update(contentOf(child));
+                entries.add(path + child.getName() + "@" + Long.toHexString(crc.getValue()));
+            }
+        }
+    }
+
+    private byte[] contentOf(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return IOUtil.toByteArray(input);
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+import co.leantechniques.maven.scm.CodeRevision;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Writes a build as a compact binary record and reads it back.
+ */
+public class BuildRecordCodec {
+    private static final int FORMAT_VERSION = 3;
+    // version 1 did not have the start and end of the projects nor their upstream projects
+    private static final int WITHOUT_PROJECT_SCHEDULE = 1;
+    // version 2 did not have the builder threads
+    private static final int WITHOUT_THREADS = 2;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    public byte[] encode(BuildInformation buildInformation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(FORMAT_VERSION);
+        writeDate(output, buildInformation.getStartTime());
+        writeDate(output, buildInformation.getEndTime());
+        output.writeInt(buildInformation.getGoals().size());
+        for (String goal : buildInformation.getGoals()) {
+            writeString(output, goal);
+        }
+        writeArtifact(output, buildInformation.getTopLevelProject());
+        writeString(output, buildInformation.getUserSpecifiedBuildData());
+        Properties systemProperties = buildInformation.getSystemProperties();
+        output.writeInt(systemProperties.size());
+        for (Map.Entry<Object, Object> property : systemProperties.entrySet()) {
+            writeString(output, (String) property.getKey());
+            writeString(output, (String) property.getValue());
+        }
+        CodeRevision codeRevision = buildInformation.getCodeRevision();
+        writeString(output, codeRevision.scm);
+        writeString(output, codeRevision.revision);
+        output.writeInt(buildInformation.getThreads());
+
+        List<Project> projects = buildInformation.getProjects();
+        output.writeInt(projects.size());
+        for (Project project : projects) {
+            writeArtifact(output, project);
+            writeOutcome(output, project.getOutcome());
+            writeDate(output, project.getStartTime());
+            writeDate(output, project.getEndTime());
+            List<Project> upstreamProjects = project.getUpstreamProjects();
+            output.writeInt(upstreamProjects.size());
+            for (Project upstream : upstreamProjects) {
+                output.writeInt(indexOf(projects, upstream));
+            }
+            List<PluginExecution> executions = project.getPluginExecutions();
+            output.writeInt(executions.size());
+            for (PluginExecution execution : executions) {
+                writeArtifact(output, execution);
+                writeString(output, execution.goal);
+                writeString(output, execution.executionId);
+                writeDate(output, execution.startTime);
+                writeDate(output, execution.endTime);
+                Long durationNanos = execution.getDurationNanos();
+                output.writeLong(durationNanos == null ? NO_VALUE : durationNanos);
+                writeOutcome(output, execution.outcome);
+                writeString(output, execution.threadName);
+                output.writeLong(execution.threadId);
+            }
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    public BuildInformation decode(byte[] record) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        int version = input.readUnsignedByte();
+        if (version != FORMAT_VERSION && version != WITHOUT_THREADS && version != WITHOUT_PROJECT_SCHEDULE) {
+            throw new IOException("Unsupported journal record version " + version);
+        }
+        Date startTime = readDate(input);
+        Date endTime = readDate(input);
+        int numberOfGoals = input.readInt();
+        List<String> goals = new ArrayList<String>(numberOfGoals);
+        for (int i = 0; i < numberOfGoals; i++) {
+            goals.add(readString(input));
+        }
+        Artifact topLevelProject = readArtifact(input);
+        String userSpecifiedBuildData = readString(input);
+        Properties systemProperties = new Properties();
+        int numberOfProperties = input.readInt();
+        for (int i = 0; i < numberOfProperties; i++) {
+            systemProperties.setProperty(readString(input), readString(input));
+        }
+        CodeRevision codeRevision = new CodeRevision(readString(input), readString(input));
+        int threads = version >= FORMAT_VERSION ? input.readInt() : 1;
+
+        int numberOfProjects = input.readInt();
+        List<Project> projects = new ArrayList<Project>(numberOfProjects);
+        List<int[]> upstreamIndexes = new ArrayList<int[]>(numberOfProjects);
+        for (int i = 0; i < numberOfProjects; i++) {
+            Artifact coordinates = readArtifact(input);
+            Project project = new Project(coordinates.groupId, coordinates.artifactId, coordinates.version);
+            Outcome projectOutcome = readOutcome(input);
+            if (version == WITHOUT_PROJECT_SCHEDULE) {
+                if (projectOutcome != null) {
+                    project.finish(projectOutcome, null);
+                }
+                upstreamIndexes.add(new int[0]);
+            } else {
+                project.start(readDate(input));
+                Date projectEnd = readDate(input);
+                if (projectOutcome != null || projectEnd != null) {
+                    project.finish(projectOutcome, projectEnd);
+                }
+                int[] upstream = new int[input.readInt()];
+                for (int j = 0; j < upstream.length; j++) {
+                    upstream[j] = input.readInt();
+                }
+                upstreamIndexes.add(upstream);
+            }
+            int numberOfExecutions = input.readInt();
+            for (int j = 0; j < numberOfExecutions; j++) {
+                Artifact plugin = readArtifact(input);
+                String goal = readString(input);
+                String executionId = readString(input);
+                Date executionStart = readDate(input);
+                Date executionEnd = readDate(input);
+                long durationNanos = input.readLong();
+                Outcome outcome = readOutcome(input);
+                String threadName = null;
+                long threadId = 0L;
+                if (version >= FORMAT_VERSION) {
+                    threadName = readString(input);
+                    threadId = input.readLong();
+                }
+                project.addPluginExecution(new PluginExecution(plugin, goal, executionId, executionStart, executionEnd,
+                        durationNanos == NO_VALUE ? null : durationNanos, outcome, threadName, threadId));
+            }
+            projects.add(project);
+        }
+        for (int i = 0; i < numberOfProjects; i++) {
+            for (int upstream : upstreamIndexes.get(i)) {
+                projects.get(i).addUpstreamProject(projects.get(upstream));
+            }
+        }
+        return new BuildInformation(startTime, endTime, goals, topLevelProject, systemProperties,
+                userSpecifiedBuildData, codeRevision, projects, threads);
+    }
+
+    private int indexOf(List<Project> projects, Project project) {
+        for (int i = 0; i < projects.size(); i++) {
+            if (projects.get(i) == project) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(project + " is not part of the build");
+    }
+
+    private void writeArtifact(DataOutputStream output, Artifact artifact) throws IOException {
+        output.writeBoolean(artifact != null);
+        if (artifact != null) {
+            writeString(output, artifact.groupId);
+            writeString(output, artifact.artifactId);
+            writeString(output, artifact.version);
+        }
+    }
+
+    private Artifact readArtifact(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        return new Artifact(readString(input), readString(input), readString(input));
+    }
+
+    private void writeOutcome(DataOutputStream output, Outcome outcome) throws IOException {
+        output.writeByte(outcome == null ? -1 : outcome.ordinal());
+    }
+
+    private Outcome readOutcome(DataInputStream input) throws IOException {
+        byte ordinal = input.readByte();
+        return ordinal < 0 ? null : Outcome.values()[ordinal];
+    }
+
+    private void writeDate(DataOutputStream output, Date date) throws IOException {
+        output.writeLong(date == null ? NO_VALUE : date.getTime());
+    }
+
+    private Date readDate(DataInputStream input) throws IOException {
+        long time = input.readLong();
+        return time == NO_VALUE ? null : new Date(time);
+    }
+
+    private void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
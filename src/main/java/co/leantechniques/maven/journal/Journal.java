@@ -0,0 +1,204 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only segmented journal of length-prefixed records.
+ * <p/>
+ * Every process appends to its own segment which it keeps locked while it is open, so writers never
+ * wait on each other. A segment is rolled over once it reaches the segment size, segments that are
+ * not locked anymore are sealed and can be read.
+ * <p/>
+ * A record is stored as the length of the payload, the CRC32 of the payload and the payload itself.
+ * A record that was torn by a crash ends the segment.
+ */
+public class Journal {
+    public static final String SEGMENT_EXTENSION = ".journal";
+    private static final int HEADER_SIZE = 8;
+    // closing a channel drops every lock this process holds on the file, so never probe our own segments
+    private static final Set<File> OPEN_SEGMENTS = Collections.synchronizedSet(new HashSet<File>());
+
+    private final File directory;
+    private final long segmentSize;
+    private File segment;
+    private FileChannel channel;
+    private FileLock lock;
+    private long segmentLength;
+
+    public Journal(File directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public synchronized void append(byte[] payload) throws IOException {
+        if (channel != null && segmentLength > 0 && segmentLength + HEADER_SIZE + payload.length > segmentSize) {
+            close();
+        }
+        if (channel == null) {
+            openSegment();
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length);
+        record.putInt(checksumOf(payload));
+        record.put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            segmentLength += channel.write(record);
+        }
+    }
+
+    /**
+     * Flushes and seals the current segment, the next append starts a new one.
+     */
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            lock.release();
+        } finally {
+            channel.close();
+            OPEN_SEGMENTS.remove(segment);
+            channel = null;
+            lock = null;
+            segment = null;
+        }
+    }
+
+    /**
+     * @return the segments that are not written to anymore, oldest first
+     */
+    public List<File> sealedSegments() {
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SEGMENT_EXTENSION);
+            }
+        });
+        List<File> sealed = new ArrayList<File>();
+        if (files == null) {
+            return sealed;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            // an empty segment may have just been created by a writer that did not lock it yet
+            if (file.length() > 0 && !OPEN_SEGMENTS.contains(file) && !isLocked(file)) {
+                sealed.add(file);
+            }
+        }
+        return sealed;
+    }
+
+    public List<byte[]> read(File segment) throws IOException {
+        List<byte[]> records = new ArrayList<byte[]>();
+        FileInputStream input = new FileInputStream(segment);
+        try {
+            FileChannel readChannel = input.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) readChannel.size());
+            while (buffer.hasRemaining()) {
+                if (readChannel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                if (checksumOf(payload) != checksum) {
+                    break;
+                }
+                records.add(payload);
+            }
+        } finally {
+            input.close();
+        }
+        return records;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized File getCurrentSegment() {
+        return segment;
+    }
+
+    private void openSegment() throws IOException {
+        directory.mkdirs();
+        File file;
+        do {
+            file = new File(directory, System.currentTimeMillis() + "-" + Long.toHexString(System.nanoTime()) + SEGMENT_EXTENSION);
+        } while (!file.createNewFile());
+        FileChannel newChannel = new FileOutputStream(file, true).getChannel();
+        try {
+            lock = newChannel.lock();
+        } catch (IOException e) {
+            newChannel.close();
+            throw e;
+        }
+        OPEN_SEGMENTS.add(file);
+        channel = newChannel;
+        segment = file;
+        segmentLength = 0;
+    }
+
+    private boolean isLocked(File file) {
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                FileLock probe = randomAccessFile.getChannel().tryLock();
+                if (probe == null) {
+                    return true;
+                }
+                probe.release();
+                return false;
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static int checksumOf(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.BuildInformationRepository;
+import co.leantechniques.maven.NamedBuildInformationRepository;
+import co.leantechniques.maven.h2.DatabaseDirectoryProvider;
+import co.leantechniques.maven.h2.SystemPropertyDirectoryProvider;
+import org.apache.maven.eventspy.EventSpy;
+import org.openide.util.lookup.ServiceProvider;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Appends each build to a local journal instead of the database, concurrent builds never wait on a
+ * database lock. The journal is merged into the database with the {@link JournalImporter}.
+ * <p/>
+ * Selected with <code>plugin.execution.watcher.repository=journal</code>.
+ */
+@ServiceProvider(service = BuildInformationRepository.class)
+public class JournalBuildInformationRepository implements NamedBuildInformationRepository {
+    public static final String NAME = "journal";
+    public static final String SEGMENT_SIZE_KEY = "plugin.execution.watcher.journal.segment.size";
+    public static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private final DatabaseDirectoryProvider directoryProvider;
+    private final BuildRecordCodec codec = new BuildRecordCodec();
+    private Journal journal;
+
+    public JournalBuildInformationRepository() {
+        this(new SystemPropertyDirectoryProvider());
+    }
+
+    public JournalBuildInformationRepository(DatabaseDirectoryProvider directoryProvider) {
+        this.directoryProvider = directoryProvider;
+    }
+
+    public static File journalDirectoryOf(File directory) {
+        return new File(directory, NAME);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized void initialize(EventSpy.Context context) {
+        if (journal == null) {
+            journal = new Journal(journalDirectoryOf(directoryProvider.provide()), Long.getLong(SEGMENT_SIZE_KEY, DEFAULT_SEGMENT_SIZE));
+        }
+    }
+
+    @Override
+    public void save(BuildInformation buildInformation) {
+        initialize(null);
+        try {
+            journal.append(codec.encode(buildInformation));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to append the build to the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void cleanUp() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("[WARNING] Failed to close the journal: " + e.getMessage());
+        }
+    }
+
+    public synchronized Journal getJournal() {
+        return journal;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.h2.H2BuildInformationRepository;
+import co.leantechniques.maven.h2.SystemPropertyDirectoryProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges the sealed journal segments into the H2 database, one transaction per segment. A segment
+ * is deleted once it has been imported.
+ * <p/>
+ * Run it with <code>java -cp ... co.leantechniques.maven.journal.JournalImporter [directory]</code>,
+ * the directory defaults to the directory of the database.
+ */
+public class JournalImporter {
+    private final Journal journal;
+    private final H2BuildInformationRepository repository;
+    private final BuildRecordCodec codec = new BuildRecordCodec();
+
+    public JournalImporter(Journal journal, H2BuildInformationRepository repository) {
+        this.journal = journal;
+        this.repository = repository;
+    }
+
+    /**
+     * @return the number of builds that were added to the database
+     */
+    public int importSegments() throws IOException {
+        int imported = 0;
+        for (File segment : journal.sealedSegments()) {
+            List<BuildInformation> builds = new ArrayList<BuildInformation>();
+            for (byte[] record : journal.read(segment)) {
+                builds.add(codec.decode(record));
+            }
+            imported += repository.saveAll(builds);
+            if (!segment.delete()) {
+                System.out.println("[WARNING] Failed to delete the imported journal segment " + segment);
+            }
+        }
+        return imported;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            System.setProperty(SystemPropertyDirectoryProvider.DB_DIRECTORY_KEY, args[0]);
+        }
+        File directory = new SystemPropertyDirectoryProvider().provide();
+        Journal journal = new Journal(JournalBuildInformationRepository.journalDirectoryOf(directory), JournalBuildInformationRepository.DEFAULT_SEGMENT_SIZE);
+        H2BuildInformationRepository repository = new H2BuildInformationRepository();
+        repository.initialize(null);
+        try {
+            int imported = new JournalImporter(journal, repository).importSegments();
+            System.out.println("Imported " + imported + " build(s) from " + journal.getDirectory());
+        } finally {
+            repository.cleanUp();
+        }
+    }
+}
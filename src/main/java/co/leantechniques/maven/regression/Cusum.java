@@ -0,0 +1,188 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.regression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Two sided tabular CUSUM over the durations of one series. The first {@link #WARM_UP} values make up the
+ * baseline, after that every value adds its distance from the baseline (less an allowance) to an upper and a lower
+ * sum. A sum that passes the threshold is a shift, which started with the value that took the sum above zero.
+ * After a shift the baseline is learned again from the values that follow.
+ */
+public class Cusum {
+    public static final int WARM_UP = 10;
+    /**
+     * Deviations smaller than this many standard deviations do not add up.
+     */
+    public static final double ALLOWANCE = 0.5;
+    public static final double THRESHOLD = 5;
+    /**
+     * The standard deviation is at least this fraction of the mean, so very stable series do not alarm on noise.
+     */
+    public static final double MIN_RELATIVE_DEVIATION = 0.05;
+    private static final int FORMAT_VERSION = 1;
+
+    private long samples;
+    private double mean;
+    private double squaredDeviations;
+    private final Side slower = new Side(Direction.SLOWER);
+    private final Side faster = new Side(Direction.FASTER);
+
+    /**
+     * @return the shift this value completed or null
+     */
+    public Shift add(long buildId, double value) {
+        if (samples < WARM_UP) {
+            samples++;
+            double delta = value - mean;
+            mean += delta / samples;
+            squaredDeviations += delta * (value - mean);
+            return null;
+        }
+        double deviation = Math.max(Math.sqrt(squaredDeviations / (samples - 1)), mean * MIN_RELATIVE_DEVIATION);
+        Shift shift = slower.add(buildId, value, value - mean, deviation);
+        if (shift == null) {
+            shift = faster.add(buildId, value, mean - value, deviation);
+        }
+        if (shift != null) {
+            reset();
+        }
+        return shift;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(FORMAT_VERSION);
+            output.writeLong(samples);
+            output.writeDouble(mean);
+            output.writeDouble(squaredDeviations);
+            slower.write(output);
+            faster.write(output);
+            output.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Cusum fromBytes(byte[] serialized) {
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(serialized));
+            int version = input.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported state version " + version);
+            }
+            Cusum cusum = new Cusum();
+            cusum.samples = input.readLong();
+            cusum.mean = input.readDouble();
+            cusum.squaredDeviations = input.readDouble();
+            cusum.slower.read(input);
+            cusum.faster.read(input);
+            return cusum;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The state is truncated", e);
+        }
+    }
+
+    private void reset() {
+        samples = 0;
+        mean = 0;
+        squaredDeviations = 0;
+        slower.reset();
+        faster.reset();
+    }
+
+    public enum Direction {
+        SLOWER, FASTER
+    }
+
+    public static class Shift {
+        public final Direction direction;
+        public final long startBuildId;
+        public final long baselineNanos;
+        public final long shiftedNanos;
+
+        public Shift(Direction direction, long startBuildId, long baselineNanos, long shiftedNanos) {
+            this.direction = direction;
+            this.startBuildId = startBuildId;
+            this.baselineNanos = baselineNanos;
+            this.shiftedNanos = shiftedNanos;
+        }
+    }
+
+    private class Side {
+        private final Direction direction;
+        private double sum;
+        private long startBuildId;
+        private double shiftedTotal;
+        private long shiftedSamples;
+
+        private Side(Direction direction) {
+            this.direction = direction;
+        }
+
+        private Shift add(long buildId, double value, double distance, double deviation) {
+            sum = Math.max(0, sum + distance - ALLOWANCE * deviation);
+            if (sum == 0) {
+                reset();
+                return null;
+            }
+            if (shiftedSamples == 0) {
+                startBuildId = buildId;
+            }
+            shiftedTotal += value;
+            shiftedSamples++;
+            if (sum > THRESHOLD * deviation) {
+                return new Shift(direction, startBuildId, Math.round(mean), Math.round(shiftedTotal / shiftedSamples));
+            }
+            return null;
+        }
+
+        private void reset() {
+            sum = 0;
+            startBuildId = 0;
+            shiftedTotal = 0;
+            shiftedSamples = 0;
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            output.writeDouble(sum);
+            output.writeLong(startBuildId);
+            output.writeDouble(shiftedTotal);
+            output.writeLong(shiftedSamples);
+        }
+
+        private void read(DataInputStream input) throws IOException {
+            sum = input.readDouble();
+            startBuildId = input.readLong();
+            shiftedTotal = input.readDouble();
+            shiftedSamples = input.readLong();
+        }
+    }
+}
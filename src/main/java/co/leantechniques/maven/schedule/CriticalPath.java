@@ -0,0 +1,237 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.schedule;
+
+import co.leantechniques.maven.Project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Critical path of a reactor build (CPM). Every project takes as long as it took in the build and can only start
+ * once the reactor projects it depends on are done, so with enough threads the build cannot be faster than the
+ * longest chain of dependent projects. A project with slack could take that much longer without delaying the
+ * build, speeding up a project on the critical path shortens the build until another chain becomes the longest.
+ */
+public class CriticalPath {
+    private final List<Module> modules = new ArrayList<Module>();
+    private final Map<Project, Module> modulesByProject = new IdentityHashMap<Project, Module>();
+    private final List<Module> path = new ArrayList<Module>();
+    private long makespanMillis;
+
+    private CriticalPath(List<Project> projects) {
+        for (Project project : projects) {
+            if (!modulesByProject.containsKey(project)) {
+                Module module = new Module(project);
+                modulesByProject.put(project, module);
+                modules.add(module);
+            }
+        }
+        for (Module module : modules) {
+            for (Project upstream : module.project.getUpstreamProjects()) {
+                Module upstreamModule = modulesByProject.get(upstream);
+                if (upstreamModule != null) {
+                    module.upstream.add(upstreamModule);
+                    upstreamModule.downstream.add(module);
+                }
+            }
+        }
+        List<Module> sorted = topologicalOrder();
+        makespanMillis = schedule(sorted, null);
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            Module module = sorted.get(i);
+            long latestFinish = makespanMillis;
+            for (Module downstream : module.downstream) {
+                latestFinish = Math.min(latestFinish, downstream.latestStartMillis);
+            }
+            module.latestStartMillis = latestFinish - module.durationMillis;
+        }
+        for (Module module : sorted) {
+            if (module.isCritical()) {
+                module.savingMillis = makespanMillis - schedule(sorted, module);
+            }
+        }
+        tracePath();
+    }
+
+    public static CriticalPath of(List<Project> projects) {
+        return new CriticalPath(projects);
+    }
+
+    /**
+     * @return how long the build takes when every project starts as soon as its upstream projects are done
+     */
+    public long getMakespanMillis() {
+        return makespanMillis;
+    }
+
+    /**
+     * @return the projects on the longest chain, the first one to run first
+     */
+    public List<Module> getPath() {
+        return Collections.unmodifiableList(path);
+    }
+
+    public List<Module> getModules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    public Module moduleOf(Project project) {
+        return modulesByProject.get(project);
+    }
+
+    private List<Module> topologicalOrder() {
+        List<Module> sorted = new ArrayList<Module>(modules.size());
+        Map<Module, Boolean> visited = new IdentityHashMap<Module, Boolean>();
+        for (Module module : modules) {
+            visit(module, visited, sorted);
+        }
+        return sorted;
+    }
+
+    private void visit(Module module, Map<Module, Boolean> visited, List<Module> sorted) {
+        if (visited.containsKey(module)) {
+            return;
+        }
+        // the reactor does not allow cycles, a module that is being visited is never reached again
+        visited.put(module, Boolean.FALSE);
+        for (Module upstream : module.upstream) {
+            visit(upstream, visited, sorted);
+        }
+        visited.put(module, Boolean.TRUE);
+        sorted.add(module);
+    }
+
+    /**
+     * Forward pass, the module that is left out takes no time.
+     *
+     * @return the makespan
+     */
+    private long schedule(List<Module> sorted, Module leftOut) {
+        long makespan = 0;
+        for (Module module : sorted) {
+            long earliestStart = 0;
+            for (Module upstream : module.upstream) {
+                earliestStart = Math.max(earliestStart, upstream.earliestFinish);
+            }
+            module.earliestFinish = earliestStart + (module == leftOut ? 0 : module.durationMillis);
+            if (leftOut == null) {
+                module.earliestStartMillis = earliestStart;
+            }
+            makespan = Math.max(makespan, module.earliestFinish);
+        }
+        if (leftOut != null) {
+            // put the finish times of the complete schedule back for the next pass
+            for (Module module : sorted) {
+                module.earliestFinish = module.earliestStartMillis + module.durationMillis;
+            }
+        }
+        return makespan;
+    }
+
+    private void tracePath() {
+        if (makespanMillis == 0) {
+            return;
+        }
+        Module current = null;
+        for (Module module : modules) {
+            if (module.getSlackMillis() == 0
+                    && module.earliestStartMillis + module.durationMillis == makespanMillis
+                    && (current == null || module.durationMillis > current.durationMillis)) {
+                current = module;
+            }
+        }
+        while (current != null) {
+            path.add(0, current);
+            Module next = null;
+            for (Module upstream : current.upstream) {
+                if (upstream.earliestStartMillis + upstream.durationMillis == current.earliestStartMillis
+                        && upstream.getSlackMillis() == 0) {
+                    next = upstream;
+                    break;
+                }
+            }
+            current = next;
+        }
+        for (int i = 0; i < path.size(); i++) {
+            path.get(i).position = i + 1;
+        }
+    }
+
+    public static class Module {
+        private final Project project;
+        private final long durationMillis;
+        private final List<Module> upstream = new ArrayList<Module>();
+        private final List<Module> downstream = new ArrayList<Module>();
+        private long earliestStartMillis;
+        private long earliestFinish;
+        private long latestStartMillis;
+        private long savingMillis;
+        private int position;
+
+        private Module(Project project) {
+            this.project = project;
+            Date startTime = project.getStartTime();
+            Date endTime = project.getEndTime();
+            this.durationMillis = startTime == null || endTime == null ? 0 : Math.max(0, endTime.getTime() - startTime.getTime());
+        }
+
+        public Project getProject() {
+            return project;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return the earliest the project can start after the build started
+         */
+        public long getEarliestStartMillis() {
+            return earliestStartMillis;
+        }
+
+        /**
+         * @return how much longer the project could take without delaying the build
+         */
+        public long getSlackMillis() {
+            return latestStartMillis - earliestStartMillis;
+        }
+
+        /**
+         * @return whether the project is on a longest chain, a project that took no time does not count
+         */
+        public boolean isCritical() {
+            return getSlackMillis() == 0 && durationMillis > 0;
+        }
+
+        /**
+         * @return how much shorter the build would be if the project took no time at all
+         */
+        public long getSavingMillis() {
+            return savingMillis;
+        }
+
+        /**
+         * @return the position of the project on the critical path starting at 1, 0 when it is not on it
+         */
+        public int getPosition() {
+            return position;
+        }
+    }
+}
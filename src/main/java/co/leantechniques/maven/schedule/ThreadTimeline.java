@@ -0,0 +1,205 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.schedule;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How busy the builder threads of a build were. A thread is busy while it runs a mojo, executions that overlap on
+ * the same thread (a mojo that forks a lifecycle) are only counted once. The parallel efficiency is the busy time
+ * of all threads divided by the threads times the wall time of the build.
+ */
+public class ThreadTimeline {
+    private final List<BuilderThread> threads = new ArrayList<BuilderThread>();
+    private final int threadCount;
+    private long wallMillis;
+    private long busyMillis;
+
+    private ThreadTimeline(BuildInformation buildInformation) {
+        Map<String, BuilderThread> threadsByKey = new LinkedHashMap<String, BuilderThread>();
+        long buildStart = timeOf(buildInformation.getStartTime(), Long.MAX_VALUE);
+        long buildEnd = timeOf(buildInformation.getEndTime(), Long.MIN_VALUE);
+        long firstStart = Long.MAX_VALUE;
+        long lastEnd = Long.MIN_VALUE;
+        for (Project project : buildInformation.getProjects()) {
+            for (PluginExecution execution : project.getPluginExecutions()) {
+                if (execution.threadName == null || execution.startTime == null || execution.endTime == null) {
+                    continue;
+                }
+                String key = execution.threadId + ":" + execution.threadName;
+                BuilderThread thread = threadsByKey.get(key);
+                if (thread == null) {
+                    thread = new BuilderThread(execution.threadId, execution.threadName);
+                    threadsByKey.put(key, thread);
+                }
+                thread.add(execution.startTime.getTime(), execution.endTime.getTime());
+                firstStart = Math.min(firstStart, execution.startTime.getTime());
+                lastEnd = Math.max(lastEnd, execution.endTime.getTime());
+            }
+        }
+        threads.addAll(threadsByKey.values());
+        threadCount = Math.max(buildInformation.getThreads(), threads.size());
+        if (threads.isEmpty()) {
+            return;
+        }
+        long start = Math.min(buildStart, firstStart);
+        long end = Math.max(buildEnd, lastEnd);
+        wallMillis = Math.max(0, end - start);
+        for (BuilderThread thread : threads) {
+            thread.mergeIntervals();
+            thread.idleMillis = Math.max(0, wallMillis - thread.busyMillis);
+            busyMillis += thread.busyMillis;
+        }
+    }
+
+    public static ThreadTimeline of(BuildInformation buildInformation) {
+        return new ThreadTimeline(buildInformation);
+    }
+
+    /**
+     * @return the threads that ran at least one mojo
+     */
+    public List<BuilderThread> getThreads() {
+        return Collections.unmodifiableList(threads);
+    }
+
+    /**
+     * @return the threads Maven was asked for, or the threads that ran mojos when there were more
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public long getBusyMillis() {
+        return busyMillis;
+    }
+
+    /**
+     * @return between 0 and 1, 1 when every thread was busy for the whole build
+     */
+    public double getParallelEfficiency() {
+        if (wallMillis == 0) {
+            return 0;
+        }
+        return Math.min(1, (double) busyMillis / ((double) threadCount * wallMillis));
+    }
+
+    private long timeOf(Date date, long unknown) {
+        return date == null ? unknown : date.getTime();
+    }
+
+    public static class BuilderThread {
+        private final long threadId;
+        private final String threadName;
+        private final List<long[]> intervals = new ArrayList<long[]>();
+        private int executions;
+        private long busyMillis;
+        private long idleMillis;
+        private long longestIdleMillis;
+
+        private BuilderThread(long threadId, String threadName) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+
+        private void add(long start, long end) {
+            intervals.add(new long[]{start, Math.max(start, end)});
+            executions++;
+        }
+
+        private void mergeIntervals() {
+            Collections.sort(intervals, new Comparator<long[]>() {
+                public int compare(long[] first, long[] second) {
+                    return first[0] < second[0] ? -1 : (first[0] == second[0] ? 0 : 1);
+                }
+            });
+            List<long[]> merged = new ArrayList<long[]>();
+            for (long[] interval : intervals) {
+                long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && interval[0] <= last[1]) {
+                    last[1] = Math.max(last[1], interval[1]);
+                } else {
+                    if (last != null) {
+                        longestIdleMillis = Math.max(longestIdleMillis, interval[0] - last[1]);
+                    }
+                    merged.add(new long[]{interval[0], interval[1]});
+                }
+            }
+            intervals.clear();
+            intervals.addAll(merged);
+            for (long[] interval : intervals) {
+                busyMillis += interval[1] - interval[0];
+            }
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public int getExecutions() {
+            return executions;
+        }
+
+        /**
+         * @return the start and end of every stretch the thread was running mojos, in order
+         */
+        public List<long[]> getBusyIntervals() {
+            return Collections.unmodifiableList(intervals);
+        }
+
+        public long getFirstStartMillis() {
+            return intervals.isEmpty() ? 0 : intervals.get(0)[0];
+        }
+
+        public long getLastEndMillis() {
+            return intervals.isEmpty() ? 0 : intervals.get(intervals.size() - 1)[1];
+        }
+
+        public long getBusyMillis() {
+            return busyMillis;
+        }
+
+        /**
+         * @return the part of the build the thread was not running a mojo
+         */
+        public long getIdleMillis() {
+            return idleMillis;
+        }
+
+        /**
+         * @return the longest wait between two mojos of the thread
+         */
+        public long getLongestIdleMillis() {
+            return longestIdleMillis;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Determines the code revision on a background thread, so a slow or hung scm tool does not hold up the build.
+ */
+public class BackgroundCodeRevisionResolver {
+    public static final String TIMEOUT_KEY = "plugin.execution.watcher.scm.timeout";
+    public static final long DEFAULT_TIMEOUT = 5000L;
+
+    private final CodeRevisionProvider codeRevisionProvider;
+    private final long timeoutMillis;
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public BackgroundCodeRevisionResolver(CodeRevisionProvider codeRevisionProvider) {
+        this(codeRevisionProvider, Long.getLong(TIMEOUT_KEY, DEFAULT_TIMEOUT));
+    }
+
+    public BackgroundCodeRevisionResolver(CodeRevisionProvider codeRevisionProvider, long timeoutMillis) {
+        this.codeRevisionProvider = codeRevisionProvider;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public PendingCodeRevision resolve(final File directory) {
+        FutureTask<CodeRevision> task = new FutureTask<CodeRevision>(new Callable<CodeRevision>() {
+            public CodeRevision call() throws Exception {
+                return codeRevisionProvider.determineRevisionOf(directory);
+            }
+        });
+        Thread thread = new Thread(task, "plugin-execution-watcher-scm");
+        thread.setDaemon(true);
+        thread.start();
+        return new PendingCodeRevision(task, System.currentTimeMillis() + timeoutMillis, timeouts);
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+}
@@ -19,6 +19,7 @@ import org.apache.commons.exec.ExecuteStreamHandler;
 import org.apache.commons.exec.ExecuteWatchdog;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -44,6 +45,11 @@ public class Cmd {
         return new String(captureOutputHandler.output.toByteArray());
     }
 
+    public Cmd in(File directory) {
+        executor.setWorkingDirectory(directory);
+        return this;
+    }
+
     public Cmd arg(String arg) {
         cmd.addArgument(arg);
         return this;
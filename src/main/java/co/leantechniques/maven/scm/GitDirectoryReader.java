@@ -0,0 +1,156 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the commit HEAD points at by reading the files in the git directory, so no git process has to be forked.
+ * Understands loose refs, packed-refs, detached HEADs and linked worktrees.
+ */
+public class GitDirectoryReader {
+    private static final String GIT_DIR_PREFIX = "gitdir:";
+    private static final String SYMBOLIC_REF_PREFIX = "ref:";
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-f]{40}([0-9a-f]{24})?");
+    private static final int MAX_SYMBOLIC_REF_DEPTH = 5;
+
+    /**
+     * @return the commit hash or null when the repository layout is not understood
+     */
+    public String readHead(File directory) {
+        try {
+            File gitDir = gitDirOf(directory);
+            if (gitDir == null || new File(gitDir, "reftable").exists()) {
+                return null;
+            }
+            return resolve(gitDir, commonDirOf(gitDir), "HEAD", 0);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the latest modification time of the files HEAD is resolved from or -1 when the layout is not understood
+     */
+    public long lastModifiedOf(File directory) {
+        try {
+            File gitDir = gitDirOf(directory);
+            if (gitDir == null) {
+                return -1;
+            }
+            File commonDir = commonDirOf(gitDir);
+            File head = new File(gitDir, "HEAD");
+            long lastModified = Math.max(head.lastModified(), new File(commonDir, "packed-refs").lastModified());
+            String value = head.isFile() ? read(head) : "";
+            if (value.startsWith(SYMBOLIC_REF_PREFIX)) {
+                String ref = value.substring(SYMBOLIC_REF_PREFIX.length()).trim();
+                lastModified = Math.max(lastModified, Math.max(new File(gitDir, ref).lastModified(), new File(commonDir, ref).lastModified()));
+            }
+            return lastModified;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private File gitDirOf(File directory) throws IOException {
+        File dotGit = new File(directory, ".git");
+        if (dotGit.isDirectory()) {
+            return dotGit;
+        }
+        if (dotGit.isFile()) {
+            // worktrees and submodules point to the real git directory
+            String content = read(dotGit);
+            if (content.startsWith(GIT_DIR_PREFIX)) {
+                return relativeTo(directory, content.substring(GIT_DIR_PREFIX.length()).trim());
+            }
+        }
+        return null;
+    }
+
+    private File commonDirOf(File gitDir) throws IOException {
+        File commonDir = new File(gitDir, "commondir");
+        if (commonDir.isFile()) {
+            return relativeTo(gitDir, read(commonDir));
+        }
+        return gitDir;
+    }
+
+    private String resolve(File gitDir, File commonDir, String ref, int depth) throws IOException {
+        if (depth > MAX_SYMBOLIC_REF_DEPTH) {
+            return null;
+        }
+        String value = readLooseRef(gitDir, commonDir, ref);
+        if (value == null) {
+            value = readPackedRef(commonDir, ref);
+        }
+        if (value == null) {
+            return null;
+        }
+        if (value.startsWith(SYMBOLIC_REF_PREFIX)) {
+            return resolve(gitDir, commonDir, value.substring(SYMBOLIC_REF_PREFIX.length()).trim(), depth + 1);
+        }
+        return OBJECT_ID.matcher(value).matches() ? value : null;
+    }
+
+    private String readLooseRef(File gitDir, File commonDir, String ref) throws IOException {
+        // HEAD and the other per worktree refs live in the git dir, branches and tags in the common dir
+        File refFile = new File(gitDir, ref);
+        if (!refFile.isFile()) {
+            refFile = new File(commonDir, ref);
+        }
+        return refFile.isFile() ? read(refFile) : null;
+    }
+
+    private String readPackedRef(File commonDir, String ref) throws IOException {
+        File packedRefs = new File(commonDir, "packed-refs");
+        if (!packedRefs.isFile()) {
+            return null;
+        }
+        BufferedReader reader = new BufferedReader(new FileReader(packedRefs));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // skip the header and the peeled values of annotated tags
+                if (line.startsWith("#") || line.startsWith("^")) {
+                    continue;
+                }
+                int separator = line.indexOf(' ');
+                if (separator > 0 && line.substring(separator + 1).equals(ref)) {
+                    return line.substring(0, separator);
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private File relativeTo(File directory, String path) throws IOException {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(directory, path);
+        }
+        return file.getCanonicalFile();
+    }
+
+    private String read(File file) throws IOException {
+        return FileUtils.fileRead(file).trim();
+    }
+}
@@ -18,16 +18,27 @@ import org.openide.util.lookup.ServiceProvider;
 import java.io.File;
 
 @ServiceProvider(service = ScmRevisionQuery.class)
-public class GitRevisionQuery implements ScmRevisionQuery {
+public class GitRevisionQuery implements StampedScmRevisionQuery {
+    private GitDirectoryReader reader = new GitDirectoryReader();
+
     @Override
     public boolean supports(File directory) {
         return new File(directory, ".git").exists();
     }
 
+    @Override
+    public long stampOf(File root) {
+        long lastModified = reader.lastModifiedOf(root);
+        return lastModified > 0 ? lastModified : UNKNOWN_STAMP;
+    }
+
     @Override
     public CodeRevision queryRevision(File directory) {
-        Cmd cmd = new Cmd("git").arg("log").arg("-1").arg("--pretty=oneline");
-        String hash = cmd.execute().split("\\s")[0];
+        String hash = reader.readHead(directory);
+        if (hash == null) {
+            Cmd cmd = new Cmd("git").in(directory).arg("log").arg("-1").arg("--pretty=oneline");
+            hash = cmd.execute().split("\\s")[0];
+        }
         return new CodeRevision("git", hash);
     }
 }
@@ -27,7 +27,7 @@ public class MercurialRevisionQuery implements ScmRevisionQuery {
     @Override
     public CodeRevision queryRevision(File directory) {
         return new CodeRevision(
-                "hg", new Cmd("hg").arg("id").arg("-i").execute()
+                "hg", new Cmd("hg").in(directory).arg("id").arg("-i").execute()
         );
     }
 }
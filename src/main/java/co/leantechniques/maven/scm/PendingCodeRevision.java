@@ -0,0 +1,73 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A code revision that might still be being determined. Waits at most until its deadline and settles
+ * on {@link #UNKNOWN} when the scm tool did not answer in time.
+ */
+public class PendingCodeRevision {
+    public static final CodeRevision UNKNOWN = new CodeRevision(null, "unknown");
+
+    private final Future<CodeRevision> future;
+    private final long deadline;
+    private final AtomicLong timeouts;
+    private CodeRevision codeRevision;
+
+    PendingCodeRevision(Future<CodeRevision> future, long deadline, AtomicLong timeouts) {
+        this.future = future;
+        this.deadline = deadline;
+        this.timeouts = timeouts;
+    }
+
+    private PendingCodeRevision(CodeRevision codeRevision) {
+        this(null, 0, null);
+        this.codeRevision = codeRevision;
+    }
+
+    public static PendingCodeRevision of(CodeRevision codeRevision) {
+        return new PendingCodeRevision(codeRevision);
+    }
+
+    public synchronized CodeRevision get() {
+        if (codeRevision == null) {
+            codeRevision = await();
+        }
+        return codeRevision;
+    }
+
+    private CodeRevision await() {
+        try {
+            CodeRevision resolved = future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return resolved == null ? UNKNOWN : resolved;
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            future.cancel(true);
+            System.out.println("[WARNING] Gave up waiting on the scm revision, it is recorded as " + UNKNOWN.revision);
+            return UNKNOWN;
+        } catch (ExecutionException e) {
+            System.out.println("[WARNING] Failed to determine the scm revision: " + e.getCause().getMessage());
+            return UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return UNKNOWN;
+        }
+    }
+}
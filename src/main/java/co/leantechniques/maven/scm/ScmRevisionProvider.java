@@ -16,9 +16,15 @@ package co.leantechniques.maven.scm;
 import org.openide.util.Lookup;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ScmRevisionProvider implements CodeRevisionProvider {
     private final Lookup lookup;
+    private volatile List<ScmRevisionQuery> queries;
+    private final Map<File, CachedRevision> revisionsByRoot = new ConcurrentHashMap<File, CachedRevision>();
 
     public ScmRevisionProvider() {
         this(Lookup.getDefault());
@@ -28,13 +34,60 @@ public class ScmRevisionProvider implements CodeRevisionProvider {
         this.lookup = lookup;
     }
 
+    /**
+     * Uses the first query that supports the directory or its nearest parent.
+     */
     public CodeRevision determineRevisionOf(File directory) {
-        CodeRevision codeRevision = new CodeRevision(null, null);
-        for (ScmRevisionQuery query : lookup.lookupAll(ScmRevisionQuery.class)) {
-            if (query.supports(directory)) {
-                codeRevision = query.queryRevision(directory);
+        File root = directory;
+        while (root != null) {
+            for (ScmRevisionQuery query : queries()) {
+                if (query.supports(root)) {
+                    return revisionOf(query, root);
+                }
             }
+            root = root.getAbsoluteFile().getParentFile();
+        }
+        return new CodeRevision(null, null);
+    }
+
+    private CodeRevision revisionOf(ScmRevisionQuery query, File root) {
+        if (!(query instanceof StampedScmRevisionQuery)) {
+            return query.queryRevision(root);
+        }
+
+        // daemons like mvnd build the same root over and over, only ask again once the scm metadata changed
+        long stamp = ((StampedScmRevisionQuery) query).stampOf(root);
+        CachedRevision cachedRevision = revisionsByRoot.get(root);
+        if (cachedRevision != null && cachedRevision.isFor(query, stamp)) {
+            return cachedRevision.codeRevision;
+        }
+        CodeRevision codeRevision = query.queryRevision(root);
+        if (stamp != StampedScmRevisionQuery.UNKNOWN_STAMP) {
+            revisionsByRoot.put(root, new CachedRevision(query, stamp, codeRevision));
         }
         return codeRevision;
     }
+
+    private List<ScmRevisionQuery> queries() {
+        if (queries == null) {
+            queries = new ArrayList<ScmRevisionQuery>(lookup.lookupAll(ScmRevisionQuery.class));
+        }
+        return queries;
+    }
+
+    private static class CachedRevision {
+        private final ScmRevisionQuery query;
+        private final long stamp;
+        private final CodeRevision codeRevision;
+
+        private CachedRevision(ScmRevisionQuery query, long stamp, CodeRevision codeRevision) {
+            this.query = query;
+            this.stamp = stamp;
+            this.codeRevision = codeRevision;
+        }
+
+        private boolean isFor(ScmRevisionQuery query, long stamp) {
+            return this.query == query && this.stamp == stamp;
+        }
+    }
 }
@@ -0,0 +1,28 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import java.io.File;
+
+/**
+ * A query whose revision can be cached until the scm metadata of the root changes.
+ */
+public interface StampedScmRevisionQuery extends ScmRevisionQuery {
+    long UNKNOWN_STAMP = -1;
+
+    /**
+     * @return a value that changes whenever the revision of the root may have changed or {@link #UNKNOWN_STAMP}
+     */
+    long stampOf(File root);
+}
@@ -0,0 +1,177 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch of durations. Values are counted in logarithmic buckets whose bounds grow by a
+ * constant factor, so any quantile is answered within {@link #RELATIVE_ACCURACY} of the real value and two
+ * sketches are merged by adding up their buckets.
+ */
+public class LatencySketch {
+    public static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int FORMAT_VERSION = 1;
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<Integer, Long>();
+    private long zeroCount;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void add(long value) {
+        if (value <= 0) {
+            zeroCount++;
+        } else {
+            addToBucket(bucketOf(value), 1);
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(LatencySketch other) {
+        for (Map.Entry<Integer, Long> bucket : other.buckets.entrySet()) {
+            addToBucket(bucket.getKey(), bucket.getValue());
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+     */
+    public long quantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = zeroCount;
+        if (seen >= rank) {
+            return getMin();
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                long estimate = Math.round(2 * Math.pow(GAMMA, bucket.getKey()) / (GAMMA + 1));
+                return Math.min(Math.max(estimate, min), max);
+            }
+        }
+        return max;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + buckets.size() * 3);
+        bytes.write(FORMAT_VERSION);
+        writeVarLong(bytes, count);
+        writeVarLong(bytes, zeroCount);
+        writeVarLong(bytes, getMin());
+        writeVarLong(bytes, getMax());
+        writeVarLong(bytes, buckets.size());
+        int previous = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            // the buckets are sorted, so the gaps are small and positive after the first one
+            writeVarLong(bytes, zigZag(bucket.getKey() - previous));
+            writeVarLong(bytes, bucket.getValue());
+            previous = bucket.getKey();
+        }
+        return bytes.toByteArray();
+    }
+
+    public static LatencySketch fromBytes(byte[] serialized) {
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(serialized));
+            int version = input.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported sketch version " + version);
+            }
+            LatencySketch sketch = new LatencySketch();
+            sketch.count = readVarLong(input);
+            sketch.zeroCount = readVarLong(input);
+            sketch.min = readVarLong(input);
+            sketch.max = readVarLong(input);
+            if (sketch.count == 0) {
+                sketch.min = Long.MAX_VALUE;
+                sketch.max = Long.MIN_VALUE;
+            }
+            long numberOfBuckets = readVarLong(input);
+            int index = 0;
+            for (long i = 0; i < numberOfBuckets; i++) {
+                index += (int) unZigZag(readVarLong(input));
+                sketch.buckets.put(index, readVarLong(input));
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The sketch is truncated", e);
+        }
+    }
+
+    private int bucketOf(long value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private void addToBucket(int index, long bucketCount) {
+        Long current = buckets.get(index);
+        buckets.put(index, current == null ? bucketCount : current + bucketCount);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+}
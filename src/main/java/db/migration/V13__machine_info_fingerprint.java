@@ -0,0 +1,109 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package db.migration;
+
+import co.leantechniques.maven.h2.MachineFingerprint;
+import com.googlecode.flyway.core.api.migration.jdbc.JdbcMigration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Fingerprints the machine_info rows and points the builds of identical machines at the oldest row, so the
+ * duplicates can be deleted and a unique index can keep them from coming back. Rows are handled in bounded
+ * batches so a large history does not have to fit in memory.
+ */
+public class V13__machine_info_fingerprint implements JdbcMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        execute(connection, "alter table machine_info add column if not exists fingerprint varchar(40)");
+        int rows;
+        do {
+            rows = fingerprintNextBatch(connection);
+        } while (rows == BATCH_SIZE);
+        do {
+            rows = collapseNextBatch(connection);
+        } while (rows == BATCH_SIZE);
+        execute(connection, "create unique index if not exists ux_machine_info_fingerprint on machine_info(fingerprint)");
+    }
+
+    private int fingerprintNextBatch(Connection connection) throws SQLException {
+        PreparedStatement select = connection.prepareStatement("select id, username, maven_version, java_version, computer_name, os, os_arch " +
+                "from machine_info where fingerprint is null order by id limit ?");
+        PreparedStatement update = connection.prepareStatement("update machine_info set fingerprint = ? where id = ?");
+        try {
+            select.setInt(1, BATCH_SIZE);
+            ResultSet rows = select.executeQuery();
+            int updated = 0;
+            while (rows.next()) {
+                update.setString(1, MachineFingerprint.of(rows.getString(2), rows.getString(3), rows.getString(4),
+                        rows.getString(5), rows.getString(6), rows.getString(7)));
+                update.setLong(2, rows.getLong(1));
+                update.addBatch();
+                updated++;
+            }
+            if (updated > 0) {
+                update.executeBatch();
+            }
+            return updated;
+        } finally {
+            select.close();
+            update.close();
+        }
+    }
+
+    private int collapseNextBatch(Connection connection) throws SQLException {
+        PreparedStatement select = connection.prepareStatement("select m.id, k.keeper_id from machine_info m " +
+                "inner join (select fingerprint, min(id) as keeper_id from machine_info group by fingerprint having count(1) > 1) k " +
+                "on m.fingerprint = k.fingerprint where m.id <> k.keeper_id limit ?");
+        PreparedStatement moveBuilds = connection.prepareStatement("update build set machine_info_id = ? where machine_info_id = ?");
+        PreparedStatement delete = connection.prepareStatement("delete from machine_info where id = ?");
+        try {
+            select.setInt(1, BATCH_SIZE);
+            ResultSet rows = select.executeQuery();
+            int collapsed = 0;
+            while (rows.next()) {
+                moveBuilds.setLong(1, rows.getLong(2));
+                moveBuilds.setLong(2, rows.getLong(1));
+                moveBuilds.addBatch();
+                delete.setLong(1, rows.getLong(1));
+                delete.addBatch();
+                collapsed++;
+            }
+            if (collapsed > 0) {
+                moveBuilds.executeBatch();
+                delete.executeBatch();
+            }
+            return collapsed;
+        } finally {
+            select.close();
+            moveBuilds.close();
+            delete.close();
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+}
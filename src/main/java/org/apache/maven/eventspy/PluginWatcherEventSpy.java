@@ -11,39 +11,55 @@
  * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and limitations under the License.
  */
-
 package org.apache.maven.eventspy;
 
 import co.leantechniques.maven.BuildInformation;
 import co.leantechniques.maven.BuildInformationRepository;
 import co.leantechniques.maven.BuildInformationRepositoryProvider;
+import co.leantechniques.maven.scm.BackgroundCodeRevisionResolver;
 import co.leantechniques.maven.scm.CodeRevisionProvider;
+import co.leantechniques.maven.scm.PendingCodeRevision;
 import co.leantechniques.maven.scm.ScmRevisionProvider;
-import org.apache.maven.execution.BuildFailure;
 import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
-import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.annotations.Component;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component(role = EventSpy.class)
 public class PluginWatcherEventSpy extends AbstractEventSpy {
     public static final String BUILD_DATA_KEY = "plugin.execution.watcher.build.data";
+    public static final String DAEMON_KEY = "plugin.execution.watcher.daemon";
 
     private BuildInformationRepositoryProvider buildInformationRepositoryProvider = new BuildInformationRepositoryProvider();
     private BuildInformationRepository buildInformationRepository;
-    private BuildInformation currentBuildInformation;
-    private CodeRevisionProvider codeRevisionProvider = new ScmRevisionProvider();
+    private boolean repositoryInitialized;
+    private volatile BuildInformation currentBuildInformation;
+    private BackgroundCodeRevisionResolver codeRevisionResolver = new BackgroundCodeRevisionResolver(new ScmRevisionProvider());
+    // keyed by the request since the parallel builder hands out clones of the session
+    private final ConcurrentMap<MavenExecutionRequest, SessionBuild> sessionBuilds = new ConcurrentHashMap<MavenExecutionRequest, SessionBuild>();
+    // weak, a daemon runs an unbounded number of sessions
+    private final Map<MavenExecutionRequest, Boolean> endedSessions = Collections.synchronizedMap(new WeakHashMap<MavenExecutionRequest, Boolean>());
+    private Thread shutdownHook;
 
     @Override
-    public void init(Context context) throws Exception {
+    public synchronized void init(Context context) throws Exception {
         System.out.println("------------------------------------------------------------------------");
         System.out.println(" TRACKING BUILD STATS");
         System.out.println("------------------------------------------------------------------------");
-        buildInformationRepository = buildInformationRepositoryProvider.provide();
-        buildInformationRepository.initialize(context);
+        // a daemon (mvnd) reuses the spy for every build, keep the repository warm between them
+        if (!repositoryInitialized) {
+            buildInformationRepository = buildInformationRepositoryProvider.provide();
+            buildInformationRepository.initialize(context);
+            repositoryInitialized = true;
+        }
     }
 
     @Override
@@ -51,53 +67,84 @@ public class PluginWatcherEventSpy extends AbstractEventSpy {
 
         if (event instanceof ExecutionEvent) {
             ExecutionEvent executionEvent = (ExecutionEvent) event;
-
-            if (shouldInitializeBuildInformation(executionEvent)) {
-                File baseDirectory = new File(((ExecutionEvent) event).getSession().getRequest().getBaseDirectory());
-                currentBuildInformation = new BuildInformation(
-                        executionEvent.getSession(),
-                        System.getProperty(BUILD_DATA_KEY),
-                        codeRevisionProvider.determineRevisionOf(baseDirectory)
-                );
+            SessionBuild sessionBuild = sessionBuildOf(executionEvent.getSession());
+            if (sessionBuild == null) {
+                return;
+            }
+            if (isBuildFinished(executionEvent)) {
+                sessionBuilds.remove(executionEvent.getSession().getRequest());
+                endedSessions.put(executionEvent.getSession().getRequest(), Boolean.TRUE);
+            }
+            BuildInformation buildInformation = sessionBuild.buildInformationOf(executionEvent.getSession());
+            if (buildInformation == null) {
+                return;
             }
 
             if (isPluginRelated(executionEvent)) {
-                currentBuildInformation.addMavenEvent(executionEvent);
-            } else if (isBuildFinished(executionEvent) && isBuildSuccessful(executionEvent)) {
-                currentBuildInformation.setEndTime(new Date());
-                buildInformationRepository.save(currentBuildInformation);
+                buildInformation.addMavenEvent(executionEvent);
+            } else if (executionEvent.getType() == ExecutionEvent.Type.ProjectStarted) {
+                buildInformation.projectStarted(executionEvent);
+            } else if (isProjectFinished(executionEvent)) {
+                buildInformation.projectFinished(executionEvent);
+            } else if (isBuildFinished(executionEvent)) {
+                buildInformation.setEndTime(new Date());
+                // a daemon lives on after the build, do not keep the finished build reachable
+                if (currentBuildInformation == buildInformation) {
+                    currentBuildInformation = null;
+                }
+                buildInformationRepository.save(buildInformation);
             }
         }
     }
 
-    private boolean shouldInitializeBuildInformation(ExecutionEvent executionEvent) {
-        MavenSession session = executionEvent.getSession();
-        return currentBuildInformation == null
-                && session.getProjects() != null
-                && session.getProjects().size() > 0;
+    /**
+     * @return null when the session already ended
+     */
+    private SessionBuild sessionBuildOf(MavenSession session) {
+        MavenExecutionRequest request = session.getRequest();
+        SessionBuild sessionBuild = sessionBuilds.get(request);
+        if (sessionBuild == null) {
+            if (endedSessions.containsKey(request)) {
+                return null;
+            }
+            // start as early as possible, the revision is only needed once the build is saved
+            File baseDirectory = new File(request.getBaseDirectory());
+            sessionBuild = new SessionBuild(codeRevisionResolver.resolve(baseDirectory));
+            SessionBuild alreadyTracked = sessionBuilds.putIfAbsent(request, sessionBuild);
+            if (alreadyTracked != null) {
+                sessionBuild = alreadyTracked;
+            }
+        }
+        return sessionBuild;
     }
 
-    private boolean isBuildSuccessful(ExecutionEvent executionEvent) {
-        boolean passing = true;
-        MavenSession session = executionEvent.getSession();
-        for (MavenProject project : session.getProjects()) {
-            if (session.getResult().getBuildSummary(project) instanceof BuildFailure) {
-                passing = false;
-                break;
+    @Override
+    public synchronized void close() throws Exception {
+        if (isDaemon()) {
+            // the next build reuses the repository, only let go of it when the daemon stops
+            if (shutdownHook == null) {
+                shutdownHook = new Thread(new CleanUpRepository(buildInformationRepository), "plugin-execution-watcher-shutdown");
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
             }
+        } else {
+            buildInformationRepository.cleanUp();
+            repositoryInitialized = false;
         }
-        return passing;
     }
 
-    @Override
-    public void close() throws Exception {
-        buildInformationRepository.cleanUp();
+    private boolean isDaemon() {
+        return Boolean.getBoolean(DAEMON_KEY) || System.getProperty("mvnd.home") != null;
     }
 
     private boolean isBuildFinished(ExecutionEvent executionEvent) {
         return executionEvent.getType() == ExecutionEvent.Type.SessionEnded;
     }
 
+    private boolean isProjectFinished(ExecutionEvent event) {
+        ExecutionEvent.Type type = event.getType();
+        return type == ExecutionEvent.Type.ProjectSucceeded || type == ExecutionEvent.Type.ProjectFailed;
+    }
+
     private boolean isPluginRelated(ExecutionEvent event) {
         ExecutionEvent.Type type = event.getType();
         switch (type) {
@@ -114,6 +161,48 @@ public class PluginWatcherEventSpy extends AbstractEventSpy {
     }
 
     public void setCodeRevisionProvider(CodeRevisionProvider codeRevisionProvider) {
-        this.codeRevisionProvider = codeRevisionProvider;
+        this.codeRevisionResolver = new BackgroundCodeRevisionResolver(codeRevisionProvider);
+    }
+
+    public void setCodeRevisionResolver(BackgroundCodeRevisionResolver codeRevisionResolver) {
+        this.codeRevisionResolver = codeRevisionResolver;
+    }
+
+    public long getScmTimeouts() {
+        return codeRevisionResolver.getTimeouts();
+    }
+
+    private class SessionBuild {
+        private final PendingCodeRevision pendingCodeRevision;
+        private volatile BuildInformation buildInformation;
+
+        private SessionBuild(PendingCodeRevision pendingCodeRevision) {
+            this.pendingCodeRevision = pendingCodeRevision;
+        }
+
+        private BuildInformation buildInformationOf(MavenSession session) {
+            if (buildInformation == null && session.getProjects() != null && session.getProjects().size() > 0) {
+                synchronized (this) {
+                    if (buildInformation == null) {
+                        buildInformation = new BuildInformation(session, System.getProperty(BUILD_DATA_KEY), pendingCodeRevision);
+                        currentBuildInformation = buildInformation;
+                    }
+                }
+            }
+            return buildInformation;
+        }
+    }
+
+    private static class CleanUpRepository implements Runnable {
+        private final BuildInformationRepository buildInformationRepository;
+
+        private CleanUpRepository(BuildInformationRepository buildInformationRepository) {
+            this.buildInformationRepository = buildInformationRepository;
+        }
+
+        @Override
+        public void run() {
+            buildInformationRepository.cleanUp();
+        }
     }
 }
@@ -0,0 +1,20 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+alter table build add column outcome varchar(16);
+alter table plugin_execution add column outcome varchar(16);
+
+-- only successful builds were saved before
+update build set outcome = 'SUCCESS' where end_time is not null;
+update plugin_execution set outcome = 'SUCCESS' where end_time is not null;
@@ -0,0 +1,22 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+create table if not exists maintenance_run (
+    id long primary key auto_increment,
+    task varchar(64),
+    run_time timestamp,
+    affected_rows int
+);
+
+create index if not exists ix_maintenance_run_task_run_time on maintenance_run(task, run_time);
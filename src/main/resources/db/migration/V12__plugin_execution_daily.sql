@@ -0,0 +1,35 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+create table if not exists plugin_execution_daily (
+    id long primary key auto_increment,
+    day date,
+    project_id long,
+    plugin_id long,
+    goal varchar(255),
+    executions int,
+    total_nanos long,
+    min_nanos long,
+    max_nanos long,
+    p50_nanos long,
+    p90_nanos long,
+    p99_nanos long,
+    -- a latency sketch of the durations, executions that arrive later are merged into it for the percentiles
+    sketch varbinary,
+    -- the newest execution of the day that is part of the aggregates, later ones are merged in
+    last_execution_id long
+);
+
+create unique index if not exists ux_plugin_execution_daily on plugin_execution_daily(day, plugin_id, project_id, goal);
+create index if not exists ix_plugin_execution_start_time on plugin_execution(start_time);
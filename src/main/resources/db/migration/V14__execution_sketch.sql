@@ -0,0 +1,29 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+-- a LatencySketch of the finished executions per period (DAY, WEEK, MONTH), project, plugin and goal
+create table if not exists execution_sketch (
+    id long primary key auto_increment,
+    period varchar(8),
+    period_start date,
+    project_id long,
+    plugin_id long,
+    goal varchar(255),
+    executions long,
+    sketch varbinary,
+    rolled_up boolean default false
+);
+
+create unique index if not exists ux_execution_sketch on execution_sketch(period, period_start, plugin_id, project_id, goal);
+create index if not exists ix_execution_sketch_roll_up on execution_sketch(period, rolled_up);
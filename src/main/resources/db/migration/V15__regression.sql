@@ -0,0 +1,62 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+-- the order the builds were saved in, a build is saved when it ends, so the id (its start time) is not
+create sequence if not exists build_save_seq;
+alter table build add column if not exists save_seq long default next value for build_save_seq;
+update build set save_seq = next value for build_save_seq where save_seq is null;
+create index if not exists ix_build_save_seq on build(save_seq);
+
+-- the change point detection state of every project, plugin and goal series, without the versions, so an
+-- upgrade continues the series of the previous version
+create table if not exists regression_series (
+    id long primary key auto_increment,
+    project_group_id varchar(255),
+    project_artifact_id varchar(255),
+    plugin_group_id varchar(255),
+    plugin_artifact_id varchar(255),
+    goal varchar(255),
+    samples long,
+    last_build_id long,
+    state varbinary
+);
+
+create unique index if not exists ux_regression_series on regression_series(plugin_group_id, plugin_artifact_id,
+    project_group_id, project_artifact_id, goal);
+
+-- the save_seq of the newest build the detection has looked at
+create table if not exists regression_checkpoint (
+    id int primary key,
+    last_save_seq long,
+    run_time timestamp
+);
+
+create table if not exists regression (
+    id long primary key auto_increment,
+    project_group_id varchar(255),
+    project_artifact_id varchar(255),
+    plugin_group_id varchar(255),
+    plugin_artifact_id varchar(255),
+    goal varchar(255),
+    direction varchar(8),
+    start_build_id long,
+    scm_revision varchar(255),
+    detected_build_id long,
+    baseline_nanos long,
+    shifted_nanos long,
+    detected_time timestamp
+);
+
+create index if not exists ix_regression_series on regression(plugin_group_id, plugin_artifact_id, project_group_id,
+    project_artifact_id, goal);
@@ -0,0 +1,40 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+-- when every project of a build ran and where it sits in the critical path of the reactor
+create table if not exists build_project (
+    id long primary key auto_increment,
+    build_id long,
+    project_id long,
+    start_time timestamp,
+    end_time timestamp,
+    duration_millis long,
+    earliest_start_millis long,
+    slack_millis long,
+    saving_millis long,
+    critical boolean,
+    critical_path_position int,
+    constraint fk_build_project_to_build foreign key (build_id) references build(id)
+);
+
+-- the reactor projects a project of the build directly depends on
+create table if not exists build_project_dependency (
+    id long primary key auto_increment,
+    build_id long,
+    project_id long,
+    upstream_project_id long,
+    constraint fk_build_project_dependency_to_build foreign key (build_id) references build(id)
+);
+
+alter table build add column critical_path_millis long;
@@ -0,0 +1,36 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+alter table plugin_execution add column thread_name varchar(255);
+alter table plugin_execution add column thread_id long;
+
+-- the builder threads (-T) Maven was asked for, the time they spent running mojos and busy / (threads * wall time)
+alter table build add column threads int;
+alter table build add column busy_millis long;
+alter table build add column parallel_efficiency double;
+
+-- how busy every builder thread of a build was
+create table if not exists build_thread (
+    id long primary key auto_increment,
+    build_id long,
+    thread_id long,
+    thread_name varchar(255),
+    executions int,
+    first_start_time timestamp,
+    last_end_time timestamp,
+    busy_millis long,
+    idle_millis long,
+    longest_idle_millis long,
+    constraint fk_build_thread_to_build foreign key (build_id) references build(id)
+);
@@ -0,0 +1,51 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+-- concurrent builds could have inserted the same plugin/project twice, point everything at the oldest row
+-- and drop the duplicates so the unique indexes can be created
+update plugin_execution pe set plugin_id = coalesce((
+    select min(p2.id) from plugin p1 inner join plugin p2
+        on p1.group_id = p2.group_id and p1.artifact_id = p2.artifact_id and p1.version = p2.version
+    where p1.id = pe.plugin_id
+), plugin_id)
+where pe.plugin_id not in (select min(id) from plugin group by group_id, artifact_id, version);
+
+delete from plugin
+    where group_id is not null and artifact_id is not null and version is not null
+    and id not in (select min(id) from plugin group by group_id, artifact_id, version);
+
+update plugin_execution pe set project_id = coalesce((
+    select min(p2.id) from project p1 inner join project p2
+        on p1.group_id = p2.group_id and p1.artifact_id = p2.artifact_id and p1.version = p2.version
+    where p1.id = pe.project_id
+), project_id)
+where pe.project_id not in (select min(id) from project group by group_id, artifact_id, version);
+
+update build b set top_level_project_id = coalesce((
+    select min(p2.id) from project p1 inner join project p2
+        on p1.group_id = p2.group_id and p1.artifact_id = p2.artifact_id and p1.version = p2.version
+    where p1.id = b.top_level_project_id
+), top_level_project_id)
+where b.top_level_project_id not in (select min(id) from project group by group_id, artifact_id, version);
+
+delete from project
+    where group_id is not null and artifact_id is not null and version is not null
+    and id not in (select min(id) from project group by group_id, artifact_id, version);
+
+create unique index if not exists ux_plugin_gav on plugin(group_id, artifact_id, version);
+create unique index if not exists ux_project_gav on project(group_id, artifact_id, version);
+
+-- plugin_execution(build_id) is already covered by the index H2 creates for fk_plugin_execution_to_build
+create index if not exists ix_plugin_execution_series on plugin_execution(plugin_id, project_id, goal, start_time);
+create index if not exists ix_build_end_time_start_time on build(end_time, start_time);
@@ -0,0 +1,20 @@
+--
+--
+-- Copyright to the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+-- compliance with the License. You may obtain a copy of the License at:
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the License is
+-- distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and limitations under the License.
+--
+
+alter table plugin_execution add column duration_nanos long;
+
+-- prefer the monotonic duration, rows saved before it was captured fall back to the wall-clock difference
+alter table plugin_execution drop column elapsed_millis_time;
+alter table plugin_execution add column elapsed_millis_time long as
+    coalesce(duration_nanos / 1000000, ABS(DATEDIFF('MILLISECOND', end_time, start_time)));
@@ -0,0 +1,120 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.eventspy.EventSpy;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncBuildInformationRepositoryTest {
+    @Mock
+    private BuildInformationRepository delegate;
+    @Mock
+    private BuildInformation buildInformation;
+    @Mock
+    private EventSpy.Context context;
+    private AsyncBuildInformationRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new AsyncBuildInformationRepository(delegate, 1, 5000);
+    }
+
+    @Test
+    public void save_shouldHandTheBuildToTheWriterThread() {
+        repository.initialize(context);
+
+        repository.save(buildInformation);
+
+        verify(delegate, timeout(5000)).save(buildInformation);
+        repository.cleanUp();
+    }
+
+    @Test
+    public void save_shouldSaveOnTheCallersThreadWhenTheWriterIsNotRunning() {
+        repository.save(buildInformation);
+
+        verify(delegate).save(buildInformation);
+        assertEquals(1, repository.getSavedBuilds());
+    }
+
+    @Test
+    public void cleanUp_shouldFlushTheQueuedBuildsBeforeCleaningUpTheRepository() {
+        final CountDownLatch writerIsBusy = new CountDownLatch(1);
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        BuildInformation slowBuild = mock(BuildInformation.class);
+        doAnswer(new Answer() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                writerIsBusy.countDown();
+                releaseWriter.await();
+                return null;
+            }
+        }).when(delegate).save(slowBuild);
+
+        repository.initialize(context);
+        repository.save(slowBuild);
+        await(writerIsBusy);
+        repository.save(buildInformation);
+        assertEquals(1, repository.getQueueDepth());
+
+        releaseWriter.countDown();
+        repository.cleanUp();
+
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).save(buildInformation);
+        inOrder.verify(delegate).cleanUp();
+        assertEquals(0, repository.getQueueDepth());
+        assertEquals(2, repository.getSavedBuilds());
+    }
+
+    @Test
+    public void cleanUp_shouldLeaveTheCleanUpToTheWriterWhenItIsStillSavingAfterTheFlushTimeout() {
+        repository = new AsyncBuildInformationRepository(delegate, 1, 10);
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        doAnswer(new Answer() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                releaseWriter.await();
+                return null;
+            }
+        }).when(delegate).save(buildInformation);
+
+        repository.initialize(context);
+        repository.save(buildInformation);
+        repository.cleanUp();
+
+        verify(delegate, never()).cleanUp();
+        releaseWriter.countDown();
+        verify(delegate, timeout(5000)).cleanUp();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
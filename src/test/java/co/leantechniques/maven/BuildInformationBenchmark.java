@@ -0,0 +1,74 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import co.leantechniques.maven.scm.CodeRevision;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Feeds the mojo events of reactors of 10, 100, 1000 and 5000 modules into {@link BuildInformation} and prints
+ * the nanoseconds per event, next to what the linear project lookup (a new Project and <code>indexOf</code> over
+ * the reactor, the way projectOf worked before) costs for the same events.
+ * Run it with <code>mvn test -Pbenchmark -Dtest=BuildInformationBenchmark</code>.
+ */
+public class BuildInformationBenchmark {
+    private static final int[] MODULES = {10, 100, 1000, 5000};
+    private static final int MOJOS_PER_MODULE = 10;
+    // small reactors are run more often, so every size is measured over about as many events
+    private static final int EVENTS_PER_SIZE = 500000;
+
+    @Test
+    public void ingestTheEventsOfABuild() {
+        for (int modules : MODULES) {
+            SyntheticReactor reactor = new SyntheticReactor(modules, MOJOS_PER_MODULE);
+            List<ExecutionEvent> events = reactor.getEvents();
+            int runs = Math.max(1, EVENTS_PER_SIZE / events.size());
+            long ingestNanos = 0;
+            long linearLookupNanos = 0;
+            // the first half warms up
+            for (int run = 0; run < 2 * runs; run++) {
+                BuildInformation build = new BuildInformation(reactor.getSession(), null, new CodeRevision("git", "revision"));
+                long start = System.nanoTime();
+                for (ExecutionEvent event : events) {
+                    build.addMavenEvent(event);
+                }
+                long ingested = System.nanoTime();
+                int found = 0;
+                for (ExecutionEvent event : events) {
+                    found += linearProjectOf(build, event) >= 0 ? 1 : 0;
+                }
+                long lookedUp = System.nanoTime();
+                assertEquals(events.size(), found);
+                if (run >= runs) {
+                    ingestNanos += ingested - start;
+                    linearLookupNanos += lookedUp - ingested;
+                }
+            }
+            long eventsMeasured = (long) events.size() * runs;
+            System.out.println(String.format("%5d modules: %7.0f ns/event ingested, the linear project lookup alone took %7.0f ns/event",
+                    modules, (double) ingestNanos / eventsMeasured, (double) linearLookupNanos / eventsMeasured));
+        }
+    }
+
+    private int linearProjectOf(BuildInformation build, ExecutionEvent event) {
+        MavenProject mavenProject = event.getProject();
+        return build.getProjects().indexOf(new Project(mavenProject.getGroupId(), mavenProject.getArtifactId(), mavenProject.getVersion()));
+    }
+}
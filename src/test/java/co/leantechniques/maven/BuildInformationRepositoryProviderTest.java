@@ -14,6 +14,7 @@
 package co.leantechniques.maven;
 
 import co.leantechniques.maven.h2.H2BuildInformationRepository;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -21,6 +22,10 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openide.util.Lookup;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
 import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -30,6 +35,8 @@ public class BuildInformationRepositoryProviderTest {
     @Mock
     private BuildInformationRepository repository;
     @Mock
+    private NamedBuildInformationRepository namedRepository;
+    @Mock
     private Lookup lookup;
     private BuildInformationRepositoryProvider provider;
 
@@ -38,16 +45,50 @@ public class BuildInformationRepositoryProviderTest {
         provider = new BuildInformationRepositoryProvider(lookup);
     }
 
+    @After
+    public void tearDown() throws Exception {
+        System.getProperties().remove(AsyncBuildInformationRepository.ASYNC_KEY);
+        System.getProperties().remove(BuildInformationRepositoryProvider.REPOSITORY_KEY);
+    }
+
     @Test
     public void shouldUseTheCustomRepositoryIfOneIsProvided() {
-        when(lookup.lookup(BuildInformationRepository.class)).thenReturn(repository);
+        lookupFinds(namedRepository, repository);
         assertSame(repository, provider.provide());
     }
 
     @Test
     public void shouldProvideTheH2Repository() {
-        when(lookup.lookup(BuildInformationRepository.class)).thenReturn(null);
+        lookupFinds();
+        assertTrue(provider.provide() instanceof H2BuildInformationRepository);
+    }
+
+    @Test
+    public void shouldNotUseANamedRepositoryThatWasNotSelected() {
+        when(namedRepository.getName()).thenReturn("journal");
+        lookupFinds(namedRepository);
         assertTrue(provider.provide() instanceof H2BuildInformationRepository);
     }
 
+    @Test
+    public void shouldUseTheSelectedNamedRepository() {
+        System.setProperty(BuildInformationRepositoryProvider.REPOSITORY_KEY, "journal");
+        when(namedRepository.getName()).thenReturn("journal");
+        lookupFinds(repository, namedRepository);
+        assertSame(namedRepository, provider.provide());
+    }
+
+    @Test
+    public void shouldWrapTheRepositoryWhenAsyncPersistenceIsEnabled() {
+        System.setProperty(AsyncBuildInformationRepository.ASYNC_KEY, "true");
+        lookupFinds(repository);
+        assertTrue(provider.provide() instanceof AsyncBuildInformationRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void lookupFinds(BuildInformationRepository... repositories) {
+        Collection found = repositories.length == 0 ? Collections.emptyList() : Arrays.asList(repositories);
+        when(lookup.lookupAll(BuildInformationRepository.class)).thenReturn(found);
+    }
+
 }
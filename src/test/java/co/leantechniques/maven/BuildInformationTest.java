@@ -0,0 +1,260 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import co.leantechniques.maven.scm.CodeRevision;
+import org.apache.maven.eventspy.MavenSessionBuilder;
+import org.apache.maven.eventspy.StubExecutionEvent;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.Assert.*;
+
+public class BuildInformationTest {
+    private static final int THREADS = 8;
+    private static final int PROJECTS = 16;
+    private static final int MOJOS_PER_THREAD_AND_PROJECT = 200;
+    private static final int LARGE_REACTOR = 1000;
+
+    @Test
+    public void addMavenEvent_shouldNotLoseExecutionsWhenEventsArriveFromManyThreads() throws Exception {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        for (int i = 0; i < PROJECTS; i++) {
+            sessionBuilder.withProject("group", "project-" + i, "1");
+        }
+        final MavenSession session = sessionBuilder.toSession();
+        final BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int mojo = 0; mojo < MOJOS_PER_THREAD_AND_PROJECT; mojo++) {
+                            for (MavenProject project : session.getProjects()) {
+                                MojoExecution execution = StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", thread + "-" + mojo);
+                                buildInformation.addMavenEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, session, project, execution));
+                                buildInformation.addMavenEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoSucceeded, session, project, execution));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        finished.await();
+
+        assertNull("a builder thread failed: " + failure.get(), failure.get());
+        assertEquals(THREADS * PROJECTS * MOJOS_PER_THREAD_AND_PROJECT * 2, buildInformation.getMavenEvents().size());
+        for (Project project : buildInformation.getProjects()) {
+            List<PluginExecution> executions = project.getPluginExecutions();
+            assertEquals(THREADS * MOJOS_PER_THREAD_AND_PROJECT, executions.size());
+            for (PluginExecution execution : executions) {
+                assertNotNull("execution " + execution.executionId + " lost its end time", execution.endTime);
+            }
+        }
+    }
+
+    @Test
+    public void addMavenEvent_shouldAttributeEventsOfAForkedProjectCloneToTheReactorProject() {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withProject("group", "project", "1");
+        MavenSession session = sessionBuilder.toSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+        MavenProject forkedProject = session.getProjects().get(0).clone();
+
+        buildInformation.addMavenEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, session, forkedProject,
+                StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", "id")));
+
+        assertEquals(1, buildInformation.getProjects().get(0).getPluginExecutions().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addMavenEvent_shouldBlowUpWhenTheProjectIsNotPartOfTheReactor() {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withProject("group", "project", "1");
+        MavenSession session = sessionBuilder.toSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+        MavenProject otherProject = new MavenProject();
+        otherProject.setGroupId("group");
+        otherProject.setArtifactId("other-project");
+        otherProject.setVersion("1");
+
+        buildInformation.addMavenEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, session, otherProject,
+                StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", "id")));
+    }
+
+    @Test
+    public void shouldLinkEveryProjectToTheReactorProjectsItDependsOn() {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withProject("group", "core", "1");
+        sessionBuilder.withProject("group", "api", "1");
+        sessionBuilder.withProject("group", "web", "1");
+        sessionBuilder.withUpstreamProject("api", "core").withUpstreamProject("web", "core").withUpstreamProject("web", "api");
+
+        BuildInformation buildInformation = new BuildInformation(sessionBuilder.toSession(), null, new CodeRevision(null, null));
+
+        List<Project> projects = buildInformation.getProjects();
+        assertTrue(projects.get(0).getUpstreamProjects().isEmpty());
+        assertEquals(1, projects.get(1).getUpstreamProjects().size());
+        assertSame(projects.get(0), projects.get(1).getUpstreamProjects().get(0));
+        assertEquals(2, projects.get(2).getUpstreamProjects().size());
+    }
+
+    @Test
+    public void projectStarted_shouldRecordWhenTheProjectStartedAndFinished() {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withProject("group", "project", "1");
+        MavenSession session = sessionBuilder.toSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+        MavenProject mavenProject = session.getProjects().get(0);
+
+        Date before = new Date();
+        buildInformation.projectStarted(new StubExecutionEvent(ExecutionEvent.Type.ProjectStarted, session, mavenProject, null));
+        buildInformation.projectFinished(new StubExecutionEvent(ExecutionEvent.Type.ProjectSucceeded, session, mavenProject, null));
+
+        Project project = buildInformation.getProjects().get(0);
+        assertFalse(project.getStartTime().before(before));
+        assertFalse(project.getEndTime().before(project.getStartTime()));
+        assertEquals(2, buildInformation.getMavenEvents().size());
+    }
+
+    @Test
+    public void getThreads_shouldBeTheThreadsMavenWasAskedFor() {
+        assertEquals(1, threadsOf(null, 8));
+        assertEquals(4, threadsOf("4", 8));
+        assertEquals(Math.min(8, Runtime.getRuntime().availableProcessors()), threadsOf("1C", 8));
+    }
+
+    @Test
+    public void getThreads_shouldNeverBeMoreThanTheProjectsToBuild() {
+        assertEquals(2, threadsOf("4", 2));
+    }
+
+    @Test
+    public void getMavenEvents_shouldReturnTheEventsInTheOrderTheyWereReceived() {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withProject("group", "project", "1");
+        MavenSession session = sessionBuilder.toSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+        MojoExecution execution = StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", "id");
+
+        buildInformation.addMavenEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, session, session.getProjects().get(0), execution));
+        buildInformation.addMavenEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoSucceeded, session, session.getProjects().get(0), execution));
+
+        List<MavenEvent> events = buildInformation.getMavenEvents();
+        assertEquals(2, events.size());
+        assertEquals(ExecutionEvent.Type.MojoStarted, events.get(0).getType());
+        assertEquals(ExecutionEvent.Type.MojoSucceeded, events.get(1).getType());
+        assertSame(events.get(0).execution, events.get(1).execution);
+        assertSame(buildInformation.getProjects().get(0), events.get(0).project);
+        assertEquals(0, buildInformation.getRawMavenEvents().size());
+    }
+
+    @Test
+    public void getRawMavenEvents_shouldOnlyKeepTheMostRecentEventsWhenEnabled() {
+        System.setProperty(RawEventBuffer.CAPACITY_KEY, "2");
+        try {
+            MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+            sessionBuilder.withProject("group", "project", "1");
+            MavenSession session = sessionBuilder.toSession();
+            BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+            List<ExecutionEvent> events = new ArrayList<ExecutionEvent>();
+            for (int i = 0; i < 3; i++) {
+                ExecutionEvent event = new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, session, session.getProjects().get(0),
+                        StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", "id-" + i));
+                events.add(event);
+                buildInformation.addMavenEvent(event);
+            }
+
+            assertEquals(events.subList(1, 3), buildInformation.getRawMavenEvents());
+            assertEquals(3, buildInformation.getMavenEvents().size());
+        } finally {
+            System.clearProperty(RawEventBuffer.CAPACITY_KEY);
+        }
+    }
+
+    @Test
+    public void addMavenEvent_shouldNotRetainTheMavenModelOfALargeReactor() throws Exception {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        for (int i = 0; i < LARGE_REACTOR; i++) {
+            sessionBuilder.withProject("group", "module-" + i, "1");
+        }
+        MavenSession session = sessionBuilder.toSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, new CodeRevision(null, null));
+        List<WeakReference<Object>> model = new ArrayList<WeakReference<Object>>();
+        model.add(new WeakReference<Object>(session));
+        for (MavenProject project : session.getProjects()) {
+            MojoExecution execution = StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", "id");
+            ExecutionEvent started = new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, session, project, execution);
+            ExecutionEvent succeeded = new StubExecutionEvent(ExecutionEvent.Type.MojoSucceeded, session, project, execution);
+            buildInformation.addMavenEvent(started);
+            buildInformation.addMavenEvent(succeeded);
+            model.add(new WeakReference<Object>(project));
+            model.add(new WeakReference<Object>(execution));
+            model.add(new WeakReference<Object>(started));
+            model.add(new WeakReference<Object>(succeeded));
+        }
+        buildInformation.setEndTime(new Date());
+        sessionBuilder = null;
+        session = null;
+
+        for (int attempt = 0; attempt < 10 && !allCollected(model); attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertTrue("the build information still references the maven model", allCollected(model));
+        assertEquals(LARGE_REACTOR * 2, buildInformation.getMavenEvents().size());
+        assertEquals(LARGE_REACTOR, buildInformation.getProjects().size());
+    }
+
+    private int threadsOf(String threadCount, int projects) {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        for (int i = 0; i < projects; i++) {
+            sessionBuilder.withProject("group", "project-" + i, "1");
+        }
+        MavenSession session = sessionBuilder.toSession();
+        session.getRequest().setThreadCount(threadCount);
+        return new BuildInformation(session, null, new CodeRevision(null, null)).getThreads();
+    }
+
+    private boolean allCollected(List<WeakReference<Object>> references) {
+        for (WeakReference<Object> reference : references) {
+            if (reference.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
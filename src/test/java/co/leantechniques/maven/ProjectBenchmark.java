@@ -0,0 +1,118 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints the bytes allocated per mojo event by {@link Project#addPluginExecution(ExecutionEvent)}, read from the
+ * allocation counter of the thread, the number JMH reports as gc.alloc.rate.norm. A succeeded event finishes the
+ * execution, which allocates its end time, so that part is measured on its own and subtracted from the lookup.
+ * Run it with <code>mvn test -Pbenchmark -Dtest=ProjectBenchmark</code>.
+ */
+public class ProjectBenchmark {
+    private static final int MOJOS = 100;
+    private static final int PROJECTS = 2000;
+    private static final int WARM_UPS = 5;
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long threadId = Thread.currentThread().getId();
+    private long counterOverhead;
+
+    @Test
+    public void allocationPerEvent() {
+        List<ExecutionEvent> events = new SyntheticReactor(1, MOJOS).getEvents();
+        counterOverhead = counterOverhead();
+        for (int run = 0; run < WARM_UPS; run++) {
+            measure(events);
+        }
+        long[] bytes = measure(events);
+        long finish = finishAllocation();
+        long eventsPerType = (long) PROJECTS * MOJOS;
+
+        System.out.println(String.format("MojoStarted:   %4d B/event", bytes[0] / eventsPerType));
+        System.out.println(String.format("MojoSucceeded: %4d B/event, of which %d B finish the execution, the lookup takes %d B",
+                bytes[1] / eventsPerType, finish, bytes[1] / eventsPerType - finish));
+        System.out.println(String.format("the former concatenated key (built twice per event): %d B/event", concatenatedKeyAllocation(events)));
+    }
+
+    /**
+     * @return the bytes allocated by the started and by the succeeded events
+     */
+    private long[] measure(List<ExecutionEvent> events) {
+        List<Project> projects = new ArrayList<Project>();
+        for (int i = 0; i < PROJECTS; i++) {
+            projects.add(new Project("benchmark", "module-0", "1"));
+        }
+        long[] bytes = new long[2];
+        for (Project project : projects) {
+            for (ExecutionEvent event : events) {
+                int type = event.getType() == ExecutionEvent.Type.MojoStarted ? 0 : 1;
+                long before = threads.getThreadAllocatedBytes(threadId);
+                project.addPluginExecution(event);
+                bytes[type] += threads.getThreadAllocatedBytes(threadId) - before - counterOverhead;
+            }
+        }
+        return bytes;
+    }
+
+    private long finishAllocation() {
+        List<PluginExecution> executions = new ArrayList<PluginExecution>();
+        for (int i = 0; i < 100000; i++) {
+            executions.add(new PluginExecution(new Artifact("benchmark", "plugin", "1"), "goal", "default"));
+        }
+        long bytes = 0;
+        for (PluginExecution execution : executions) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            execution.finish(Outcome.SUCCESS);
+            bytes += threads.getThreadAllocatedBytes(threadId) - before - counterOverhead;
+        }
+        return bytes / executions.size();
+    }
+
+    private long concatenatedKeyAllocation(List<ExecutionEvent> events) {
+        long bytes = 0;
+        int keys = 0;
+        for (int run = 0; run < 1000; run++) {
+            for (ExecutionEvent event : events) {
+                long before = threads.getThreadAllocatedBytes(threadId);
+                keys += key(event).length() + key(event).length();
+                bytes += threads.getThreadAllocatedBytes(threadId) - before - counterOverhead;
+            }
+        }
+        return keys > 0 ? bytes / (1000L * events.size()) : 0;
+    }
+
+    private String key(ExecutionEvent event) {
+        return event.getMojoExecution().getGroupId() + event.getMojoExecution().getArtifactId()
+                + event.getMojoExecution().getGoal() + event.getMojoExecution().getExecutionId();
+    }
+
+    /**
+     * @return what reading the counter twice allocates itself
+     */
+    private long counterOverhead() {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 100000; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            least = Math.min(least, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+        return least;
+    }
+}
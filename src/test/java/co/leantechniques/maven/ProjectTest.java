@@ -62,6 +62,34 @@ public class ProjectTest {
         assertFullExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-other-goal", "execution", executions.get(1));
     }
 
+    @Test
+    public void shouldNotMixUpExecutionsWhoseCoordinatesConcatenateToTheSameValue() {
+        pluginRuns("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution");
+        pluginRuns("plugin-group", "plugin-artifact", "plugin-version", "plugin-", "goalexecution");
+
+        List<PluginExecution> executions = project.getPluginExecutions();
+        assertEquals(2, executions.size());
+        assertFullExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution", executions.get(0));
+        assertFullExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-", "goalexecution", executions.get(1));
+    }
+
+    @Test
+    public void shouldFinishAnExecutionThatWasStartedBeforeAnotherOne() {
+        ExecutionEventBuilder forkingPlugin = new ExecutionEventBuilder();
+        forkingPlugin.withPlugin("forking-group", "forking-artifact", "forking-version", "forking-goal", "execution").starting();
+        project.addPluginExecution(forkingPlugin.toEvent());
+
+        pluginRuns("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution");
+
+        forkingPlugin.withPlugin("forking-group", "forking-artifact", "forking-version", "forking-goal", "execution").successful();
+        project.addPluginExecution(forkingPlugin.toEvent());
+
+        List<PluginExecution> executions = project.getPluginExecutions();
+        assertEquals(2, executions.size());
+        assertFullExecution("forking-group", "forking-artifact", "forking-version", "forking-goal", "execution", executions.get(0));
+        assertFullExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution", executions.get(1));
+    }
+
     @Test
     public void shouldStoreTheEndDateWhenAPluginFinishes() {
         pluginRuns("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution");
@@ -71,6 +99,38 @@ public class ProjectTest {
         assertFullExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution", executions.get(0));
     }
 
+    @Test
+    public void shouldFinishTheExecutionWhenThePluginFails() {
+        project.addPluginExecution(pluginStarting("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution"));
+        eventBuilder.withPlugin("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution").failed();
+        project.addPluginExecution(eventBuilder.toEvent());
+
+        PluginExecution execution = project.getPluginExecutions().get(0);
+
+        assertFullExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution", execution);
+        assertEquals(Outcome.FAILURE, execution.outcome);
+    }
+
+    @Test
+    public void shouldLetGoOfTheRunningExecutionWhenThePluginFails() {
+        project.addPluginExecution(pluginStarting("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution"));
+        assertTrue(Project.isRunningAnExecution());
+
+        eventBuilder.withPlugin("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution").failed();
+        project.addPluginExecution(eventBuilder.toEvent());
+
+        assertFalse(Project.isRunningAnExecution());
+    }
+
+    @Test
+    public void shouldLetGoOfTheRunningExecutionWhenTheProjectFinishes() {
+        project.addPluginExecution(pluginStarting("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution"));
+
+        project.finish(Outcome.FAILURE);
+
+        assertFalse(Project.isRunningAnExecution());
+    }
+
     @Test
     public void shouldStoreTheExecutionWhenThePluginStarts() {
         project.addPluginExecution(pluginStarting("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution"));
@@ -81,6 +141,22 @@ public class ProjectTest {
         assertExecution("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution", execution);
         assertNotNull(execution.startTime);
         assertNull(execution.endTime);
+        assertNull(execution.getDurationNanos());
+    }
+
+    @Test
+    public void shouldRecordTheThreadThatRanTheExecution() throws Exception {
+        Thread builder = new Thread(new Runnable() {
+            public void run() {
+                pluginRuns("plugin-group", "plugin-artifact", "plugin-version", "plugin-goal", "execution");
+            }
+        }, "BuilderThread 3");
+        builder.start();
+        builder.join();
+
+        PluginExecution execution = project.getPluginExecutions().get(0);
+        assertEquals("BuilderThread 3", execution.threadName);
+        assertEquals(builder.getId(), execution.threadId);
     }
 
     private void assertExecution(String group, String artifact, String version, String goal, String executionId, PluginExecution execution) {
@@ -110,5 +186,7 @@ public class ProjectTest {
         assertExecution(group, artifact, version, goal, executionId, execution);
         assertNotNull("we should have set the endTime", execution.endTime);
         assertNotNull("we should have set the startTime", execution.startTime);
+        assertTrue("the duration should never be negative", execution.getDurationNanos() >= 0);
+        assertEquals(execution.startTime.getTime() + execution.getDurationNanos() / 1000000, execution.endTime.getTime());
     }
 }
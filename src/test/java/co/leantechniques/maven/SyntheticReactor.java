@@ -0,0 +1,100 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven;
+
+import org.apache.maven.eventspy.MavenSessionBuilder;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A reactor of generated modules and the mojo events of a serial build of it, the events are plain objects
+ * instead of mocks so a benchmark measures the event handling and not the mocking framework.
+ */
+public class SyntheticReactor {
+    private final MavenSession session;
+    private final List<ExecutionEvent> events = new ArrayList<ExecutionEvent>();
+
+    public SyntheticReactor(int modules, int mojosPerModule) {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder(new Date(1000L)).withGoals("verify");
+        for (int module = 0; module < modules; module++) {
+            sessionBuilder.withProject("benchmark", "module-" + module, "1");
+        }
+        session = sessionBuilder.toSession();
+        for (MavenProject project : session.getProjects()) {
+            for (int mojo = 0; mojo < mojosPerModule; mojo++) {
+                MojoExecution mojoExecution = new MojoExecution(plugin(mojo), "goal-" + mojo, "default");
+                events.add(new Event(ExecutionEvent.Type.MojoStarted, project, mojoExecution));
+                events.add(new Event(ExecutionEvent.Type.MojoSucceeded, project, mojoExecution));
+            }
+        }
+    }
+
+    public MavenSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return the started and succeeded event of every mojo, module after module
+     */
+    public List<ExecutionEvent> getEvents() {
+        return events;
+    }
+
+    private Plugin plugin(int mojo) {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("benchmark");
+        plugin.setArtifactId("plugin-" + mojo);
+        plugin.setVersion("1");
+        return plugin;
+    }
+
+    private class Event implements ExecutionEvent {
+        private final Type type;
+        private final MavenProject project;
+        private final MojoExecution mojoExecution;
+
+        private Event(Type type, MavenProject project, MojoExecution mojoExecution) {
+            this.type = type;
+            this.project = project;
+            this.mojoExecution = mojoExecution;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public MavenSession getSession() {
+            return session;
+        }
+
+        public MavenProject getProject() {
+            return project;
+        }
+
+        public MojoExecution getMojoExecution() {
+            return mojoExecution;
+        }
+
+        public Exception getException() {
+            return null;
+        }
+    }
+}
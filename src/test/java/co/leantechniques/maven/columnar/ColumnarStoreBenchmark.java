@@ -0,0 +1,135 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.columnar;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+import co.leantechniques.maven.h2.AbstractDatabaseTest;
+import co.leantechniques.maven.h2.DatabaseMaintenance;
+import co.leantechniques.maven.h2.H2BuildInformationRepository;
+import co.leantechniques.maven.h2.H2DatabaseManager;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Stores <code>benchmark.executions</code> plugin executions (default 1000000, in builds of 20000) in the
+ * {@link ColumnarStore} and in the H2 database, then prints how long the trend of a plugin goal per build takes
+ * on each, the H2 one being the join of plugin_execution and plugin grouped by build.
+ * Run it with <code>mvn test -Pbenchmark -Dtest=ColumnarStoreBenchmark</code>.
+ */
+public class ColumnarStoreBenchmark extends AbstractDatabaseTest {
+    private static final int EXECUTIONS = Integer.getInteger("benchmark.executions", 1000000);
+    private static final int EXECUTIONS_PER_BUILD = 20000;
+    private static final int MODULES = 200;
+    private static final int PLUGINS = 40;
+    private static final int WARM_UPS = 3;
+    private static final int RUNS = PLUGINS - WARM_UPS;
+    private static final String TREND_QUERY = "select pe.build_id, count(1) as executions, sum(pe.duration_nanos) as total from plugin_execution pe" +
+            " join plugin p on p.id = pe.plugin_id" +
+            " where p.group_id = ? and p.artifact_id = ? and pe.goal = ? and pe.duration_nanos is not null" +
+            " group by pe.build_id order by pe.build_id";
+
+    private ColumnarStore store;
+    private H2BuildInformationRepository repository;
+    private Handle handle;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new ColumnarStore(temporaryFolder.newFolder("columnar"));
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        repository = new H2BuildInformationRepository();
+        repository.setH2DatabaseManager(databaseManager);
+        // the background maintenance would compete with the queries
+        repository.setDatabaseMaintenance(mock(DatabaseMaintenance.class));
+        handle = new DBI(databaseManager.load()).open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        repository.cleanUp();
+    }
+
+    @Test
+    public void trendOfAPluginGoal() throws Exception {
+        int builds = Math.max(1, EXECUTIONS / EXECUTIONS_PER_BUILD);
+        for (long buildId = 1; buildId <= builds; buildId++) {
+            BuildInformation build = syntheticBuild(buildId);
+            store.append(build);
+            repository.save(build);
+        }
+
+        long columnarNanos = 0;
+        long h2Nanos = 0;
+        for (int run = 0; run < WARM_UPS + RUNS; run++) {
+            // a plugin per run, H2 would otherwise answer a repeated query from its result cache
+            String plugin = "plugin-" + (run % PLUGINS);
+            long start = System.nanoTime();
+            List<ColumnarStore.TrendPoint> columnar = store.trend("benchmark", plugin, "goal");
+            long afterColumnar = System.nanoTime();
+            List<Map<String, Object>> h2 = handle.createQuery(TREND_QUERY)
+                    .bind(0, "benchmark")
+                    .bind(1, plugin)
+                    .bind(2, "goal")
+                    .list();
+            long afterH2 = System.nanoTime();
+            if (run >= WARM_UPS) {
+                columnarNanos += afterColumnar - start;
+                h2Nanos += afterH2 - afterColumnar;
+            }
+            assertEquals(builds, columnar.size());
+            assertEquals(builds, h2.size());
+            assertEquals(((Number) h2.get(0).get("total")).longValue(), columnar.get(0).getTotalDurationNanos());
+        }
+
+        System.out.println(String.format("%d executions in %d builds, columnar trend: %.2f ms", builds * EXECUTIONS_PER_BUILD, builds,
+                columnarNanos / (double) RUNS / 1000000));
+        System.out.println(String.format("%d executions in %d builds, H2 trend: %.2f ms", builds * EXECUTIONS_PER_BUILD, builds,
+                h2Nanos / (double) RUNS / 1000000));
+    }
+
+    private BuildInformation syntheticBuild(long buildId) {
+        // the id of a build is its start time
+        Date startTime = new Date(buildId);
+        List<Project> projects = new ArrayList<Project>();
+        for (int module = 0; module < MODULES; module++) {
+            Project project = new Project("benchmark", "module-" + module, "1");
+            for (int i = module; i < EXECUTIONS_PER_BUILD; i += MODULES) {
+                Artifact plugin = new Artifact("benchmark", "plugin-" + (i % PLUGINS), "1");
+                project.addPluginExecution(new PluginExecution(plugin, "goal", "execution-" + i, startTime,
+                        new Date(startTime.getTime() + 10), 10000000L + i, Outcome.SUCCESS, "main", 1L));
+            }
+            projects.add(project);
+        }
+        return new BuildInformation(startTime, new Date(startTime.getTime() + 1000), Arrays.asList("verify"),
+                projects.get(0), new Properties(), null, new CodeRevision("git", "revision"), projects, 1);
+    }
+}
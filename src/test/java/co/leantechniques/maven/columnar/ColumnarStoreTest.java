@@ -0,0 +1,167 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.columnar;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.apache.maven.eventspy.ExecutionEventBuilder;
+import org.apache.maven.eventspy.MavenSessionBuilder;
+import org.apache.maven.execution.ExecutionEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class ColumnarStoreTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private File directory;
+    private ColumnarStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("columnar");
+        store = new ColumnarStore(directory);
+    }
+
+    @Test
+    public void trend_shouldSumTheFinishedExecutionsOfThePluginGoalPerBuild() throws Exception {
+        BuildInformation first = build(1000L, "1.0");
+        BuildInformation second = build(2000L, "2.0");
+        store.append(first);
+        store.append(second);
+
+        List<ColumnarStore.TrendPoint> trend = store.trend("plugin", "plugin", "compile");
+
+        assertEquals(2, trend.size());
+        assertEquals(1000L, trend.get(0).buildId);
+        assertEquals(2, trend.get(0).getExecutions());
+        assertEquals(totalDurationOf(first), trend.get(0).getTotalDurationNanos());
+        assertEquals(2000L, trend.get(1).buildId);
+        assertEquals(totalDurationOf(second), trend.get(1).getTotalDurationNanos());
+        assertEquals(6, store.getRowCount());
+    }
+
+    @Test
+    public void trend_shouldSeeTheRowsAppendedByAnotherStore() throws Exception {
+        store.append(build(1000L, "1.0"));
+        ColumnarStore other = new ColumnarStore(directory);
+        other.append(build(2000L, "1.0"));
+
+        assertEquals(2, store.trend("plugin", "plugin", "compile").size());
+    }
+
+    @Test
+    public void trend_shouldBeEmptyForAnUnknownGoal() throws Exception {
+        store.append(build(1000L, "1.0"));
+
+        assertTrue(store.trend("plugin", "plugin", "unknown").isEmpty());
+        assertTrue(new ColumnarStore(temporaryFolder.newFolder("empty")).trend("plugin", "plugin", "compile").isEmpty());
+    }
+
+    @Test
+    public void trend_shouldCarryTheBuildAcrossTheChunksOfTheColumns() throws Exception {
+        ColumnarStore chunked = new ColumnarStore(directory, 4);
+        BuildInformation first = build(1000L, "1.0");
+        BuildInformation second = build(2000L, "1.0");
+        chunked.append(first);
+        chunked.append(second);
+        chunked.append(build(3000L, "1.0"));
+
+        List<ColumnarStore.TrendPoint> trend = chunked.trend("plugin", "plugin", "compile");
+
+        assertEquals(3, trend.size());
+        assertEquals(2000L, trend.get(1).buildId);
+        assertEquals(2, trend.get(1).getExecutions());
+        assertEquals(totalDurationOf(second), trend.get(1).getTotalDurationNanos());
+        assertEquals(3000L, trend.get(2).buildId);
+        assertEquals(9, chunked.getRowCount());
+    }
+
+    @Test
+    public void trend_shouldOnlyCountTheExecutionsOfTheProject() throws Exception {
+        store.append(build(1000L, "project", "1.0", false));
+        store.append(build(2000L, "other", "1.0", false));
+
+        List<ColumnarStore.TrendPoint> trend = store.trend("project", "other", "plugin", "plugin", "compile", Long.MIN_VALUE);
+
+        assertEquals(1, trend.size());
+        assertEquals(2000L, trend.get(0).buildId);
+    }
+
+    @Test
+    public void trend_shouldOnlyCountTheExecutionsStartedSince() throws Exception {
+        store.append(build(1000L, "1.0"));
+        Thread.sleep(5);
+        long since = System.currentTimeMillis();
+        store.append(build(2000L, "1.0"));
+
+        List<ColumnarStore.TrendPoint> trend = store.trend(null, null, "plugin", "plugin", "compile", since);
+
+        assertEquals(1, trend.size());
+        assertEquals(2000L, trend.get(0).buildId);
+    }
+
+    @Test
+    public void trend_shouldCountTheFailedExecutions() throws Exception {
+        store.append(build(1000L, "project", "1.0", true));
+        store.append(build(2000L, "1.0"));
+
+        List<ColumnarStore.TrendPoint> trend = store.trend("plugin", "plugin", "compile");
+
+        assertEquals(1, trend.get(0).getFailures());
+        assertEquals(2, trend.get(0).getExecutions());
+        assertEquals(0, trend.get(1).getFailures());
+    }
+
+    private long totalDurationOf(BuildInformation buildInformation) {
+        long total = 0;
+        for (int i = 0; i < 2; i++) {
+            total += buildInformation.getProjects().get(0).getPluginExecutions().get(i).getDurationNanos();
+        }
+        return total;
+    }
+
+    private BuildInformation build(long startTime, String pluginVersion) {
+        return build(startTime, "project", pluginVersion, false);
+    }
+
+    private BuildInformation build(long startTime, String projectArtifactId, String pluginVersion, boolean firstCompileFails) {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder(new Date(startTime));
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("project", projectArtifactId, "1");
+        ExecutionEvent event = builder.toEvent();
+        BuildInformation buildInformation = new BuildInformation(event.getSession(), null, new CodeRevision("git", "revision"));
+        for (String executionId : new String[]{"default-compile", "generated-compile"}) {
+            builder.withPlugin("plugin", "plugin", pluginVersion, "compile", executionId).starting();
+            buildInformation.addMavenEvent(builder.toEvent());
+            if (firstCompileFails && executionId.equals("default-compile")) {
+                builder.withPlugin("plugin", "plugin", pluginVersion, "compile", executionId).failed();
+            } else {
+                builder.withPlugin("plugin", "plugin", pluginVersion, "compile", executionId).successful();
+            }
+            buildInformation.addMavenEvent(builder.toEvent());
+        }
+        builder.withPlugin("plugin", "plugin", pluginVersion, "test").starting();
+        buildInformation.addMavenEvent(builder.toEvent());
+        return buildInformation;
+    }
+}
@@ -14,12 +14,17 @@
 package co.leantechniques.maven.h2;
 
 import co.leantechniques.maven.flyway.FlywayDatabaseMigrator;
+import org.h2.jdbcx.JdbcConnectionPool;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 
 public abstract class AbstractDatabaseTest {
     @Rule
@@ -37,4 +42,29 @@ public abstract class AbstractDatabaseTest {
     public void removeTheDatabaseDirectoryKey() throws Exception {
         System.getProperties().remove(SystemPropertyDirectoryProvider.DB_DIRECTORY_KEY);
     }
+
+    protected void loadOldDatabaseScript(File databaseFolder) {
+        JdbcConnectionPool dataSource = JdbcConnectionPool.create("jdbc:h2:" + databaseFolder.getAbsolutePath() + "/stats;AUTO_SERVER=TRUE", "", "");
+        DBI dbi = new DBI(dataSource);
+        Handle handle = dbi.open();
+        handle.createStatement(readCreateScript()).execute();
+        handle.close();
+        dataSource.dispose();
+    }
+
+    private String readCreateScript() {
+        StringBuilder builder = new StringBuilder();
+        byte[] buffer = new byte[1024];
+        int length = -1;
+
+        InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream("sql/old_create_table.sql");
+        try {
+            while ((length = input.read(buffer)) != -1) {
+                builder.append(new String(buffer, 0, length));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.toString();
+    }
 }
@@ -13,14 +13,7 @@
  */
 package co.leantechniques.maven.h2;
 
-import org.h2.jdbcx.JdbcConnectionPool;
 import org.junit.Test;
-import org.skife.jdbi.v2.DBI;
-import org.skife.jdbi.v2.Handle;
-
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 
 public class CanMigrateOldDatabaseTest extends AbstractDatabaseTest {
     @Test
@@ -28,27 +21,4 @@ public class CanMigrateOldDatabaseTest extends AbstractDatabaseTest {
         loadOldDatabaseScript(databaseFolder);
         new H2DatabaseManager().load();
     }
-
-    private void loadOldDatabaseScript(File databaseFolder) {
-        DBI dbi = new DBI(JdbcConnectionPool.create("jdbc:h2:" + databaseFolder.getAbsolutePath() + "/stats;AUTO_SERVER=TRUE", "", ""));
-        Handle handle = dbi.open();
-        handle.createStatement(readCreateScript()).execute();
-        handle.close();
-    }
-
-    private String readCreateScript() {
-        StringBuilder builder = new StringBuilder();
-        byte[] buffer = new byte[1024];
-        int length = -1;
-
-        InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream("sql/old_create_table.sql");
-        try {
-            while ((length = input.read(buffer)) != -1) {
-                builder.append(new String(buffer, 0, length));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        return builder.toString();
-    }
 }
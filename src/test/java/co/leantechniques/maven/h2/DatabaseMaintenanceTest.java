@@ -0,0 +1,157 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.sketch.LatencySketch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class DatabaseMaintenanceTest extends AbstractDatabaseTest {
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private H2DatabaseManager databaseManager;
+    private DBI dbi;
+    private Handle handle;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseManager = new H2DatabaseManager();
+        dbi = new DBI(databaseManager.load());
+        handle = dbi.open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        databaseManager.unload();
+    }
+
+    @Test
+    public void runWhenDue_shouldDeleteThePartialBuildsOfEarlierDays() {
+        insertPartialBuild(1L);
+
+        new DatabaseMaintenance(HOUR).runWhenDue(dbi);
+
+        assertEquals(0, count("build"));
+        assertEquals(1, count("maintenance_run where task = '" + DatabaseMaintenance.DELETE_PARTIAL_BUILDS + "'"));
+    }
+
+    @Test
+    public void runWhenDue_shouldNotRunAgainWithinTheInterval() {
+        new DatabaseMaintenance(HOUR).runWhenDue(dbi);
+        insertPartialBuild(1L);
+
+        DatabaseMaintenance maintenance = new DatabaseMaintenance(HOUR);
+        maintenance.runWhenDue(dbi);
+
+        assertEquals(1, count("build"));
+        assertEquals(1, count("maintenance_run where task = '" + DatabaseMaintenance.DELETE_PARTIAL_BUILDS + "'"));
+        assertFalse(maintenance.isDue());
+    }
+
+    @Test
+    public void runWhenDue_shouldRunAgainOnceTheIntervalPassed() {
+        new DatabaseMaintenance(0).runWhenDue(dbi);
+        insertPartialBuild(1L);
+
+        new DatabaseMaintenance(0).runWhenDue(dbi);
+
+        assertEquals(0, count("build"));
+        assertEquals(2, count("maintenance_run where task = '" + DatabaseMaintenance.DELETE_PARTIAL_BUILDS + "'"));
+    }
+
+    @Test
+    public void runWhenDue_shouldRollUpTheDailySketchesOfEarlierDays() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(1000L);
+        new ExecutionSketches().addToDay(handle, new Date(0), 1L, 2L, "compile", sketch);
+
+        new DatabaseMaintenance(HOUR).runWhenDue(dbi);
+
+        assertEquals(1, count("execution_sketch where period = 'WEEK'"));
+        assertEquals(1, count("execution_sketch where period = 'MONTH'"));
+        assertEquals(1, count("maintenance_run where task = '" + ExecutionSketches.ROLL_UP_SKETCHES + "'"));
+    }
+
+    @Test
+    public void runWhenDue_shouldRollUpTheOldExecutionsWhenRetentionIsEnabled() {
+        DatabaseMaintenance maintenance = new DatabaseMaintenance(HOUR, new ExecutionRetention(5, 10, 1000));
+        maintenance.runWhenDue(dbi);
+
+        assertEquals(1, count("maintenance_run where task = '" + ExecutionRetention.ROLL_UP_EXECUTIONS + "'"));
+    }
+
+    @Test
+    public void runWhenDue_shouldKeepTheWorkOfTheOtherTasksWhenOneFails() {
+        insertPartialBuild(1L);
+        handle.execute("drop table regression_checkpoint");
+
+        DatabaseMaintenance maintenance = new DatabaseMaintenance(HOUR);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream standardOut = System.out;
+        System.setOut(new PrintStream(output));
+        try {
+            maintenance.runWhenDue(dbi);
+        } finally {
+            System.setOut(standardOut);
+        }
+
+        assertTrue(output.toString().contains("[WARNING] The database maintenance task " + RegressionDetector.DETECT_REGRESSIONS + " failed"));
+        assertEquals(0, count("build"));
+        assertEquals(1, count("maintenance_run where task = '" + DatabaseMaintenance.DELETE_PARTIAL_BUILDS + "'"));
+        assertEquals(0, count("maintenance_run where task = '" + RegressionDetector.DETECT_REGRESSIONS + "'"));
+        assertFalse("a failed task is not retried before the interval passed", maintenance.isDue());
+    }
+
+    @Test
+    public void runWhenDue_shouldNotStartWhenStopped() {
+        insertPartialBuild(1L);
+        DatabaseMaintenance maintenance = new DatabaseMaintenance(HOUR);
+
+        maintenance.stop();
+        maintenance.runWhenDue(dbi);
+
+        assertEquals(1, count("build"));
+    }
+
+    @Test
+    public void main_shouldCatchUpBeforeCompactingTheDatabase() {
+        handle.close();
+        databaseManager.unload();
+
+        DatabaseMaintenance.main(new String[]{databaseFolder.getAbsolutePath()});
+
+        handle = new DBI(databaseManager.load()).open();
+        assertEquals(1, count("maintenance_run where task = '" + DatabaseMaintenance.DELETE_PARTIAL_BUILDS + "'"));
+    }
+
+    private void insertPartialBuild(long id) {
+        handle.createStatement("insert into build (id, start_time) values (?, '2013-01-01 10:00:00')").bind(0, id).execute();
+    }
+
+    private int count(String table) {
+        return handle.createQuery("select count(1) from " + table).mapTo(Integer.class).first();
+    }
+}
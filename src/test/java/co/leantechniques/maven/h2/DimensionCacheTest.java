@@ -0,0 +1,62 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class DimensionCacheTest {
+    private DimensionCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new DimensionCache(2);
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        cache.put(new Artifact("g", "a", "1"), 1L);
+
+        assertEquals(Long.valueOf(1L), cache.get(new Artifact("g", "a", "1")));
+        assertNull(cache.get(new Artifact("g", "a", "2")));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void shouldTreatSubclassesOfArtifactAsTheSameKey() {
+        cache.put(new Project("g", "a", "1"), 1L);
+
+        assertEquals(Long.valueOf(1L), cache.get(new Artifact("g", "a", "1")));
+    }
+
+    @Test
+    public void shouldEvictTheLeastRecentlyUsedId() {
+        cache.put(new Artifact("g", "a", "1"), 1L);
+        cache.put(new Artifact("g", "a", "2"), 2L);
+        cache.get(new Artifact("g", "a", "1"));
+
+        cache.put(new Artifact("g", "a", "3"), 3L);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(new Artifact("g", "a", "2")));
+        assertEquals(Long.valueOf(1L), cache.get(new Artifact("g", "a", "1")));
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.sketch.LatencySketch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.sql.Timestamp;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ExecutionRetentionTest extends AbstractDatabaseTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private H2DatabaseManager databaseManager;
+    private Handle handle;
+    private long executionId;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseManager = new H2DatabaseManager();
+        handle = new DBI(databaseManager.load()).open();
+        handle.execute("insert into project (id, group_id, artifact_id, version) values (1, 'g', 'project', '1')");
+        handle.execute("insert into plugin (id, group_id, artifact_id, version) values (1, 'g', 'plugin', '1')");
+        handle.execute("insert into build (id, start_time) values (1, now())");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        databaseManager.unload();
+    }
+
+    @Test
+    public void run_shouldRollTheOldExecutionsUpIntoDailyAggregates() {
+        long tenDaysAgo = System.currentTimeMillis() - 10 * DAY;
+        for (int i = 1; i <= 100; i++) {
+            insertExecution(tenDaysAgo, "compile", i);
+        }
+        insertExecution(tenDaysAgo, "test", 500);
+        insertExecution(System.currentTimeMillis(), "compile", 7);
+
+        long deleted = run(new ExecutionRetention(5, 10, 1000));
+
+        assertEquals(101, deleted);
+        assertEquals(1, count("plugin_execution"));
+        assertEquals(2, count("plugin_execution_daily"));
+        Map<String, Object> compile = handle.createQuery("select * from plugin_execution_daily where goal = 'compile'").first();
+        assertEquals(100, compile.get("executions"));
+        assertEquals(5050L, compile.get("total_nanos"));
+        assertEquals(1L, compile.get("min_nanos"));
+        assertEquals(100L, compile.get("max_nanos"));
+        assertEquals(50L, compile.get("p50_nanos"));
+        assertEquals(90L, compile.get("p90_nanos"));
+        assertEquals(99L, compile.get("p99_nanos"));
+    }
+
+    @Test
+    public void run_shouldStopAtTheMaximumNumberOfRowsAndCarryOnLater() {
+        long tenDaysAgo = System.currentTimeMillis() - 10 * DAY;
+        for (int i = 1; i <= 5; i++) {
+            insertExecution(tenDaysAgo, "compile", i);
+        }
+        ExecutionRetention retention = new ExecutionRetention(5, 2, 3);
+
+        assertEquals(3, run(retention));
+        assertTrue(retention.hasMoreWork());
+        assertEquals(2, count("plugin_execution"));
+
+        assertEquals(2, run(retention));
+        assertFalse(retention.hasMoreWork());
+        assertEquals(0, count("plugin_execution"));
+        Map<String, Object> compile = handle.createQuery("select * from plugin_execution_daily").first();
+        assertEquals("the aggregate of the first run is kept", 5, compile.get("executions"));
+        assertEquals(1, count("plugin_execution_daily"));
+    }
+
+    @Test
+    public void run_shouldMergeExecutionsThatArriveAfterTheirDayWasRolledUp() {
+        long tenDaysAgo = System.currentTimeMillis() - 10 * DAY;
+        insertExecution(tenDaysAgo, "compile", 10);
+        insertExecution(tenDaysAgo, "compile", 20);
+        run(new ExecutionRetention(5, 10, 1000));
+
+        insertExecution(tenDaysAgo, "compile", 60);
+        insertExecution(tenDaysAgo, "test", 5);
+        long deleted = run(new ExecutionRetention(5, 10, 1000));
+
+        assertEquals(2, deleted);
+        assertEquals(0, count("plugin_execution"));
+        Map<String, Object> compile = handle.createQuery("select * from plugin_execution_daily where goal = 'compile'").first();
+        assertEquals(3, compile.get("executions"));
+        assertEquals(90L, compile.get("total_nanos"));
+        assertEquals(10L, compile.get("min_nanos"));
+        assertEquals(60L, compile.get("max_nanos"));
+        assertEquals("the percentiles of all the executions of the day", 20L, (Long) compile.get("p50_nanos"), 20 * LatencySketch.RELATIVE_ACCURACY);
+        assertEquals(60L, (Long) compile.get("p99_nanos"), 60 * LatencySketch.RELATIVE_ACCURACY);
+        assertEquals(1, count("plugin_execution_daily where goal = 'test'"));
+    }
+
+    @Test
+    public void run_shouldUseTheElapsedTimeOfExecutionsWithoutADuration() {
+        long tenDaysAgo = System.currentTimeMillis() - 10 * DAY;
+        handle.createStatement("insert into plugin_execution (build_id, project_id, plugin_id, goal, start_time, end_time) values (1, 1, 1, 'compile', ?, ?)")
+                .bind(0, new Timestamp(tenDaysAgo))
+                .bind(1, new Timestamp(tenDaysAgo + 3))
+                .execute();
+
+        run(new ExecutionRetention(5, 10, 1000));
+
+        assertEquals(3000000L, handle.createQuery("select total_nanos from plugin_execution_daily").mapTo(Long.class).first().longValue());
+    }
+
+    private long run(ExecutionRetention retention) {
+        return retention.run(new DBI(databaseManager.load()));
+    }
+
+    private void insertExecution(long startTime, String goal, long durationNanos) {
+        handle.createStatement("insert into plugin_execution (id, build_id, project_id, plugin_id, goal, start_time, end_time, duration_nanos) values (?, 1, 1, 1, ?, ?, ?, ?)")
+                .bind(0, ++executionId)
+                .bind(1, goal)
+                .bind(2, new Timestamp(startTime))
+                .bind(3, new Timestamp(startTime + 1))
+                .bind(4, durationNanos)
+                .execute();
+    }
+
+    private int count(String table) {
+        return handle.createQuery("select count(1) from " + table).mapTo(Integer.class).first();
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.sketch.LatencySketch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ExecutionSketchesTest extends AbstractDatabaseTest {
+    private H2DatabaseManager databaseManager;
+    private Handle handle;
+    private ExecutionSketches sketches;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseManager = new H2DatabaseManager();
+        handle = new DBI(databaseManager.load()).open();
+        handle.execute("insert into project (id, group_id, artifact_id, version) values (1, 'project', 'project', '1')");
+        handle.execute("insert into plugin (id, group_id, artifact_id, version) values (2, 'plugin', 'plugin', '1')");
+        sketches = new ExecutionSketches();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        databaseManager.unload();
+    }
+
+    @Test
+    public void rollUp_shouldMergeTheDaysIntoTheirWeekAndMonth() {
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 7), 1L, 2L, "compile", sketchOf(1000L, 2000L));
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 8), 1L, 2L, "compile", sketchOf(3000L));
+
+        assertEquals(2, sketches.rollUp(handle));
+
+        assertEquals(3, find(ExecutionSketches.WEEK, day(2013, Calendar.JANUARY, 8)).getCount());
+        assertEquals(3, find(ExecutionSketches.MONTH, day(2013, Calendar.JANUARY, 31)).getCount());
+        assertEquals(0, sketches.rollUp(handle));
+    }
+
+    @Test
+    public void rollUp_shouldStopAfterTheBatchSoTheCallerCanCommit() {
+        sketches = new ExecutionSketches(2);
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 7), 1L, 2L, "compile", sketchOf(1000L));
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 8), 1L, 2L, "compile", sketchOf(2000L));
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 9), 1L, 2L, "compile", sketchOf(3000L));
+
+        assertEquals(2, sketches.rollUp(handle));
+        assertTrue(sketches.hasMoreWork());
+        assertEquals(1, sketches.rollUp(handle));
+        assertFalse(sketches.hasMoreWork());
+        assertEquals(3, find(ExecutionSketches.MONTH, day(2013, Calendar.JANUARY, 1)).getCount());
+    }
+
+    @Test
+    public void addToDay_shouldPassTheExecutionsOnWhenTheDayWasAlreadyRolledUp() {
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 7), 1L, 2L, "compile", sketchOf(1000L));
+        sketches.rollUp(handle);
+
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 7), 1L, 2L, "compile", sketchOf(5000L));
+
+        assertEquals(2, find(ExecutionSketches.DAY, day(2013, Calendar.JANUARY, 7)).getCount());
+        assertEquals(2, find(ExecutionSketches.MONTH, day(2013, Calendar.JANUARY, 7)).getCount());
+        assertEquals(5000L, find(ExecutionSketches.WEEK, day(2013, Calendar.JANUARY, 7)).getMax());
+    }
+
+    @Test
+    public void findDays_shouldMergeTheDaysInTheRange() {
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 7), 1L, 2L, "compile", sketchOf(1000L));
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 8), 1L, 2L, "compile", sketchOf(2000L));
+        sketches.addToDay(handle, day(2013, Calendar.JANUARY, 9), 1L, 2L, "compile", sketchOf(3000L));
+
+        LatencySketch merged = sketches.findDays(handle, day(2013, Calendar.JANUARY, 8), day(2013, Calendar.JANUARY, 9),
+                new Artifact("project", "project", "1"),
+                new Artifact("plugin", "plugin", "1"), "compile");
+
+        assertEquals(2, merged.getCount());
+        assertEquals(2000L, merged.getMin());
+    }
+
+    private LatencySketch find(String period, Date periodStart) {
+        return sketches.find(handle, period, periodStart,
+                new Artifact("project", "project", "1"),
+                new Artifact("plugin", "plugin", "1"), "compile");
+    }
+
+    private LatencySketch sketchOf(long... values) {
+        LatencySketch sketch = new LatencySketch();
+        for (long value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    private Date day(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, 13, 0);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class FlatJsonTest {
+    @Test
+    public void shouldWriteAndReadBackTheValues() {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        object.put("text", "a \"quoted\" \\ value\nwith\ttabs and \u0001 and é");
+        object.put("number", -1234567890123L);
+        object.put("flag", true);
+        object.put("nothing", null);
+
+        String json = FlatJson.write(object);
+
+        assertEquals("{\"text\":\"a \\\"quoted\\\" \\\\ value\\nwith\\ttabs and \\u0001 and é\",\"number\":-1234567890123,\"flag\":true,\"nothing\":null}", json);
+        assertEquals(object, FlatJson.read(json));
+    }
+
+    @Test
+    public void shouldReadObjectsWithWhitespace() {
+        Map<String, Object> object = FlatJson.read(" { \"a\" : 1 , \"b\" : null } ");
+
+        assertEquals(1L, object.get("a"));
+        assertNull(object.get("b"));
+    }
+
+    @Test
+    public void shouldReadBackDecimalNumbers() {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        object.put("ratio", 0.75);
+        object.put("tiny", 1.0E-5);
+        object.put("negative", -2.5);
+
+        assertEquals(object, FlatJson.read(FlatJson.write(object)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectATruncatedLine() {
+        FlatJson.read("{\"a\":\"unterminated");
+    }
+}
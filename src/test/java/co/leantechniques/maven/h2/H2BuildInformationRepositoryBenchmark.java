@@ -0,0 +1,173 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Saves a synthetic build of <code>benchmark.executions</code> plugin executions (default 20000) once a row at a
+ * time, the way the executions were stored before they were batched, and once through
+ * {@link H2BuildInformationRepository#save(BuildInformation)}, and prints the rows per second of both.
+ * Run it with <code>mvn test -Pbenchmark -Dtest=H2BuildInformationRepositoryBenchmark</code>.
+ */
+public class H2BuildInformationRepositoryBenchmark extends AbstractDatabaseTest {
+    private static final int EXECUTIONS = Integer.getInteger("benchmark.executions", 20000);
+    private static final int MODULES = 200;
+    private static final int PLUGINS = 40;
+    private static final int WARM_UPS = 1;
+    private static final int RUNS = 3;
+
+    private H2DatabaseManager databaseManager;
+    private H2BuildInformationRepository repository;
+    private Handle handle;
+    private long buildId = 1000L;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseManager = new H2DatabaseManager();
+        repository = new H2BuildInformationRepository();
+        repository.setH2DatabaseManager(databaseManager);
+        // the background maintenance would compete with the saves
+        repository.setDatabaseMaintenance(mock(DatabaseMaintenance.class));
+        handle = new DBI(databaseManager.load()).open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        repository.cleanUp();
+    }
+
+    @Test
+    public void saveASyntheticBuild() {
+        double rowAtATime = rowsPerSecond(new Save() {
+            public void save(BuildInformation build) {
+                saveRowAtATime(build);
+            }
+        });
+        double batched = rowsPerSecond(new Save() {
+            public void save(BuildInformation build) {
+                repository.save(build);
+            }
+        });
+
+        System.out.println(String.format("%d executions, row at a time: %.0f rows/sec", EXECUTIONS, rowAtATime));
+        System.out.println(String.format("%d executions, batched (%s=%s): %.0f rows/sec", EXECUTIONS,
+                H2BuildInformationRepository.BATCH_SIZE_KEY,
+                Integer.getInteger(H2BuildInformationRepository.BATCH_SIZE_KEY, H2BuildInformationRepository.DEFAULT_BATCH_SIZE),
+                batched));
+    }
+
+    private double rowsPerSecond(Save save) {
+        long elapsedNanos = 0;
+        for (int run = 0; run < WARM_UPS + RUNS; run++) {
+            BuildInformation build = syntheticBuild();
+            long start = System.nanoTime();
+            save.save(build);
+            if (run >= WARM_UPS) {
+                elapsedNanos += System.nanoTime() - start;
+            }
+            assertEquals(EXECUTIONS, (int) handle.createQuery("select count(1) from plugin_execution where build_id = ?")
+                    .bind(0, build.getId())
+                    .mapTo(Integer.class)
+                    .first());
+        }
+        return (double) EXECUTIONS * RUNS / elapsedNanos * 1000000000L;
+    }
+
+    /**
+     * The save path before the batching: three queries to find or create the plugin and one insert per execution.
+     */
+    private void saveRowAtATime(BuildInformation build) {
+        handle.begin();
+        handle.execute("insert into build (id, start_time, end_time) values (?,?,?)", build.getId(), build.getStartTime(), build.getEndTime());
+        for (Project project : build.getProjects()) {
+            long projectId = findOrCreate("project", project);
+            for (PluginExecution execution : project.getPluginExecutions()) {
+                long pluginId = findOrCreate("plugin", execution);
+                handle.createStatement("insert into plugin_execution (project_id, plugin_id, goal, execution_id, start_time, end_time, build_id) values (?,?,?,?,?,?,?)")
+                        .bind(0, projectId)
+                        .bind(1, pluginId)
+                        .bind(2, execution.goal)
+                        .bind(3, execution.executionId)
+                        .bind(4, execution.startTime)
+                        .bind(5, execution.endTime)
+                        .bind(6, build.getId())
+                        .execute();
+            }
+        }
+        handle.commit();
+    }
+
+    private long findOrCreate(String table, Artifact artifact) {
+        int existing = handle.createQuery("select count(1) from " + table + " where group_id = ? and artifact_id = ? and version = ?")
+                .bind(0, artifact.groupId)
+                .bind(1, artifact.artifactId)
+                .bind(2, artifact.version)
+                .mapTo(Integer.class)
+                .first();
+        if (existing == 0) {
+            handle.createStatement("insert into " + table + " (group_id, artifact_id, version) values (?,?,?)")
+                    .bind(0, artifact.groupId)
+                    .bind(1, artifact.artifactId)
+                    .bind(2, artifact.version)
+                    .execute();
+        }
+        return handle.createQuery("select id from " + table + " where group_id = ? and artifact_id = ? and version = ?")
+                .bind(0, artifact.groupId)
+                .bind(1, artifact.artifactId)
+                .bind(2, artifact.version)
+                .mapTo(Long.class)
+                .first();
+    }
+
+    private BuildInformation syntheticBuild() {
+        Date startTime = new Date(buildId++);
+        List<Project> projects = new ArrayList<Project>();
+        for (int module = 0; module < MODULES; module++) {
+            Project project = new Project("benchmark", "module-" + module, "1");
+            for (int i = module; i < EXECUTIONS; i += MODULES) {
+                Artifact plugin = new Artifact("benchmark", "plugin-" + (i % PLUGINS), "1");
+                project.addPluginExecution(new PluginExecution(plugin, "goal", "execution-" + i, startTime,
+                        new Date(startTime.getTime() + 10), 10000000L, Outcome.SUCCESS, "main", 1L));
+            }
+            projects.add(project);
+        }
+        return new BuildInformation(startTime, new Date(startTime.getTime() + 1000), Arrays.asList("verify"),
+                projects.get(0), new Properties(), null, new CodeRevision("git", "revision"), projects, 1);
+    }
+
+    private interface Save {
+        void save(BuildInformation build);
+    }
+}
@@ -15,6 +15,8 @@
 package co.leantechniques.maven.h2;
 
 import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.Project;
 import co.leantechniques.maven.scm.CodeRevision;
 import org.apache.maven.eventspy.ExecutionEventBuilder;
 import org.apache.maven.eventspy.MavenSessionBuilder;
@@ -23,8 +25,23 @@ import org.apache.maven.execution.MavenSession;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import javax.sql.DataSource;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
 
 public class H2BuildInformationRepositoryTest extends AbstractDatabaseTest {
     private H2BuildInformationRepository repository;
@@ -75,6 +92,161 @@ public class H2BuildInformationRepositoryTest extends AbstractDatabaseTest {
         testRepository.assertExecution(session, "plugin-1:plugin-1:plugin-1:goal-1", "goal-1");
     }
 
+    @Test
+    public void save_shouldSaveTheMonotonicDurationOfTheFinishedExecutions() {
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("1", "1", "1");
+        builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-1").starting();
+        ExecutionEvent started = builder.toEvent();
+        MavenSession session = started.getSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, codeRevision);
+        buildInformation.addMavenEvent(started);
+        builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-1").successful();
+        buildInformation.addMavenEvent(builder.toEvent());
+
+        repository.save(buildInformation);
+
+        testRepository.assertDuration(session, "goal-1", buildInformation.getProjects().get(0).getPluginExecutions().get(0).getDurationNanos());
+    }
+
+    @Test
+    public void save_shouldAddTheFinishedExecutionsToTheSketchOfTheDay() {
+        repository.save(finishedBuildWithOnePlugin(new MavenSessionBuilder(new Date(1000L))));
+        repository.save(finishedBuildWithOnePlugin(new MavenSessionBuilder(new Date(2000L))));
+        repository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(3000L))));
+
+        testRepository.assertSketchedExecutions(new Date(), "goal-1", 2);
+    }
+
+    @Test
+    public void save_shouldStoreTheCriticalPathOfTheReactor() {
+        sessionBuilder.withProject("group", "core", "1");
+        sessionBuilder.withProject("group", "api", "1");
+        sessionBuilder.withProject("group", "util", "1");
+        sessionBuilder.withUpstreamProject("api", "core").withUpstreamProject("util", "core");
+        MavenSession session = sessionBuilder.toSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, codeRevision);
+        ran(buildInformation.getProjects().get(0), 0, 10);
+        ran(buildInformation.getProjects().get(1), 10, 40);
+        ran(buildInformation.getProjects().get(2), 10, 20);
+
+        repository.save(buildInformation);
+
+        testRepository.assertCriticalPath(session, 40, "core", "api");
+        testRepository.assertNumberOfUpstreamProjects(session, 2);
+    }
+
+    @Test
+    public void save_shouldStoreTheBuilderThreadsAndTheParallelEfficiency() {
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("1", "1", "1");
+        MavenSession session = builder.toEvent().getSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, codeRevision);
+        builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-1").starting();
+        buildInformation.addMavenEvent(builder.toEvent());
+        builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-1").successful();
+        buildInformation.addMavenEvent(builder.toEvent());
+        buildInformation.addMavenEvent(builder.toEvent());
+        buildInformation.setEndTime(new Date());
+
+        repository.save(buildInformation);
+
+        testRepository.assertBuilderThreads(session, 1, Thread.currentThread().getName());
+    }
+
+    @Test
+    public void save_shouldSaveThePluginExecutionsInBatches() {
+        repository.setBatchSize(2);
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("1", "1", "1");
+        MavenSession session = builder.toEvent().getSession();
+        BuildInformation buildInformation = new BuildInformation(session, null, codeRevision);
+
+        for (int i = 0; i < 5; i++) {
+            builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-" + i).starting();
+            buildInformation.addMavenEvent(builder.toEvent());
+        }
+
+        repository.save(buildInformation);
+
+        testRepository.assertNumberOfExecutions(session, 5);
+        testRepository.assertPlugin("plugin-1", "plugin-1", "plugin-1");
+    }
+
+    @Test
+    public void save_shouldResolveKnownPluginsAndProjectsFromTheCacheWarmedAtInitialize() {
+        repository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(1000L))));
+
+        H2BuildInformationRepository restartedRepository = new H2BuildInformationRepository();
+        restartedRepository.setH2DatabaseManager(new H2DatabaseManager());
+        restartedRepository.initialize(null);
+        try {
+            restartedRepository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(2000L))));
+
+            assertEquals(0, restartedRepository.getDimensionCacheMisses());
+            assertTrue(restartedRepository.getDimensionCacheHits() > 0);
+        } finally {
+            restartedRepository.cleanUp();
+        }
+    }
+
+    @Test
+    public void initialize_shouldRunTheMaintenanceInTheBackground() {
+        repository.awaitMaintenance();
+
+        assertEquals(1, (int) new DBI(new H2DatabaseManager().load()).withHandle(new HandleCallback<Integer>() {
+            public Integer withHandle(Handle handle) {
+                return handle.createQuery("select count(1) from maintenance_run where task = ?")
+                        .bind(0, DatabaseMaintenance.DELETE_PARTIAL_BUILDS)
+                        .mapTo(Integer.class)
+                        .first();
+            }
+        }));
+    }
+
+    @Test
+    public void initialize_shouldOpenTheDatabaseWithoutHoldingUpTheBuild() {
+        final CountDownLatch databaseCanOpen = new CountDownLatch(1);
+        H2BuildInformationRepository lazyRepository = new H2BuildInformationRepository();
+        lazyRepository.setH2DatabaseManager(new H2DatabaseManager() {
+            @Override
+            public DataSource load() {
+                await(databaseCanOpen);
+                return super.load();
+            }
+        });
+
+        MavenSessionBuilder lazySessionBuilder = new MavenSessionBuilder(new Date(1000L));
+
+        lazyRepository.initialize(null);
+        databaseCanOpen.countDown();
+        try {
+            lazyRepository.save(buildWithOnePlugin(lazySessionBuilder));
+
+            testRepository.assertNumberOfExecutions(lazySessionBuilder.toSession(), 1);
+        } finally {
+            lazyRepository.cleanUp();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void save_shouldFailWhenTheDatabaseCouldNotBeOpened() {
+        H2BuildInformationRepository brokenRepository = new H2BuildInformationRepository();
+        brokenRepository.setH2DatabaseManager(new H2DatabaseManager() {
+            @Override
+            public DataSource load() {
+                throw new IllegalStateException("the database is locked");
+            }
+        });
+
+        brokenRepository.initialize(null);
+        try {
+            brokenRepository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(1000L))));
+        } finally {
+            brokenRepository.cleanUp();
+        }
+    }
+
     @Test
     public void save_shouldSaveAllTheProjectsInTheBuild() {
         ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
@@ -122,4 +294,116 @@ public class H2BuildInformationRepositoryTest extends AbstractDatabaseTest {
         testRepository.assertMachineInfoStored(session);
     }
 
+    @Test
+    public void save_shouldStoreTheSameMachineOnlyOnce() {
+        repository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(1000L)).withComputerName("agent-1")));
+        repository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(2000L)).withComputerName("agent-1")));
+        H2BuildInformationRepository otherProcess = new H2BuildInformationRepository();
+        otherProcess.setH2DatabaseManager(new H2DatabaseManager());
+        otherProcess.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(3000L)).withComputerName("agent-1")));
+        otherProcess.cleanUp();
+        repository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(4000L)).withComputerName("agent-2")));
+
+        testRepository.assertNumberOfMachines(2);
+    }
+
+    @Test
+    public void save_shouldReportAMachineThatCannotBeStored() {
+        StringBuilder computerName = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            computerName.append('x');
+        }
+        try {
+            repository.save(buildWithOnePlugin(new MavenSessionBuilder(new Date(1000L)).withComputerName(computerName.toString())));
+            fail("the computer name does not fit the column");
+        } catch (UnableToExecuteStatementException e) {
+            assertFalse(H2BuildInformationRepository.isDuplicateKey(e));
+        }
+
+        testRepository.assertNumberOfMachines(0);
+    }
+
+    @Test
+    public void isDuplicateKey_shouldOnlyBeTrueForAUniqueConstraintViolation() {
+        Handle handle = new DBI(new H2DatabaseManager().load()).open();
+        try {
+            handle.createStatement("insert into plugin (group_id, artifact_id, version) values ('g', 'a', 'v')").execute();
+
+            assertTrue(H2BuildInformationRepository.isDuplicateKey(failureOf(handle, "insert into plugin (group_id, artifact_id, version) values ('g', 'a', 'v')")));
+            assertFalse(H2BuildInformationRepository.isDuplicateKey(failureOf(handle, "insert into plugin (id, group_id) values ('not-a-number', 'g')")));
+        } finally {
+            handle.close();
+        }
+    }
+
+    @Test
+    public void save_shouldNotWaitOnTheMaintenance() {
+        final CountDownLatch maintenanceIsRunning = new CountDownLatch(1);
+        final CountDownLatch releaseMaintenance = new CountDownLatch(1);
+        DatabaseMaintenance maintenance = mock(DatabaseMaintenance.class);
+        when(maintenance.isDue()).thenReturn(true);
+        doAnswer(new Answer() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                maintenanceIsRunning.countDown();
+                releaseMaintenance.await();
+                return null;
+            }
+        }).when(maintenance).runUntilDone(any(DBI.class));
+        H2BuildInformationRepository otherRepository = new H2BuildInformationRepository();
+        otherRepository.setH2DatabaseManager(new H2DatabaseManager());
+        otherRepository.setDatabaseMaintenance(maintenance);
+        otherRepository.initialize(null);
+        await(maintenanceIsRunning);
+
+        MavenSessionBuilder otherSession = new MavenSessionBuilder(new Date(1000L));
+        otherRepository.save(buildWithOnePlugin(otherSession));
+
+        testRepository.assertNumberOfExecutions(otherSession.toSession(), 1);
+        releaseMaintenance.countDown();
+        otherRepository.cleanUp();
+        verify(maintenance).stop();
+    }
+
+    private UnableToExecuteStatementException failureOf(Handle handle, String sql) {
+        try {
+            handle.createStatement(sql).execute();
+        } catch (UnableToExecuteStatementException e) {
+            return e;
+        }
+        throw new AssertionError("expected the statement to fail: " + sql);
+    }
+
+    private BuildInformation buildWithOnePlugin(MavenSessionBuilder sessionBuilder) {
+        sessionBuilder.withGoals("verify");
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("1", "1", "1");
+        builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-1").starting();
+        ExecutionEvent event = builder.toEvent();
+
+        BuildInformation buildInformation = new BuildInformation(event.getSession(), null, codeRevision);
+        buildInformation.addMavenEvent(event);
+        return buildInformation;
+    }
+
+    private BuildInformation finishedBuildWithOnePlugin(MavenSessionBuilder sessionBuilder) {
+        BuildInformation buildInformation = buildWithOnePlugin(sessionBuilder);
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("1", "1", "1");
+        builder.withPlugin("plugin-1", "plugin-1", "plugin-1", "goal-1").successful();
+        buildInformation.addMavenEvent(builder.toEvent());
+        return buildInformation;
+    }
+
+    private void ran(Project project, long start, long end) {
+        project.start(new Date(start));
+        project.finish(Outcome.SUCCESS, new Date(end));
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,122 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.flyway.FlywayDatabaseMigrator;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import javax.sql.DataSource;
+import java.io.File;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class H2DatabaseManagerTest extends AbstractDatabaseTest {
+    private DatabaseMigrator migrator;
+    private H2DatabaseManager databaseManager;
+
+    @Before
+    public void setUp() throws Exception {
+        migrator = spy(new FlywayDatabaseMigrator());
+        databaseManager = new H2DatabaseManager(new SimpleDirectoryProvider(databaseFolder), migrator);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        databaseManager.unload();
+    }
+
+    @Test
+    public void load_shouldRememberTheMigratedSchemaNextToTheDatabase() {
+        databaseManager.load();
+
+        verify(migrator).migrate(any(DataSource.class));
+        assertTrue(new File(databaseFolder, SchemaFingerprint.FILE_NAME).isFile());
+    }
+
+    @Test
+    public void load_shouldSkipTheMigrationWhenTheSchemaIsUpToDate() {
+        databaseManager.load();
+        databaseManager.unload();
+
+        databaseManager.load();
+
+        verify(migrator, times(1)).migrate(any(DataSource.class));
+    }
+
+    @Test
+    public void load_shouldMigrateWhenTheBundledMigrationsChanged() throws Exception {
+        databaseManager.load();
+        databaseManager.unload();
+        FileUtils.fileWrite(new File(databaseFolder, SchemaFingerprint.FILE_NAME).getAbsolutePath(), "V1:0");
+
+        databaseManager.load();
+
+        verify(migrator, times(2)).migrate(any(DataSource.class));
+    }
+
+    @Test
+    public void load_shouldMigrateWhenTheDatabaseIsGone() throws Exception {
+        databaseManager.load();
+        databaseManager.unload();
+        new File(databaseFolder, "stats.h2.db").delete();
+
+        databaseManager.load();
+
+        verify(migrator, times(2)).migrate(any(DataSource.class));
+    }
+
+    @Test
+    public void load_shouldWaitLongerForALockThanTheDefaultOfH2() {
+        Handle handle = new DBI(databaseManager.load()).open();
+        try {
+            assertEquals(H2DatabaseManager.DEFAULT_LOCK_TIMEOUT, (long) handle.createQuery("call lock_timeout()").mapTo(Long.class).first());
+        } finally {
+            handle.close();
+        }
+    }
+
+    @Test
+    public void compact_shouldKeepTheDataOfTheDatabase() {
+        Handle handle = new DBI(databaseManager.load()).open();
+        handle.execute("insert into build (id, start_time) values (1, now())");
+        handle.close();
+
+        assertTrue(databaseManager.compact());
+
+        handle = new DBI(databaseManager.load()).open();
+        assertEquals(1, (int) handle.createQuery("select count(1) from build").mapTo(Integer.class).first());
+        handle.close();
+    }
+
+    @Test
+    public void compact_shouldNotCompactWhileAnotherConnectionIsOpen() throws Exception {
+        H2DatabaseManager otherProcess = new H2DatabaseManager(new SimpleDirectoryProvider(databaseFolder), migrator);
+        Handle handle = new DBI(otherProcess.load()).open();
+        try {
+            assertFalse(databaseManager.compact());
+        } finally {
+            handle.close();
+            otherProcess.unload();
+        }
+    }
+}
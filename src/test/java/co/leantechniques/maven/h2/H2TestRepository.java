@@ -13,14 +13,19 @@
  */
 package co.leantechniques.maven.h2;
 
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.Outcome;
 import co.leantechniques.maven.scm.CodeRevision;
+import co.leantechniques.maven.sketch.LatencySketch;
 import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
 
 import javax.sql.DataSource;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -50,6 +55,40 @@ public class H2TestRepository {
         assertEquals("we should have insert an execution", 1, count);
     }
 
+    public void assertDuration(MavenSession session, String goal, long durationNanos) {
+        Map<String, Object> execution = handle.createQuery("select duration_nanos, elapsed_millis_time from plugin_execution where goal = ? and build_id = ?")
+                .bind(0, goal)
+                .bind(1, getBuildId(session))
+                .first();
+
+        assertEquals(durationNanos, execution.get("duration_nanos"));
+        assertEquals(durationNanos / 1000000, execution.get("elapsed_millis_time"));
+    }
+
+    public void assertOutcome(MavenSession session, String goal, Outcome expectedOutcome) {
+        String buildOutcome = handle.createQuery("select outcome from build where id = ?")
+                .bind(0, getBuildId(session))
+                .mapTo(String.class)
+                .first();
+        String executionOutcome = handle.createQuery("select outcome from plugin_execution where goal = ? and build_id = ? and end_time is not null")
+                .bind(0, goal)
+                .bind(1, getBuildId(session))
+                .mapTo(String.class)
+                .first();
+
+        assertEquals(expectedOutcome.name(), buildOutcome);
+        assertEquals(expectedOutcome.name(), executionOutcome);
+    }
+
+    public void assertNumberOfExecutions(MavenSession session, int expectedCount) {
+        int count = handle.createQuery("select count(1) from plugin_execution where build_id = ?")
+                .bind(0, getBuildId(session))
+                .mapTo(Integer.class)
+                .first();
+
+        assertEquals(expectedCount, count);
+    }
+
     public void assertPlugin(String groupId, String artifactId, String version) {
         int count = handle.createQuery("select count(1) from plugin where group_id = ? and artifact_id = ? and version = ?")
                 .bind(0, groupId)
@@ -96,6 +135,65 @@ public class H2TestRepository {
         assertEquals(systemProperties.get("os.arch"), machineInfo.get("os_arch"));
     }
 
+    public void assertNumberOfMachines(int expectedCount) {
+        int count = handle.createQuery("select count(1) from machine_info")
+                .mapTo(Integer.class)
+                .first();
+
+        assertEquals(expectedCount, count);
+    }
+
+    public void assertSketchedExecutions(Date day, String goal, long expectedCount) {
+        LatencySketch sketch = new ExecutionSketches().find(handle, ExecutionSketches.DAY, day,
+                new Artifact("1", "1", "1"), new Artifact("plugin-1", "plugin-1", "plugin-1"), goal);
+
+        assertNotNull("we should have a sketch of the day", sketch);
+        assertEquals(expectedCount, sketch.getCount());
+    }
+
+    public void assertCriticalPath(MavenSession session, long makespanMillis, String... artifactIds) {
+        long criticalPathMillis = handle.createQuery("select critical_path_millis from build where id = ?")
+                .bind(0, getBuildId(session))
+                .mapTo(Long.class)
+                .first();
+        List<String> path = handle.createQuery("select p.artifact_id from build_project bp inner join project p on p.id = bp.project_id " +
+                "where bp.build_id = ? and bp.critical_path_position > 0 order by bp.critical_path_position")
+                .bind(0, getBuildId(session))
+                .mapTo(String.class)
+                .list();
+
+        assertEquals(makespanMillis, criticalPathMillis);
+        assertEquals(Arrays.asList(artifactIds), path);
+    }
+
+    public void assertNumberOfUpstreamProjects(MavenSession session, int expectedCount) {
+        int count = handle.createQuery("select count(1) from build_project_dependency where build_id = ?")
+                .bind(0, getBuildId(session))
+                .mapTo(Integer.class)
+                .first();
+
+        assertEquals(expectedCount, count);
+    }
+
+    public void assertBuilderThreads(MavenSession session, int threads, String... threadNames) {
+        Map<String, Object> build = handle.createQuery("select threads, parallel_efficiency from build where id = ?")
+                .bind(0, getBuildId(session))
+                .first();
+        List<String> names = handle.createQuery("select thread_name from build_thread where build_id = ? order by thread_name")
+                .bind(0, getBuildId(session))
+                .mapTo(String.class)
+                .list();
+        String executionThread = handle.createQuery("select max(thread_name) from plugin_execution where build_id = ?")
+                .bind(0, getBuildId(session))
+                .mapTo(String.class)
+                .first();
+
+        assertEquals(threads, ((Number) build.get("threads")).intValue());
+        assertNotNull(build.get("parallel_efficiency"));
+        assertEquals(Arrays.asList(threadNames), names);
+        assertEquals(threadNames[0], executionThread);
+    }
+
     public void assertCodeRevision(MavenSession session, CodeRevision codeRevision) {
         MavenExecutionRequest request = session.getRequest();
         Map<String, Object> build = handle.createQuery("select * from build where id = ?")
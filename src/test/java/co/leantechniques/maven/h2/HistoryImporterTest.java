@@ -0,0 +1,168 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.flyway.FlywayDatabaseMigrator;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.apache.maven.eventspy.ExecutionEventBuilder;
+import org.apache.maven.eventspy.MavenSessionBuilder;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+public class HistoryImporterTest extends AbstractDatabaseTest {
+    private H2DatabaseManager source;
+    private H2DatabaseManager target;
+    private H2BuildInformationRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        source = new H2DatabaseManager();
+        repository = new H2BuildInformationRepository();
+        repository.setH2DatabaseManager(source);
+        target = new H2DatabaseManager(new SimpleDirectoryProvider(temporaryFolder.newFolder("target")), new FlywayDatabaseMigrator());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.cleanUp();
+        source.unload();
+        target.unload();
+    }
+
+    @Test
+    public void shouldLoadAnExportedHistoryKeepingTheIds() throws Exception {
+        save(repository, 1000L, "plugin-1");
+        save(repository, 2000L, "plugin-2");
+        StringWriter exported = new StringWriter();
+        long exportedRows = new HistoryExporter(source.load()).export(exported);
+
+        HistoryImporter importer = new HistoryImporter(target.load());
+        importer.setBatchSize(2);
+        long importedRows = importer.importFrom(new StringReader(exported.toString()));
+
+        assertEquals(exportedRows, importedRows);
+        for (HistoryTable table : HistoryTable.values()) {
+            assertEquals(table.tableName, rowsOf(source, table), rowsOf(target, table));
+        }
+    }
+
+    @Test
+    public void shouldExportEveryPageOfALargeTable() throws Exception {
+        Handle handle = new DBI(source.load()).open();
+        try {
+            PreparedBatch batch = handle.prepareBatch("insert into plugin (group_id, artifact_id, version) values (?,?,?)");
+            for (int i = 0; i < HistoryExporter.PAGE_SIZE * 2 + 1; i++) {
+                batch.add("group", "plugin-" + i, "1");
+            }
+            batch.execute();
+        } finally {
+            handle.close();
+        }
+        StringWriter exported = new StringWriter();
+        new HistoryExporter(source.load()).export(exported);
+
+        new HistoryImporter(target.load()).importFrom(new StringReader(exported.toString()));
+
+        assertEquals(rowsOf(source, HistoryTable.PLUGIN), rowsOf(target, HistoryTable.PLUGIN));
+        assertEquals(HistoryExporter.PAGE_SIZE * 2 + 1, rowsOf(target, HistoryTable.PLUGIN).size());
+    }
+
+    @Test
+    public void shouldContinueTheGeneratedIdsAfterTheImportedRows() throws Exception {
+        save(repository, 1000L, "plugin-1");
+        StringWriter exported = new StringWriter();
+        new HistoryExporter(source.load()).export(exported);
+        new HistoryImporter(target.load()).importFrom(new StringReader(exported.toString()));
+
+        H2BuildInformationRepository targetRepository = new H2BuildInformationRepository();
+        targetRepository.setH2DatabaseManager(target);
+        save(targetRepository, 2000L, "plugin-2");
+        targetRepository.cleanUp();
+
+        assertEquals(2, rowsOf(target, HistoryTable.PLUGIN_EXECUTION).size());
+        assertEquals(2, rowsOf(target, HistoryTable.PLUGIN).size());
+    }
+
+    @Test
+    public void shouldRefuseToImportIntoADatabaseWithHistory() throws Exception {
+        save(repository, 1000L, "plugin-1");
+
+        try {
+            new HistoryImporter(source.load()).importFrom(new StringReader(""));
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The history can only be imported into an empty database, machine_info has 1 row(s)", e.getMessage());
+        }
+    }
+
+    private List<Map<String, Object>> rowsOf(H2DatabaseManager databaseManager, HistoryTable table) {
+        Handle handle = new DBI(databaseManager.load()).open();
+        try {
+            List<Map<String, Object>> rows = handle.createQuery(selectAll(table)).list();
+            for (Map<String, Object> row : rows) {
+                for (Map.Entry<String, Object> column : row.entrySet()) {
+                    if (column.getValue() instanceof byte[]) {
+                        // arrays are only equal to themselves
+                        column.setValue(Arrays.toString((byte[]) column.getValue()));
+                    }
+                }
+            }
+            return rows;
+        } finally {
+            handle.close();
+        }
+    }
+
+    private String selectAll(HistoryTable table) {
+        StringBuilder columns = new StringBuilder();
+        for (String column : table.getColumns()) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+            }
+            columns.append(column);
+        }
+        return "select " + columns + " from " + table.tableName + " order by id";
+    }
+
+    private MavenSession save(H2BuildInformationRepository repository, long startTime, String plugin) {
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(new MavenSessionBuilder(new Date(startTime)));
+        builder.withProject("project", "project", "1");
+        builder.withPlugin(plugin, plugin, "1", "compile").starting();
+        ExecutionEvent started = builder.toEvent();
+        BuildInformation buildInformation = new BuildInformation(started.getSession(), "data", new CodeRevision("git", "revision"));
+        buildInformation.addMavenEvent(started);
+        builder.withPlugin(plugin, plugin, "1", "compile").successful();
+        buildInformation.addMavenEvent(builder.toEvent());
+        buildInformation.setEndTime(new Date(startTime + 100));
+        repository.save(buildInformation);
+        return started.getSession();
+    }
+}
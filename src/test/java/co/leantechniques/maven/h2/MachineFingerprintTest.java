@@ -0,0 +1,36 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+public class MachineFingerprintTest {
+    @Test
+    public void shouldBeTheSameForTheSameMachine() {
+        assertEquals(MachineFingerprint.of("user", "3.0.5", "1.6", "agent", "Linux", "amd64"),
+                MachineFingerprint.of("user", "3.0.5", "1.6", "agent", "Linux", "amd64"));
+        assertEquals(40, MachineFingerprint.of(null, null, null, null, null, null).length());
+    }
+
+    @Test
+    public void shouldKeepTheValuesApart() {
+        assertFalse(MachineFingerprint.of("ab", "c", null, null, null, null)
+                .equals(MachineFingerprint.of("a", "bc", null, null, null, null)));
+        assertFalse(MachineFingerprint.of("", null, null, null, null, null)
+                .equals(MachineFingerprint.of(null, "", null, null, null, null)));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import com.googlecode.flyway.core.Flyway;
+import com.googlecode.flyway.core.api.MigrationVersion;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+public class MachineInfoFingerprintMigrationTest extends AbstractDatabaseTest {
+    private JdbcConnectionPool dataSource;
+    private Handle handle;
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:" + databaseFolder.getAbsolutePath() + "/stats", "", "");
+        handle = new DBI(dataSource).open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        dataSource.dispose();
+    }
+
+    @Test
+    public void shouldCollapseTheDuplicateMachinesIntoTheOldestRow() {
+        migrate(new MigrationVersion("12"));
+        insertMachine(1, "agent-1");
+        insertMachine(2, "agent-1");
+        insertMachine(3, "agent-2");
+        insertMachine(4, "agent-1");
+        for (int buildId = 1; buildId <= 4; buildId++) {
+            handle.createStatement("insert into build (id, machine_info_id) values (?, ?)").bind(0, buildId).bind(1, buildId).execute();
+        }
+
+        migrate(MigrationVersion.LATEST);
+
+        List<Long> machines = handle.createQuery("select id from machine_info order by id").mapTo(Long.class).list();
+        assertEquals(2, machines.size());
+        assertEquals(1L, machines.get(0).longValue());
+        assertEquals(3L, machines.get(1).longValue());
+        List<Long> buildMachines = handle.createQuery("select machine_info_id from build order by id").mapTo(Long.class).list();
+        assertEquals("[1, 1, 3, 1]", buildMachines.toString());
+        assertEquals(MachineFingerprint.of("user", "3.0.5", "1.6", "agent-1", "Linux", "amd64"),
+                handle.createQuery("select fingerprint from machine_info where id = 1").mapTo(String.class).first());
+    }
+
+    private void insertMachine(long id, String computerName) {
+        handle.createStatement("insert into machine_info (id, username, maven_version, java_version, computer_name, os, os_arch) values (?, 'user', '3.0.5', '1.6', ?, 'Linux', 'amd64')")
+                .bind(0, id)
+                .bind(1, computerName)
+                .execute();
+    }
+
+    private void migrate(MigrationVersion target) {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setInitOnMigrate(true);
+        flyway.setTarget(target);
+        flyway.migrate();
+    }
+}
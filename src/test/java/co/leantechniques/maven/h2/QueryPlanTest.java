@@ -0,0 +1,105 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class QueryPlanTest extends AbstractDatabaseTest {
+    private H2DatabaseManager databaseManager;
+    private Handle handle;
+
+    @Before
+    public void setUp() throws Exception {
+        loadOldDatabaseScript(databaseFolder);
+        databaseManager = new H2DatabaseManager();
+        handle = new DBI(databaseManager.load()).open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        databaseManager.unload();
+    }
+
+    @Test
+    public void shouldLookUpPluginsByTheirCoordinatesUsingTheUniqueIndex() {
+        assertPlanUses("UX_PLUGIN_GAV", "select id from plugin where group_id = 'g' and artifact_id = 'a' and version = 'v'");
+    }
+
+    @Test
+    public void shouldLookUpProjectsByTheirCoordinatesUsingTheUniqueIndex() {
+        assertPlanUses("UX_PROJECT_GAV", "select id from project where group_id = 'g' and artifact_id = 'a' and version = 'v'");
+    }
+
+    @Test
+    public void shouldFindPartialBuildsUsingTheEndTimeIndex() {
+        assertPlanUses("IX_BUILD_END_TIME_START_TIME", "select id from build where end_time is null and start_time < '2013-01-01'");
+    }
+
+    @Test
+    public void shouldFindTheExecutionsOfABuildUsingAnIndex() {
+        assertPlanUses("BUILD_ID = 1 */", "select project_id, plugin_id from plugin_execution where build_id = 1");
+        assertPlanUses("BUILD_ID = 1 */", "delete from plugin_execution where build_id = 1");
+    }
+
+    @Test
+    public void shouldFindTheExecutionsAfterTheRegressionCheckpointUsingAnIndex() {
+        assertPlanUses("IX_BUILD_SAVE_SEQ", "select save_seq from build where save_seq > 1 and end_time is not null order by save_seq");
+        assertPlanUses("FK_PLUGIN_EXECUTION_TO_BUILD", "select pe.goal from build b inner join plugin_execution pe on pe.build_id = b.id " +
+                "where b.save_seq > 1 and b.save_seq <= 2");
+        assertPlanUses("UX_REGRESSION_SERIES", "select state from regression_series where plugin_group_id = 'plugin' " +
+                "and plugin_artifact_id = 'plugin' and project_group_id = 'project' and project_artifact_id = 'project' and goal = 'goal'");
+    }
+
+    @Test
+    public void shouldFindTheExecutionsOfAPluginGoalUsingTheSeriesIndex() {
+        assertPlanUses("IX_PLUGIN_EXECUTION_SERIES", "select start_time from plugin_execution where plugin_id = 1 and project_id = 1 and goal = 'goal'");
+    }
+
+    @Test
+    public void shouldCollapseDuplicatePluginsAndProjects() {
+        assertEquals(1, count("select count(1) from plugin where artifact_id = 'plugin'"));
+        assertEquals(1, count("select count(1) from project where artifact_id = 'project'"));
+        assertEquals(2, count("select count(1) from plugin_execution where plugin_id = 1 and project_id = 1"));
+        assertEquals(1, count("select count(1) from build where top_level_project_id = 1"));
+    }
+
+    @Test
+    public void shouldNotAllowDuplicatePlugins() {
+        handle.execute("insert into plugin (group_id, artifact_id, version) values ('g', 'a', 'v')");
+        try {
+            handle.execute("insert into plugin (group_id, artifact_id, version) values ('g', 'a', 'v')");
+        } catch (RuntimeException e) {
+            assertEquals(1, count("select count(1) from plugin where artifact_id = 'a'"));
+            return;
+        }
+        throw new AssertionError("the duplicate plugin should have been rejected");
+    }
+
+    private int count(String query) {
+        return handle.createQuery(query).mapTo(Integer.class).first();
+    }
+
+    private void assertPlanUses(String expectedIndexLookup, String query) {
+        String plan = handle.createQuery("explain " + query).mapTo(String.class).first();
+        assertTrue("expected " + expectedIndexLookup + " in the plan, but the plan was: " + plan, plan.contains(expectedIndexLookup));
+    }
+}
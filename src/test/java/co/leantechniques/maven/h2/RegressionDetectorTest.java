@@ -0,0 +1,154 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class RegressionDetectorTest extends AbstractDatabaseTest {
+    private static final long MILLIS = 1000000L;
+
+    private H2DatabaseManager databaseManager;
+    private Handle handle;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseManager = new H2DatabaseManager();
+        handle = new DBI(databaseManager.load()).open();
+        handle.execute("insert into project (id, group_id, artifact_id, version) values (1, 'project', 'project', '1')");
+        handle.execute("insert into plugin (id, group_id, artifact_id, version) values (2, 'plugin', 'plugin', '1')");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handle.close();
+        databaseManager.unload();
+    }
+
+    @Test
+    public void run_shouldAttributeTheShiftToTheRevisionItStartedAt() {
+        saveBuilds(1, 20, 100 * MILLIS);
+        saveBuilds(21, 30, 300 * MILLIS);
+
+        assertEquals(30, new RegressionDetector(1000).run(handle));
+
+        List<Map<String, Object>> regressions = regressions();
+        assertEquals(1, regressions.size());
+        assertEquals("SLOWER", regressions.get(0).get("direction"));
+        assertEquals(21L, regressions.get(0).get("start_build_id"));
+        assertEquals("revision-21", regressions.get(0).get("scm_revision"));
+        assertEquals(101 * MILLIS, (Long) regressions.get(0).get("baseline_nanos"), MILLIS);
+    }
+
+    @Test
+    public void run_shouldOnlyLookAtTheBuildsAfterTheCheckpoint() {
+        saveBuilds(1, 20, 100 * MILLIS);
+        RegressionDetector detector = new RegressionDetector(1000);
+        detector.run(handle);
+
+        saveBuilds(21, 30, 300 * MILLIS);
+
+        assertEquals(10, detector.run(handle));
+        assertEquals(0, detector.run(handle));
+        assertEquals(1, regressions().size());
+        assertEquals("revision-21", regressions().get(0).get("scm_revision"));
+    }
+
+    @Test
+    public void run_shouldLookAtABuildThatWasSavedAfterTheCheckpointEvenIfItStartedBefore() {
+        saveBuilds(100, 119, 100 * MILLIS);
+        RegressionDetector detector = new RegressionDetector(1000);
+        detector.run(handle);
+
+        // a long build that started before the others and ended after them
+        saveBuilds(50, 50, 100 * MILLIS);
+
+        assertEquals(1, detector.run(handle));
+        assertEquals(50L, (long) handle.createQuery("select last_build_id from regression_series").mapTo(Long.class).first());
+    }
+
+    @Test
+    public void run_shouldContinueTheSeriesOfThePreviousVersionOfAPlugin() {
+        handle.execute("insert into plugin (id, group_id, artifact_id, version) values (3, 'plugin', 'plugin', '2')");
+        saveBuilds(1, 20, 2, 100 * MILLIS);
+        saveBuilds(21, 30, 3, 300 * MILLIS);
+
+        new RegressionDetector(1000).run(handle);
+
+        List<Map<String, Object>> regressions = regressions();
+        assertEquals(1, regressions.size());
+        assertEquals("plugin", regressions.get(0).get("plugin_artifact_id"));
+        assertEquals("revision-21", regressions.get(0).get("scm_revision"));
+        assertEquals(1, (int) handle.createQuery("select count(1) from regression_series").mapTo(Integer.class).first());
+    }
+
+    @Test
+    public void run_shouldStopAfterTheMaximumNumberOfBuilds() {
+        saveBuilds(1, 20, 100 * MILLIS);
+        saveBuilds(21, 30, 300 * MILLIS);
+        RegressionDetector detector = new RegressionDetector(7);
+
+        int runs = 0;
+        do {
+            detector.run(handle);
+            runs++;
+        } while (detector.hasMoreWork());
+
+        assertEquals(5, runs);
+        assertFalse(detector.hasMoreWork());
+        assertEquals(1, regressions().size());
+        assertEquals(21L, regressions().get(0).get("start_build_id"));
+    }
+
+    @Test
+    public void run_shouldSkipTheBuildsThatDidNotFinish() {
+        saveBuilds(1, 20, 100 * MILLIS);
+        handle.execute("insert into build (id, start_time) values (21, ?)", new Timestamp(21));
+
+        new RegressionDetector(1000).run(handle);
+
+        assertTrue(regressions().isEmpty());
+        assertEquals(1, (int) handle.createQuery("select count(1) from regression_series").mapTo(Integer.class).first());
+    }
+
+    private void saveBuilds(int firstBuildId, int lastBuildId, long durationNanos) {
+        saveBuilds(firstBuildId, lastBuildId, 2, durationNanos);
+    }
+
+    private void saveBuilds(int firstBuildId, int lastBuildId, long pluginId, long durationNanos) {
+        for (long buildId = firstBuildId; buildId <= lastBuildId; buildId++) {
+            // a little noise, a series of identical durations is not what builds look like
+            long duration = durationNanos + (buildId % 3) * MILLIS;
+            handle.execute("insert into build (id, start_time, end_time, scm_revision) values (?,?,?,?)",
+                    buildId, new Timestamp(buildId), new Timestamp(buildId + 1), "revision-" + buildId);
+            handle.execute("insert into plugin_execution (build_id, project_id, plugin_id, goal, start_time, end_time, duration_nanos) " +
+                    "values (?,1,?,'compile',?,?,?)", buildId, pluginId, new Timestamp(buildId), new Timestamp(buildId + 1), duration);
+        }
+    }
+
+    private List<Map<String, Object>> regressions() {
+        return handle.createQuery("select * from regression order by id").list();
+    }
+}
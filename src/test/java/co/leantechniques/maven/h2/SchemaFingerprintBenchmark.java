@@ -0,0 +1,64 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Initializes a repository against an existing database until it is open, once with the schema fingerprint
+ * removed before every start, which runs the Flyway migration the way every start did before, and once with
+ * the fingerprint in place, and prints the milliseconds per start of both.
+ * Run it with <code>mvn test -Pbenchmark -Dtest=SchemaFingerprintBenchmark</code>.
+ */
+public class SchemaFingerprintBenchmark extends AbstractDatabaseTest {
+    private static final int WARM_UPS = 5;
+    private static final int RUNS = 20;
+
+    @Test
+    public void initializeAnExistingDatabase() {
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        databaseManager.load();
+        databaseManager.unload();
+
+        double withFlyway = millisPerStart(true);
+        double withFingerprint = millisPerStart(false);
+
+        assertTrue(new SchemaFingerprint(databaseFolder).isCurrent());
+        System.out.println(String.format("initialize with the Flyway migration: %.1f ms, with the schema fingerprint: %.1f ms",
+                withFlyway, withFingerprint));
+    }
+
+    private double millisPerStart(boolean migrate) {
+        long elapsedNanos = 0;
+        for (int run = 0; run < WARM_UPS + RUNS; run++) {
+            if (migrate) {
+                new SchemaFingerprint(databaseFolder).invalidate();
+            }
+            H2BuildInformationRepository repository = new H2BuildInformationRepository();
+            // only the opening of the database is measured
+            repository.setDatabaseMaintenance(mock(DatabaseMaintenance.class));
+            long start = System.nanoTime();
+            repository.initialize(null);
+            repository.awaitMaintenance();
+            if (run >= WARM_UPS) {
+                elapsedNanos += System.nanoTime() - start;
+            }
+            repository.cleanUp();
+        }
+        return elapsedNanos / 1000000.0 / RUNS;
+    }
+}
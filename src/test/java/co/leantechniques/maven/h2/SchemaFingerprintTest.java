@@ -0,0 +1,77 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.h2;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class SchemaFingerprintTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private File databaseDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseDirectory = temporaryFolder.newFolder("db");
+    }
+
+    @Test
+    public void shouldBeCurrentWhenTheJarHasTheSameMigrations() throws Exception {
+        new SchemaFingerprint(databaseDirectory, jarWith("create table a (id long);")).save();
+
+        assertTrue(new SchemaFingerprint(databaseDirectory, jarWith("create table a (id long);")).isCurrent());
+    }
+
+    @Test
+    public void shouldNotBeCurrentWhenAMigrationOfTheJarChanged() throws Exception {
+        new SchemaFingerprint(databaseDirectory, jarWith("create table a (id long);")).save();
+
+        assertFalse(new SchemaFingerprint(databaseDirectory, jarWith("create table b (id long);")).isCurrent());
+    }
+
+    @Test
+    public void shouldNeverBeCurrentWhenTheMigrationsCanNotBeFound() throws Exception {
+        SchemaFingerprint fingerprint = new SchemaFingerprint(databaseDirectory, null);
+        fingerprint.save();
+
+        assertFalse(fingerprint.isCurrent());
+    }
+
+    private CodeSource jarWith(String migration) throws Exception {
+        File jar = File.createTempFile("extension", ".jar", temporaryFolder.getRoot());
+        ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            output.putNextEntry(new ZipEntry("db/migration/"));
+            output.putNextEntry(new ZipEntry("db/migration/V2__create_table.sql"));
+            output.write(migration.getBytes("UTF-8"));
+            output.putNextEntry(new ZipEntry("co/leantechniques/maven/Unrelated.class"));
+            output.write(new byte[]{1, 2, 3});
+        } finally {
+            output.close();
+        }
+        return new CodeSource(jar.toURI().toURL(), (Certificate[]) null);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.apache.maven.eventspy.ExecutionEventBuilder;
+import org.apache.maven.eventspy.MavenSessionBuilder;
+import org.apache.maven.execution.ExecutionEvent;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+public class BuildRecordCodecTest {
+    private BuildRecordCodec codec = new BuildRecordCodec();
+
+    @Test
+    public void shouldReadBackWhatWasWritten() throws IOException {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withGoals("clean", "verify");
+        sessionBuilder.withJavaVersion("java-version");
+        sessionBuilder.withUsername("username");
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("group", "artifact", "1.0");
+        builder.withPlugin("plugin-group", "plugin", "2.0", "compile").starting();
+        ExecutionEvent started = builder.toEvent();
+        BuildInformation original = new BuildInformation(started.getSession(), "build-data", new CodeRevision("git", "abc"));
+        original.addMavenEvent(started);
+        builder.withPlugin("plugin-group", "plugin", "2.0", "compile").failed();
+        original.addMavenEvent(builder.toEvent());
+        builder.withPlugin("plugin-group", "plugin", "2.0", "test").starting();
+        original.addMavenEvent(builder.toEvent());
+        original.projectFinished(builder.withProjectFailed().toEvent());
+        original.setEndTime(new Date());
+
+        BuildInformation restored = codec.decode(codec.encode(original));
+
+        assertEquals(original.getId(), restored.getId());
+        assertEquals(original.getEndTime(), restored.getEndTime());
+        assertEquals(original.getGoals(), restored.getGoals());
+        assertEquals(original.getTopLevelProject(), restored.getTopLevelProject());
+        assertEquals("build-data", restored.getUserSpecifiedBuildData());
+        assertEquals("java-version", restored.getJavaVersion());
+        assertEquals("username", restored.getUsername());
+        assertEquals("git", restored.getCodeRevision().scm);
+        assertEquals("abc", restored.getCodeRevision().revision);
+        assertEquals(Outcome.FAILURE, restored.getOutcome());
+        assertEquals(original.getThreads(), restored.getThreads());
+
+        Project project = restored.getProjects().get(0);
+        assertEquals(original.getProjects().get(0), project);
+        assertEquals(Outcome.FAILURE, project.getOutcome());
+        assertEquals(2, project.getPluginExecutions().size());
+
+        PluginExecution originalCompile = original.getProjects().get(0).getPluginExecutions().get(0);
+        PluginExecution compile = project.getPluginExecutions().get(0);
+        assertEquals(originalCompile, compile);
+        assertEquals(originalCompile.startTime, compile.startTime);
+        assertEquals(originalCompile.endTime, compile.endTime);
+        assertEquals(originalCompile.getDurationNanos(), compile.getDurationNanos());
+        assertEquals(Outcome.FAILURE, compile.outcome);
+        assertEquals(Thread.currentThread().getName(), compile.threadName);
+        assertEquals(Thread.currentThread().getId(), compile.threadId);
+
+        PluginExecution test = project.getPluginExecutions().get(1);
+        assertEquals("test", test.goal);
+        assertNull(test.endTime);
+        assertNull(test.getDurationNanos());
+        assertNull(test.outcome);
+    }
+
+    @Test
+    public void shouldReadBackTheScheduleOfTheProjects() throws IOException {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder();
+        sessionBuilder.withProject("group", "core", "1");
+        sessionBuilder.withProject("group", "web", "1");
+        sessionBuilder.withUpstreamProject("web", "core");
+        BuildInformation original = new BuildInformation(sessionBuilder.toSession(), null, new CodeRevision("git", "abc"));
+        Project core = original.getProjects().get(0);
+        core.start(new Date(1000L));
+        core.finish(Outcome.SUCCESS, new Date(2000L));
+
+        BuildInformation restored = codec.decode(codec.encode(original));
+
+        Project restoredCore = restored.getProjects().get(0);
+        assertEquals(new Date(1000L), restoredCore.getStartTime());
+        assertEquals(new Date(2000L), restoredCore.getEndTime());
+        assertNull(restored.getProjects().get(1).getStartTime());
+        assertSame(restoredCore, restored.getProjects().get(1).getUpstreamProjects().get(0));
+    }
+}
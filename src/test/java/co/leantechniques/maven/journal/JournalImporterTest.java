@@ -0,0 +1,114 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.h2.AbstractDatabaseTest;
+import co.leantechniques.maven.h2.H2BuildInformationRepository;
+import co.leantechniques.maven.h2.H2DatabaseManager;
+import co.leantechniques.maven.h2.H2TestRepository;
+import co.leantechniques.maven.h2.SimpleDirectoryProvider;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.apache.maven.eventspy.ExecutionEventBuilder;
+import org.apache.maven.eventspy.MavenSessionBuilder;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class JournalImporterTest extends AbstractDatabaseTest {
+    private JournalBuildInformationRepository journalRepository;
+    private H2BuildInformationRepository h2Repository;
+    private H2TestRepository testRepository;
+    private Journal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        journalRepository = new JournalBuildInformationRepository(new SimpleDirectoryProvider(databaseFolder));
+        journalRepository.initialize(null);
+
+        H2DatabaseManager databaseManager = new H2DatabaseManager();
+        h2Repository = new H2BuildInformationRepository();
+        h2Repository.setH2DatabaseManager(databaseManager);
+        h2Repository.initialize(null);
+        testRepository = new H2TestRepository(databaseManager.load());
+
+        journal = new Journal(JournalBuildInformationRepository.journalDirectoryOf(databaseFolder), 1024);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journalRepository.cleanUp();
+        h2Repository.cleanUp();
+    }
+
+    @Test
+    public void shouldMergeTheSealedSegmentsIntoTheDatabase() throws Exception {
+        MavenSession first = journalBuild(1000L);
+        MavenSession second = journalBuild(2000L);
+        journalRepository.cleanUp();
+
+        assertEquals(2, new JournalImporter(journal, h2Repository).importSegments());
+
+        testRepository.assertEndOfBuild(first);
+        testRepository.assertEndOfBuild(second);
+        testRepository.assertExecution(second, "plugin:plugin:1:compile", "compile");
+        assertTrue(journal.sealedSegments().isEmpty());
+    }
+
+    @Test
+    public void shouldNotImportTheSegmentThatIsStillWrittenTo() throws Exception {
+        journalBuild(1000L);
+
+        assertEquals(0, new JournalImporter(journal, h2Repository).importSegments());
+        assertTrue(journalRepository.getJournal().getCurrentSegment().exists());
+    }
+
+    @Test
+    public void shouldSkipBuildsThatWereAlreadyImported() throws Exception {
+        journalBuild(1000L);
+        File segment = journalRepository.getJournal().getCurrentSegment();
+        journalRepository.cleanUp();
+        File copy = new File(temporaryFolder.getRoot(), "copy");
+        FileUtils.copyFile(segment, copy);
+        new JournalImporter(journal, h2Repository).importSegments();
+
+        // the process died after the import committed but before the segment was deleted
+        FileUtils.copyFile(copy, segment);
+
+        assertEquals(0, new JournalImporter(journal, h2Repository).importSegments());
+        assertTrue(journal.sealedSegments().isEmpty());
+    }
+
+    private MavenSession journalBuild(long startTime) {
+        MavenSessionBuilder sessionBuilder = new MavenSessionBuilder(new Date(startTime));
+        ExecutionEventBuilder builder = new ExecutionEventBuilder(sessionBuilder);
+        builder.withProject("project", "project", "1");
+        builder.withPlugin("plugin", "plugin", "1", "compile").starting();
+        ExecutionEvent event = builder.toEvent();
+        BuildInformation buildInformation = new BuildInformation(event.getSession(), null, new CodeRevision("git", "revision"));
+        buildInformation.addMavenEvent(event);
+        buildInformation.setEndTime(new Date(startTime + 100));
+        journalRepository.save(buildInformation);
+        return event.getSession();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.journal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class JournalTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("journal");
+    }
+
+    @Test
+    public void shouldReadBackTheAppendedRecordsOnceTheSegmentIsSealed() throws IOException {
+        Journal journal = new Journal(directory, 1024);
+        journal.append("one".getBytes("UTF-8"));
+        journal.append("two".getBytes("UTF-8"));
+        assertTrue("the segment is still written to", journal.sealedSegments().isEmpty());
+
+        journal.close();
+
+        List<File> segments = journal.sealedSegments();
+        assertEquals(1, segments.size());
+        List<byte[]> records = journal.read(segments.get(0));
+        assertEquals(2, records.size());
+        assertEquals("one", new String(records.get(0), "UTF-8"));
+        assertEquals("two", new String(records.get(1), "UTF-8"));
+    }
+
+    @Test
+    public void shouldNotListTheSegmentOfAnotherWriter() throws IOException {
+        Journal writer = new Journal(directory, 1024);
+        writer.append("one".getBytes("UTF-8"));
+
+        assertTrue(new Journal(directory, 1024).sealedSegments().isEmpty());
+        writer.close();
+        assertEquals(1, new Journal(directory, 1024).sealedSegments().size());
+    }
+
+    @Test
+    public void shouldRollOverToANewSegmentWhenTheSegmentIsFull() throws IOException {
+        Journal journal = new Journal(directory, 20);
+        journal.append(new byte[10]);
+        File first = journal.getCurrentSegment();
+        journal.append(new byte[10]);
+
+        assertFalse(first.equals(journal.getCurrentSegment()));
+        assertEquals(1, journal.sealedSegments().size());
+        journal.close();
+        assertEquals(2, journal.sealedSegments().size());
+    }
+
+    @Test
+    public void shouldStopReadingAtATornRecord() throws IOException {
+        Journal journal = new Journal(directory, 1024);
+        journal.append("one".getBytes("UTF-8"));
+        journal.append("two".getBytes("UTF-8"));
+        File segment = journal.getCurrentSegment();
+        journal.close();
+
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 1);
+        file.close();
+
+        assertEquals(1, journal.read(segment).size());
+    }
+}
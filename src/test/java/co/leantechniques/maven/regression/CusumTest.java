@@ -0,0 +1,114 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.regression;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+public class CusumTest {
+    private final Random random = new Random(7);
+
+    @Test
+    public void add_shouldNotFindAShiftInNoise() {
+        Cusum cusum = new Cusum();
+
+        for (long buildId = 1; buildId <= 1000; buildId++) {
+            assertNull(cusum.add(buildId, noisy(100)));
+        }
+    }
+
+    @Test
+    public void add_shouldFindTheBuildWhereTheSeriesGotSlower() {
+        Cusum cusum = new Cusum();
+        for (long buildId = 1; buildId <= 20; buildId++) {
+            cusum.add(buildId, 100);
+        }
+
+        Cusum.Shift shift = null;
+        for (long buildId = 21; shift == null && buildId <= 40; buildId++) {
+            shift = cusum.add(buildId, noisy(150));
+        }
+
+        assertNotNull(shift);
+        assertEquals(Cusum.Direction.SLOWER, shift.direction);
+        assertEquals(21, shift.startBuildId);
+        assertEquals(100, shift.baselineNanos, 3);
+        assertEquals(150, shift.shiftedNanos, 3);
+    }
+
+    @Test
+    public void add_shouldFindTheBuildWhereTheSeriesGotFaster() {
+        Cusum cusum = new Cusum();
+        for (long buildId = 1; buildId <= 20; buildId++) {
+            cusum.add(buildId, 100);
+        }
+
+        Cusum.Shift shift = null;
+        for (long buildId = 21; shift == null && buildId <= 40; buildId++) {
+            shift = cusum.add(buildId, noisy(60));
+        }
+
+        assertNotNull(shift);
+        assertEquals(Cusum.Direction.FASTER, shift.direction);
+        assertEquals(21, shift.startBuildId);
+    }
+
+    @Test
+    public void add_shouldLearnTheBaselineAgainAfterAShift() {
+        Cusum cusum = new Cusum();
+        for (long buildId = 1; buildId <= 20; buildId++) {
+            cusum.add(buildId, 100);
+        }
+        long buildId = 21;
+        while (cusum.add(buildId++, 200) == null) {
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertNull(cusum.add(buildId++, noisy(200)));
+        }
+        assertEquals(200, cusum.getMean(), 3);
+    }
+
+    @Test
+    public void fromBytes_shouldCarryOnWhereTheStateWasSaved() {
+        Cusum cusum = new Cusum();
+        for (long buildId = 1; buildId <= 20; buildId++) {
+            cusum.add(buildId, noisy(100));
+        }
+        cusum.add(21, 150);
+
+        Cusum restored = Cusum.fromBytes(cusum.toBytes());
+
+        assertEquals(cusum.getSamples(), restored.getSamples());
+        assertEquals(cusum.getMean(), restored.getMean());
+        for (long buildId = 22; buildId <= 40; buildId++) {
+            Cusum.Shift expected = cusum.add(buildId, 150);
+            Cusum.Shift actual = restored.add(buildId, 150);
+            assertEquals(expected == null, actual == null);
+            if (expected != null) {
+                assertEquals(21, actual.startBuildId);
+                return;
+            }
+        }
+    }
+
+    private double noisy(double value) {
+        return value * (1 + random.nextGaussian() * 0.02);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.schedule;
+
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.Project;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class CriticalPathTest {
+    @Test
+    public void shouldFollowTheLongestChainOfDependentProjects() {
+        Project core = project("core", 0, 10);
+        Project api = project("api", 10, 40, core);
+        Project util = project("util", 10, 20, core);
+        Project web = project("web", 40, 45, api, util);
+
+        CriticalPath criticalPath = CriticalPath.of(Arrays.asList(core, api, util, web));
+
+        assertEquals(45, criticalPath.getMakespanMillis());
+        assertEquals(3, criticalPath.getPath().size());
+        assertSame(core, criticalPath.getPath().get(0).getProject());
+        assertSame(api, criticalPath.getPath().get(1).getProject());
+        assertSame(web, criticalPath.getPath().get(2).getProject());
+        assertEquals(2, criticalPath.moduleOf(api).getPosition());
+        assertEquals(0, criticalPath.moduleOf(util).getPosition());
+    }
+
+    @Test
+    public void shouldGiveTheSlackOfTheProjectsOffTheCriticalPath() {
+        Project core = project("core", 0, 10);
+        Project api = project("api", 10, 40, core);
+        Project util = project("util", 10, 20, core);
+        Project web = project("web", 40, 45, api, util);
+
+        CriticalPath criticalPath = CriticalPath.of(Arrays.asList(core, api, util, web));
+
+        assertEquals(20, criticalPath.moduleOf(util).getSlackMillis());
+        assertEquals(10, criticalPath.moduleOf(util).getEarliestStartMillis());
+        assertFalse(criticalPath.moduleOf(util).isCritical());
+        assertEquals(0, criticalPath.moduleOf(util).getSavingMillis());
+        assertTrue(criticalPath.moduleOf(api).isCritical());
+    }
+
+    @Test
+    public void shouldSaveUntilAnotherChainBecomesTheLongest() {
+        Project core = project("core", 0, 10);
+        Project api = project("api", 10, 40, core);
+        Project util = project("util", 10, 20, core);
+        Project web = project("web", 40, 45, api, util);
+
+        CriticalPath criticalPath = CriticalPath.of(Arrays.asList(core, api, util, web));
+
+        assertEquals(10, criticalPath.moduleOf(core).getSavingMillis());
+        assertEquals(20, criticalPath.moduleOf(api).getSavingMillis());
+        assertEquals(5, criticalPath.moduleOf(web).getSavingMillis());
+    }
+
+    @Test
+    public void shouldUseTheDurationsRatherThanWhenTheProjectsRan() {
+        // with a single thread the independent projects ran one after the other
+        Project first = project("first", 0, 10);
+        Project second = project("second", 10, 40);
+
+        CriticalPath criticalPath = CriticalPath.of(Arrays.asList(first, second));
+
+        assertEquals(30, criticalPath.getMakespanMillis());
+        assertEquals(1, criticalPath.getPath().size());
+        assertEquals(20, criticalPath.moduleOf(first).getSlackMillis());
+        assertEquals(20, criticalPath.moduleOf(second).getSavingMillis());
+    }
+
+    @Test
+    public void shouldHaveNoPathWhenNothingWasTimed() {
+        Project project = new Project("group", "project", "1");
+
+        CriticalPath criticalPath = CriticalPath.of(Arrays.asList(project));
+
+        assertEquals(0, criticalPath.getMakespanMillis());
+        assertTrue(criticalPath.getPath().isEmpty());
+        assertFalse(criticalPath.moduleOf(project).isCritical());
+    }
+
+    private Project project(String artifactId, long start, long end, Project... upstreamProjects) {
+        Project project = new Project("group", artifactId, "1");
+        project.start(new Date(start));
+        project.finish(Outcome.SUCCESS, new Date(end));
+        for (Project upstream : upstreamProjects) {
+            project.addUpstreamProject(upstream);
+        }
+        return project;
+    }
+}
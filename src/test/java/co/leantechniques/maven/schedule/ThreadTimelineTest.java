@@ -0,0 +1,100 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.schedule;
+
+import co.leantechniques.maven.Artifact;
+import co.leantechniques.maven.BuildInformation;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.PluginExecution;
+import co.leantechniques.maven.Project;
+import co.leantechniques.maven.scm.CodeRevision;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Properties;
+
+import static junit.framework.Assert.assertEquals;
+
+public class ThreadTimelineTest {
+    private Project project;
+
+    @Before
+    public void setUp() throws Exception {
+        project = new Project("group", "project", "1");
+    }
+
+    @Test
+    public void shouldDivideTheBusyTimeByTheThreadsAndTheWallTime() {
+        ran("compile", "thread-1", 1, 0, 50);
+        ran("test", "thread-1", 1, 50, 100);
+        ran("jar", "thread-2", 2, 0, 40);
+
+        ThreadTimeline timeline = ThreadTimeline.of(build(100, 2));
+
+        assertEquals(100, timeline.getWallMillis());
+        assertEquals(140, timeline.getBusyMillis());
+        assertEquals(0.7, timeline.getParallelEfficiency(), 0.0001);
+        assertEquals(2, timeline.getThreads().size());
+        assertEquals(60, timeline.getThreads().get(1).getIdleMillis());
+    }
+
+    @Test
+    public void shouldCountTheThreadsThatWereNeverUsed() {
+        ran("compile", "thread-1", 1, 0, 100);
+
+        ThreadTimeline timeline = ThreadTimeline.of(build(100, 4));
+
+        assertEquals(4, timeline.getThreadCount());
+        assertEquals(0.25, timeline.getParallelEfficiency(), 0.0001);
+    }
+
+    @Test
+    public void shouldCountOverlappingExecutionsOfAThreadOnce() {
+        // a mojo that forks a lifecycle runs the forked mojos on the same thread
+        ran("site", "thread-1", 1, 0, 80);
+        ran("javadoc", "thread-1", 1, 10, 30);
+        ran("deploy", "thread-1", 1, 90, 100);
+
+        ThreadTimeline.BuilderThread thread = ThreadTimeline.of(build(100, 1)).getThreads().get(0);
+
+        assertEquals(90, thread.getBusyMillis());
+        assertEquals(10, thread.getLongestIdleMillis());
+        assertEquals(2, thread.getBusyIntervals().size());
+        assertEquals(3, thread.getExecutions());
+    }
+
+    @Test
+    public void shouldIgnoreExecutionsWithoutAThread() {
+        project.addPluginExecution(new PluginExecution(new Artifact("plugin", "plugin", "1"), "compile", "default",
+                new Date(0), new Date(100), 100000000L, Outcome.SUCCESS));
+
+        ThreadTimeline timeline = ThreadTimeline.of(build(100, 1));
+
+        assertEquals(0, timeline.getThreads().size());
+        assertEquals(0.0, timeline.getParallelEfficiency());
+    }
+
+    private void ran(String goal, String threadName, long threadId, long start, long end) {
+        project.addPluginExecution(new PluginExecution(new Artifact("plugin", "plugin", "1"), goal, "default",
+                new Date(start), new Date(end), (end - start) * 1000000L, Outcome.SUCCESS, threadName, threadId));
+    }
+
+    private BuildInformation build(long endTime, int threads) {
+        return new BuildInformation(new Date(0), new Date(endTime), Collections.<String>emptyList(), project,
+                new Properties(), null, new CodeRevision("git", "abc"), Arrays.asList(project), threads);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BackgroundCodeRevisionResolverTest {
+    @Mock
+    private CodeRevisionProvider codeRevisionProvider;
+    private File directory = new File("directory");
+    private CountDownLatch hungScmTool = new CountDownLatch(1);
+
+    @After
+    public void tearDown() throws Exception {
+        hungScmTool.countDown();
+    }
+
+    @Test
+    public void shouldProvideTheRevisionDeterminedInTheBackground() {
+        CodeRevision codeRevision = new CodeRevision("git", "revision");
+        when(codeRevisionProvider.determineRevisionOf(directory)).thenReturn(codeRevision);
+        BackgroundCodeRevisionResolver resolver = new BackgroundCodeRevisionResolver(codeRevisionProvider, 5000);
+
+        PendingCodeRevision pendingCodeRevision = resolver.resolve(directory);
+
+        assertSame(codeRevision, pendingCodeRevision.get());
+        assertEquals(0, resolver.getTimeouts());
+    }
+
+    @Test
+    public void shouldSettleOnAnUnknownRevisionWhenTheScmToolHangs() {
+        when(codeRevisionProvider.determineRevisionOf(directory)).thenAnswer(new Answer<CodeRevision>() {
+            public CodeRevision answer(InvocationOnMock invocation) throws Throwable {
+                hungScmTool.await();
+                return new CodeRevision("git", "revision");
+            }
+        });
+        BackgroundCodeRevisionResolver resolver = new BackgroundCodeRevisionResolver(codeRevisionProvider, 10);
+
+        PendingCodeRevision pendingCodeRevision = resolver.resolve(directory);
+
+        assertSame(PendingCodeRevision.UNKNOWN, pendingCodeRevision.get());
+        assertSame(PendingCodeRevision.UNKNOWN, pendingCodeRevision.get());
+        assertEquals(1, resolver.getTimeouts());
+    }
+
+    @Test
+    public void shouldSettleOnAnUnknownRevisionWhenTheScmToolFails() {
+        when(codeRevisionProvider.determineRevisionOf(directory)).thenThrow(new RuntimeException("hg is not installed"));
+        BackgroundCodeRevisionResolver resolver = new BackgroundCodeRevisionResolver(codeRevisionProvider, 5000);
+
+        assertSame(PendingCodeRevision.UNKNOWN, resolver.resolve(directory).get());
+        assertEquals(0, resolver.getTimeouts());
+    }
+}
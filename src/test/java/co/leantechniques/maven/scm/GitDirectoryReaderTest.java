@@ -0,0 +1,141 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class GitDirectoryReaderTest {
+    private static final String COMMIT = "0123456789abcdef0123456789abcdef01234567";
+    private static final String OTHER_COMMIT = "fedcba9876543210fedcba9876543210fedcba98";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private GitDirectoryReader reader = new GitDirectoryReader();
+    private File directory;
+    private File gitDir;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("project");
+        gitDir = new File(directory, ".git");
+    }
+
+    @Test
+    public void shouldResolveALooseBranchRef() throws Exception {
+        write(gitDir, "HEAD", "ref: refs/heads/master\n");
+        write(gitDir, "refs/heads/master", COMMIT + "\n");
+
+        assertEquals(COMMIT, reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldResolveAPackedBranchRef() throws Exception {
+        write(gitDir, "HEAD", "ref: refs/heads/master\n");
+        write(gitDir, "packed-refs", "# pack-refs with: peeled fully-peeled sorted \n"
+                + OTHER_COMMIT + " refs/heads/feature\n"
+                + COMMIT + " refs/heads/master\n"
+                + "^" + OTHER_COMMIT + "\n");
+
+        assertEquals(COMMIT, reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldPreferTheLooseRefOverThePackedRef() throws Exception {
+        write(gitDir, "HEAD", "ref: refs/heads/master\n");
+        write(gitDir, "refs/heads/master", COMMIT + "\n");
+        write(gitDir, "packed-refs", OTHER_COMMIT + " refs/heads/master\n");
+
+        assertEquals(COMMIT, reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldResolveADetachedHead() throws Exception {
+        write(gitDir, "HEAD", COMMIT + "\n");
+
+        assertEquals(COMMIT, reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldResolveTheHeadOfALinkedWorktree() throws Exception {
+        File mainGitDir = new File(temporaryFolder.newFolder("main"), ".git");
+        File worktreeGitDir = new File(mainGitDir, "worktrees/project");
+        write(mainGitDir, "refs/heads/master", OTHER_COMMIT + "\n");
+        write(mainGitDir, "packed-refs", COMMIT + " refs/heads/feature\n");
+        write(worktreeGitDir, "HEAD", "ref: refs/heads/feature\n");
+        write(worktreeGitDir, "commondir", "../..\n");
+        write(directory, ".git", "gitdir: " + worktreeGitDir.getAbsolutePath() + "\n");
+
+        assertEquals(COMMIT, reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldResolveARelativeGitDirLink() throws Exception {
+        File submoduleGitDir = new File(temporaryFolder.getRoot(), "modules/project");
+        write(submoduleGitDir, "HEAD", COMMIT + "\n");
+        write(directory, ".git", "gitdir: ../modules/project\n");
+
+        assertEquals(COMMIT, reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldConsiderTheBranchHeadPointsAtForTheLastModifiedTime() throws Exception {
+        write(gitDir, "HEAD", "ref: refs/heads/master\n");
+        write(gitDir, "refs/heads/master", COMMIT + "\n");
+        new File(gitDir, "HEAD").setLastModified(10000L);
+        new File(gitDir, "refs/heads/master").setLastModified(20000L);
+
+        assertEquals(20000L, reader.lastModifiedOf(directory));
+
+        write(gitDir, "refs/heads/master", OTHER_COMMIT + "\n");
+        new File(gitDir, "refs/heads/master").setLastModified(30000L);
+
+        assertEquals(30000L, reader.lastModifiedOf(directory));
+    }
+
+    @Test
+    public void shouldGiveUpOnABranchWithoutCommits() throws Exception {
+        write(gitDir, "HEAD", "ref: refs/heads/master\n");
+
+        assertNull(reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldGiveUpOnARefTableRepository() throws Exception {
+        write(gitDir, "HEAD", "ref: refs/heads/.invalid\n");
+        write(gitDir, "reftable/tables.list", "0x000000000001-0x000000000001-01234567.ref\n");
+
+        assertNull(reader.readHead(directory));
+    }
+
+    @Test
+    public void shouldGiveUpWhenThereIsNoGitDirectory() {
+        assertNull(reader.readHead(directory));
+    }
+
+    private void write(File parent, String path, String content) throws IOException {
+        File file = new File(parent, path);
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getAbsolutePath(), content);
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.scm;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Resolves the revision of a git checkout (<code>benchmark.git.directory</code>, by default the working directory)
+ * by reading the git directory and by forking <code>git log</code> the way {@link GitRevisionQuery} falls back to,
+ * and prints the milliseconds per lookup of both. Forking gets slower with the heap of the JVM, keep
+ * <code>benchmark.heap.mb</code> megabytes of it live with e.g.
+ * <code>mvn test -Pbenchmark -Dtest=GitRevisionQueryBenchmark -Dbenchmark.heap.mb=400 -DargLine=-Xmx1g</code>.
+ */
+public class GitRevisionQueryBenchmark {
+    private static final int WARM_UPS = 5;
+    private static final int RUNS = 50;
+
+    private final GitDirectoryReader reader = new GitDirectoryReader();
+
+    @Test
+    public void resolveTheRevision() {
+        File directory = new File(System.getProperty("benchmark.git.directory", ".")).getAbsoluteFile();
+        if (!new GitRevisionQuery().supports(directory)) {
+            System.out.println(directory + " is not a git checkout, set benchmark.git.directory");
+            return;
+        }
+        byte[][] liveHeap = new byte[Integer.getInteger("benchmark.heap.mb", 0)][];
+        for (int i = 0; i < liveHeap.length; i++) {
+            liveHeap[i] = new byte[1024 * 1024];
+        }
+
+        String read = null;
+        String forked = null;
+        long readNanos = 0;
+        long forkNanos = 0;
+        for (int run = 0; run < WARM_UPS + RUNS; run++) {
+            long start = System.nanoTime();
+            read = reader.readHead(directory);
+            long readDone = System.nanoTime();
+            forked = new Cmd("git").in(directory).arg("log").arg("-1").arg("--pretty=oneline").execute().split("\\s")[0];
+            long forkDone = System.nanoTime();
+            if (run >= WARM_UPS) {
+                readNanos += readDone - start;
+                forkNanos += forkDone - readDone;
+            }
+        }
+
+        assertEquals(forked, read);
+        System.out.println(String.format("%d MB live heap, reading the git directory: %.3f ms per lookup, forking git: %.3f ms per lookup",
+                liveHeap.length, readNanos / 1000000.0 / RUNS, forkNanos / 1000000.0 / RUNS));
+    }
+}
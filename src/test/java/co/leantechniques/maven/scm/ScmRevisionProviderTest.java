@@ -24,9 +24,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertSame;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ScmRevisionProviderTest {
@@ -36,6 +37,8 @@ public class ScmRevisionProviderTest {
     private ScmRevisionQuery query;
     @Mock
     private ScmRevisionQuery otherQuery;
+    @Mock
+    private StampedScmRevisionQuery stampedQuery;
     private ScmRevisionProvider revisionProvider;
     private File directory;
     private CodeRevision codeRevision;
@@ -64,6 +67,64 @@ public class ScmRevisionProviderTest {
         assertSame(codeRevision, revisionProvider.determineRevisionOf(directory));
     }
 
+    @Test
+    public void shouldStopAtTheFirstQueryThatSupportsTheDirectory() {
+        when(lookup.lookupAll(ScmRevisionQuery.class)).thenReturn(new ArrayList(Arrays.asList(query, otherQuery)));
+        when(query.supports(directory)).thenReturn(true);
+        when(otherQuery.supports(directory)).thenReturn(true);
+        when(query.queryRevision(directory)).thenReturn(codeRevision);
+
+        assertSame(codeRevision, revisionProvider.determineRevisionOf(directory));
+        verify(otherQuery, never()).queryRevision(directory);
+    }
+
+    @Test
+    public void shouldUseTheNearestParentDirectoryUnderScm() {
+        File root = new File("repository").getAbsoluteFile();
+        File module = new File(new File(root, "parent"), "module");
+        when(lookup.lookupAll(ScmRevisionQuery.class)).thenReturn(new ArrayList(Arrays.asList(query, otherQuery)));
+        when(otherQuery.supports(root)).thenReturn(true);
+        when(otherQuery.queryRevision(root)).thenReturn(codeRevision);
+
+        assertSame(codeRevision, revisionProvider.determineRevisionOf(module));
+    }
+
+    @Test
+    public void shouldOnlyLookupTheQueriesOnce() {
+        when(lookup.lookupAll(ScmRevisionQuery.class)).thenReturn(new ArrayList(Arrays.asList(query)));
+
+        revisionProvider.determineRevisionOf(directory);
+        revisionProvider.determineRevisionOf(directory);
+
+        verify(lookup, times(1)).lookupAll(ScmRevisionQuery.class);
+    }
+
+    @Test
+    public void shouldReuseTheRevisionOfARootUntilItsStampChanges() {
+        when(lookup.lookupAll(ScmRevisionQuery.class)).thenReturn(new ArrayList(Arrays.asList(stampedQuery)));
+        when(stampedQuery.supports(directory)).thenReturn(true);
+        when(stampedQuery.stampOf(directory)).thenReturn(1L, 1L, 2L);
+        when(stampedQuery.queryRevision(directory)).thenReturn(codeRevision, new CodeRevision("git", "other"));
+
+        assertSame(codeRevision, revisionProvider.determineRevisionOf(directory));
+        assertSame(codeRevision, revisionProvider.determineRevisionOf(directory));
+        assertEquals("other", revisionProvider.determineRevisionOf(directory).revision);
+        verify(stampedQuery, times(2)).queryRevision(directory);
+    }
+
+    @Test
+    public void shouldNotReuseTheRevisionWhenTheStampIsUnknown() {
+        when(lookup.lookupAll(ScmRevisionQuery.class)).thenReturn(new ArrayList(Arrays.asList(stampedQuery)));
+        when(stampedQuery.supports(directory)).thenReturn(true);
+        when(stampedQuery.stampOf(directory)).thenReturn(StampedScmRevisionQuery.UNKNOWN_STAMP);
+        when(stampedQuery.queryRevision(directory)).thenReturn(codeRevision);
+
+        revisionProvider.determineRevisionOf(directory);
+        revisionProvider.determineRevisionOf(directory);
+
+        verify(stampedQuery, times(2)).queryRevision(directory);
+    }
+
     @Test
     public void shouldAlwaysReturnACodeRevision() {
         when(lookup.lookupAll(ScmRevisionQuery.class)).thenReturn(new ArrayList());
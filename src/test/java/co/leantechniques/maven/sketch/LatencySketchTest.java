@@ -0,0 +1,88 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package co.leantechniques.maven.sketch;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class LatencySketchTest {
+    @Test
+    public void quantile_shouldBeWithinTheRelativeAccuracy() {
+        LatencySketch sketch = new LatencySketch();
+        for (long value = 1; value <= 10000; value++) {
+            sketch.add(value * 1000000L);
+        }
+
+        assertWithinAccuracy(5000000000L, sketch.quantile(0.5));
+        assertWithinAccuracy(9900000000L, sketch.quantile(0.99));
+        assertWithinAccuracy(1000000L, sketch.quantile(0));
+        assertWithinAccuracy(10000000000L, sketch.quantile(1));
+    }
+
+    @Test
+    public void merge_shouldAnswerLikeASketchOfAllTheValues() {
+        Random random = new Random(42);
+        LatencySketch all = new LatencySketch();
+        LatencySketch first = new LatencySketch();
+        LatencySketch second = new LatencySketch();
+        for (int i = 0; i < 1000; i++) {
+            long value = 1 + random.nextInt(1000000000);
+            all.add(value);
+            (i % 2 == 0 ? first : second).add(value);
+        }
+
+        first.merge(second);
+
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMin(), first.getMin());
+        assertEquals(all.getMax(), first.getMax());
+        assertEquals(all.quantile(0.9), first.quantile(0.9));
+    }
+
+    @Test
+    public void fromBytes_shouldRestoreTheSketch() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(0);
+        sketch.add(150L);
+        sketch.add(2000000L);
+        sketch.add(2000000L);
+
+        LatencySketch restored = LatencySketch.fromBytes(sketch.toBytes());
+
+        assertEquals(4, restored.getCount());
+        assertEquals(0, restored.getMin());
+        assertEquals(2000000L, restored.getMax());
+        assertEquals(sketch.quantile(0.5), restored.quantile(0.5));
+        assertEquals(0, restored.quantile(0.1));
+    }
+
+    @Test
+    public void toBytes_shouldStaySmall() {
+        LatencySketch sketch = new LatencySketch();
+        for (long value = 1; value <= 100000; value++) {
+            sketch.add(value * 1000L);
+        }
+
+        assertTrue(sketch.toBytes().length < 4096);
+    }
+
+    private void assertWithinAccuracy(long expected, long actual) {
+        assertTrue(actual + " is not within 1% of " + expected,
+                Math.abs(actual - expected) <= expected * LatencySketch.RELATIVE_ACCURACY);
+    }
+}
@@ -50,6 +50,16 @@ public class ExecutionEventBuilder {
         return this;
     }
 
+    public ExecutionEventBuilder withProjectSucceeded() {
+        expectEventType(ExecutionEvent.Type.ProjectSucceeded);
+        return this;
+    }
+
+    public ExecutionEventBuilder withProjectFailed() {
+        expectEventType(ExecutionEvent.Type.ProjectFailed);
+        return this;
+    }
+
     public ExecutionEventBuilder expectEventType(ExecutionEvent.Type expectedType) {
         this.type = expectedType;
         return this;
@@ -101,6 +111,11 @@ public class ExecutionEventBuilder {
             public void successful() {
                 expectEventType(ExecutionEvent.Type.MojoSucceeded);
             }
+
+            @Override
+            public void failed() {
+                expectEventType(ExecutionEvent.Type.MojoFailed);
+            }
         };
     }
 
@@ -112,6 +127,8 @@ public class ExecutionEventBuilder {
         void starting();
 
         void successful();
+
+        void failed();
     }
 
     private class MockMojoExecution extends MojoExecution {
@@ -20,10 +20,14 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class MavenSessionBuilder {
     private final MavenSession session;
     private ArrayList<MavenProject> projectsInBuild = new ArrayList<MavenProject>();
+    private Map<String, List<String>> upstreamArtifactIds = new HashMap<String, List<String>>();
 
     public MavenSessionBuilder() {
         this(new Date());
@@ -38,6 +42,9 @@ public class MavenSessionBuilder {
         if (projectsInBuild.size() > 0) {
             session.setProjects(projectsInBuild);
         }
+        if (upstreamArtifactIds.size() > 0) {
+            session.setProjectDependencyGraph(new StubProjectDependencyGraph());
+        }
         return session;
     }
 
@@ -101,6 +108,16 @@ public class MavenSessionBuilder {
         };
     }
 
+    public MavenSessionBuilder withUpstreamProject(String artifactId, String upstreamArtifactId) {
+        List<String> upstream = upstreamArtifactIds.get(artifactId);
+        if (upstream == null) {
+            upstream = new ArrayList<String>();
+            upstreamArtifactIds.put(artifactId, upstream);
+        }
+        upstream.add(upstreamArtifactId);
+        return this;
+    }
+
     private MavenProject mavenProject(String groupId, String artifactId, String version) {
         MavenProject project = new MavenProject();
         project.setGroupId(groupId);
@@ -109,6 +126,27 @@ public class MavenSessionBuilder {
         return project;
     }
 
+    private class StubProjectDependencyGraph implements ProjectDependencyGraph {
+        public List<MavenProject> getSortedProjects() {
+            return projectsInBuild;
+        }
+
+        public List<MavenProject> getDownstreamProjects(MavenProject project, boolean transitive) {
+            throw new UnsupportedOperationException();
+        }
+
+        public List<MavenProject> getUpstreamProjects(MavenProject project, boolean transitive) {
+            List<MavenProject> upstream = new ArrayList<MavenProject>();
+            List<String> artifactIds = upstreamArtifactIds.get(project.getArtifactId());
+            for (MavenProject candidate : projectsInBuild) {
+                if (artifactIds != null && artifactIds.contains(candidate.getArtifactId())) {
+                    upstream.add(candidate);
+                }
+            }
+            return upstream;
+        }
+    }
+
     public static interface MavenProjectBuildResult {
         public void withSuccess();
 
@@ -13,6 +13,7 @@
  */
 package org.apache.maven.eventspy;
 
+import co.leantechniques.maven.Outcome;
 import co.leantechniques.maven.h2.AbstractDatabaseTest;
 import co.leantechniques.maven.h2.H2DatabaseManager;
 import co.leantechniques.maven.h2.H2TestRepository;
@@ -50,6 +51,15 @@ public class PluginWatcherEventSpyIntegrationTest extends AbstractDatabaseTest {
         simulateSuccessfulBuild();
 
         assertBuildInfoStored();
+        testRepository.assertOutcome(sessionBuilder.toSession(), "2", Outcome.SUCCESS);
+    }
+
+    @Test
+    public void shouldSupportStoringFailedBuilds() throws Exception {
+        simulateBuild(false);
+
+        assertBuildInfoStored();
+        testRepository.assertOutcome(sessionBuilder.toSession(), "2", Outcome.FAILURE);
     }
 
     private void assertBuildInfoStored() {
@@ -68,14 +78,29 @@ public class PluginWatcherEventSpyIntegrationTest extends AbstractDatabaseTest {
         eventSpy.init(null);
         eventSpy.onEvent(buildStarting());
         eventSpy.onEvent(pluginStarted());
-        eventSpy.onEvent(pluginWasSuccessful());
+        eventSpy.onEvent(pluginFinished(projectPassed));
+        eventSpy.onEvent(projectFinished(projectPassed));
         eventSpy.onEvent(buildFinished(projectPassed));
         eventSpy.close();
     }
 
-    private ExecutionEvent pluginWasSuccessful() {
-        ExecutionEventBuilder eventBuilder = executionEvent(true);
-        eventBuilder.withPlugin("2", "2", "2", "2").successful();
+    private ExecutionEvent pluginFinished(boolean pluginPassed) {
+        ExecutionEventBuilder eventBuilder = executionEvent(pluginPassed);
+        if (pluginPassed) {
+            eventBuilder.withPlugin("2", "2", "2", "2").successful();
+        } else {
+            eventBuilder.withPlugin("2", "2", "2", "2").failed();
+        }
+        return eventBuilder.toEvent();
+    }
+
+    private ExecutionEvent projectFinished(boolean projectPassed) {
+        ExecutionEventBuilder eventBuilder = executionEvent(projectPassed);
+        if (projectPassed) {
+            eventBuilder.withProjectSucceeded();
+        } else {
+            eventBuilder.withProjectFailed();
+        }
         return eventBuilder.toEvent();
     }
 
@@ -17,20 +17,27 @@ package org.apache.maven.eventspy;
 import co.leantechniques.maven.BuildInformation;
 import co.leantechniques.maven.BuildInformationRepository;
 import co.leantechniques.maven.BuildInformationRepositoryProvider;
+import co.leantechniques.maven.Outcome;
+import co.leantechniques.maven.scm.BackgroundCodeRevisionResolver;
 import co.leantechniques.maven.scm.CodeRevision;
 import co.leantechniques.maven.scm.CodeRevisionProvider;
+import co.leantechniques.maven.scm.PendingCodeRevision;
 import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.openide.util.Lookup;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 
 import static junit.framework.Assert.*;
 import static org.mockito.Mockito.*;
@@ -62,6 +69,7 @@ public class PluginWatcherEventSpyTest {
         executionEventBuilder.withBaseDirectory(baseDirectory);
 
         when(buildInformationRepositoryProvider.provide()).thenReturn(statsRepository);
+        spy.setCodeRevisionProvider(codeRevisionProvider);
     }
 
     @Test
@@ -98,39 +106,98 @@ public class PluginWatcherEventSpyTest {
     }
 
     @Test
-    public void onEvent_shouldNotStoreTheBuildInformationWhenTheBuildFails() throws Exception {
-        executionEventBuilder = new ExecutionEventBuilder();
-        executionEventBuilder.withProject("1", "1", "1").withFailure();
-
+    public void onEvent_shouldStoreTheBuildInformationWhenTheBuildFails() throws Exception {
         executionEventBuilder.withBuildStarting();
         spy.onEvent(executionEventBuilder.toEvent());
+        BuildInformation buildInformation = spy.getCurrentBuildInformation();
+
+        executionEventBuilder.withProjectFailed();
+        spy.onEvent(executionEventBuilder.toEvent());
 
         executionEventBuilder.withBuildFinished();
         spy.onEvent(executionEventBuilder.toEvent());
 
-        verify(statsRepository, never()).save(spy.getCurrentBuildInformation());
+        verify(statsRepository).save(buildInformation);
+        assertEquals(Outcome.FAILURE, buildInformation.getOutcome());
+        assertEquals(Outcome.FAILURE, buildInformation.getProjects().get(0).getOutcome());
+    }
+
+    @Test
+    public void onEvent_shouldTrackWhenEachProjectStarts() throws Exception {
+        executionEventBuilder.withBuildStarting();
+        spy.onEvent(executionEventBuilder.toEvent());
+        BuildInformation buildInformation = spy.getCurrentBuildInformation();
+
+        executionEventBuilder.expectEventType(ExecutionEvent.Type.ProjectStarted);
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        assertNotNull(buildInformation.getProjects().get(0).getStartTime());
+    }
+
+    @Test
+    public void onEvent_shouldTrackTheOutcomeOfEachProjectAsItFinishes() throws Exception {
+        executionEventBuilder.withBuildStarting();
+        spy.onEvent(executionEventBuilder.toEvent());
+        BuildInformation buildInformation = spy.getCurrentBuildInformation();
+        assertNull(buildInformation.getProjects().get(0).getOutcome());
+
+        executionEventBuilder.withProjectSucceeded();
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        assertEquals(Outcome.SUCCESS, buildInformation.getProjects().get(0).getOutcome());
+        assertEquals(Outcome.SUCCESS, buildInformation.getOutcome());
     }
 
     @Test
     public void onEvent_shouldSetTheEndTimeForTheBuild() throws Exception {
         executionEventBuilder.withBuildStarting();
         spy.onEvent(executionEventBuilder.toEvent());
+        BuildInformation buildInformation = spy.getCurrentBuildInformation();
 
         executionEventBuilder.withBuildFinished();
         spy.onEvent(executionEventBuilder.toEvent());
 
-        assertNotNull(spy.getCurrentBuildInformation().getEndTime());
+        assertNotNull(buildInformation.getEndTime());
     }
 
     @Test
     public void onEvent_shouldStoreTheBuildInformationWhenTheSessionFinishes() throws Exception {
         executionEventBuilder.withBuildStarting();
         spy.onEvent(executionEventBuilder.toEvent());
+        BuildInformation buildInformation = spy.getCurrentBuildInformation();
+
+        executionEventBuilder.withBuildFinished();
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        verify(statsRepository).save(buildInformation);
+    }
+
+    @Test
+    public void onEvent_shouldLetGoOfTheBuildInformationWhenTheSessionFinishes() throws Exception {
+        executionEventBuilder.withBuildStarting();
+        spy.onEvent(executionEventBuilder.toEvent());
 
         executionEventBuilder.withBuildFinished();
         spy.onEvent(executionEventBuilder.toEvent());
 
-        verify(statsRepository).save(spy.getCurrentBuildInformation());
+        assertNull(spy.getCurrentBuildInformation());
+    }
+
+    @Test
+    public void onEvent_shouldIgnoreEventsOfASessionThatAlreadyEnded() throws Exception {
+        BackgroundCodeRevisionResolver codeRevisionResolver = mock(BackgroundCodeRevisionResolver.class);
+        when(codeRevisionResolver.resolve(baseDirectory)).thenReturn(PendingCodeRevision.of(PendingCodeRevision.UNKNOWN));
+        spy.setCodeRevisionResolver(codeRevisionResolver);
+        executionEventBuilder.withBuildStarting();
+        spy.onEvent(executionEventBuilder.toEvent());
+        executionEventBuilder.withBuildFinished();
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        executionEventBuilder.withProjectSucceeded();
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        assertNull(spy.getCurrentBuildInformation());
+        verify(codeRevisionResolver, times(1)).resolve(baseDirectory);
     }
 
     @Test
@@ -139,7 +206,7 @@ public class PluginWatcherEventSpyTest {
         spy.onEvent(executionEventBuilder.toEvent());
         BuildInformation info = spy.getCurrentBuildInformation();
 
-        executionEventBuilder.withBuildFinished();
+        executionEventBuilder.withProjectSucceeded();
         spy.onEvent(executionEventBuilder.toEvent());
         assertSame(info, spy.getCurrentBuildInformation());
     }
@@ -165,6 +232,101 @@ public class PluginWatcherEventSpyTest {
         assertSame(codeRevision, buildInformation.getCodeRevision());
     }
 
+    @Test
+    public void onEvent_shouldStartDeterminingTheScmVersionBeforeTheProjectsAreKnown() throws Exception {
+        executionEventBuilder = new ExecutionEventBuilder();
+        executionEventBuilder.withBaseDirectory(baseDirectory);
+        executionEventBuilder.expectEventType(ExecutionEvent.Type.ProjectDiscoveryStarted);
+
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        assertNull(spy.getCurrentBuildInformation());
+        verify(codeRevisionProvider, timeout(5000)).determineRevisionOf(baseDirectory);
+    }
+
+    @Test
+    public void onEvent_shouldRecordAnUnknownScmVersionWhenTheScmToolDoesNotAnswerInTime() throws Exception {
+        final CountDownLatch hungScmTool = new CountDownLatch(1);
+        when(codeRevisionProvider.determineRevisionOf(baseDirectory)).thenAnswer(new Answer<CodeRevision>() {
+            public CodeRevision answer(InvocationOnMock invocation) throws Throwable {
+                hungScmTool.await();
+                return new CodeRevision("git", "revision");
+            }
+        });
+        spy.setCodeRevisionResolver(new BackgroundCodeRevisionResolver(codeRevisionProvider, 10));
+        executionEventBuilder.withBuildStarting();
+        spy.onEvent(executionEventBuilder.toEvent());
+        BuildInformation buildInformation = spy.getCurrentBuildInformation();
+
+        executionEventBuilder.withBuildFinished();
+        spy.onEvent(executionEventBuilder.toEvent());
+
+        assertSame(PendingCodeRevision.UNKNOWN, buildInformation.getCodeRevision());
+        assertEquals(1, spy.getScmTimeouts());
+        hungScmTool.countDown();
+    }
+
+    @Test
+    public void onEvent_shouldTrackEachSessionOfADaemonAsItsOwnBuild() throws Exception {
+        ExecutionEventBuilder otherExecutionEventBuilder = new ExecutionEventBuilder();
+        otherExecutionEventBuilder.withProject("2", "2", "2");
+        otherExecutionEventBuilder.withBaseDirectory(baseDirectory);
+
+        executionEventBuilder.withBuildStarting();
+        spy.onEvent(executionEventBuilder.toEvent());
+        executionEventBuilder.withBuildFinished();
+        spy.onEvent(executionEventBuilder.toEvent());
+        otherExecutionEventBuilder.withBuildStarting();
+        spy.onEvent(otherExecutionEventBuilder.toEvent());
+        otherExecutionEventBuilder.withBuildFinished();
+        spy.onEvent(otherExecutionEventBuilder.toEvent());
+
+        ArgumentCaptor<BuildInformation> savedBuilds = ArgumentCaptor.forClass(BuildInformation.class);
+        verify(statsRepository, times(2)).save(savedBuilds.capture());
+        assertEquals("1", savedBuilds.getAllValues().get(0).getTopLevelProject().artifactId);
+        assertEquals("2", savedBuilds.getAllValues().get(1).getTopLevelProject().artifactId);
+    }
+
+    @Test
+    public void onEvent_shouldAttributeTheEventsOfAClonedSessionToTheSameBuild() throws Exception {
+        executionEventBuilder.withBuildStarting();
+        ExecutionEvent event = executionEventBuilder.toEvent();
+        spy.onEvent(event);
+        MavenSession clonedSession = event.getSession().clone();
+
+        spy.onEvent(new StubExecutionEvent(ExecutionEvent.Type.MojoStarted, clonedSession, clonedSession.getProjects().get(0),
+                StubExecutionEvent.mojoExecution("plugin", "plugin", "1", "goal", "id")));
+
+        assertEquals(1, spy.getCurrentBuildInformation().getMavenEvents().size());
+    }
+
+    @Test
+    public void init_shouldKeepTheRepositoryWarmBetweenTheBuildsOfADaemon() throws Exception {
+        System.setProperty(PluginWatcherEventSpy.DAEMON_KEY, "true");
+        try {
+            spy.init(context);
+            spy.close();
+            spy.init(context);
+            spy.close();
+        } finally {
+            System.clearProperty(PluginWatcherEventSpy.DAEMON_KEY);
+        }
+
+        verify(buildInformationRepositoryProvider, times(1)).provide();
+        verify(statsRepository, times(1)).initialize(context);
+        verify(statsRepository, never()).cleanUp();
+    }
+
+    @Test
+    public void init_shouldStartFreshAfterTheRepositoryWasCleanedUp() throws Exception {
+        spy.init(context);
+        spy.close();
+        spy.init(context);
+
+        verify(buildInformationRepositoryProvider, times(2)).provide();
+        verify(statsRepository, times(1)).cleanUp();
+    }
+
     @Test
     public void close_shouldNotifyTheRepositoryTheBuildIsComplete() throws Exception {
         spy.close();
@@ -214,7 +376,8 @@ public class PluginWatcherEventSpyTest {
         spy.onEvent(event);
 
         BuildInformation buildInformation = spy.getCurrentBuildInformation();
-        assertEquals(Arrays.asList(event), buildInformation.getMavenEvents());
+        assertEquals(1, buildInformation.getMavenEvents().size());
+        assertEquals(expectedType, buildInformation.getMavenEvents().get(0).getType());
     }
 
     private void expectPluginStatsToBeNotSaved(ExecutionEvent.Type expectedType) throws Exception {
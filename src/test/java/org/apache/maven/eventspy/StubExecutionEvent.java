@@ -0,0 +1,70 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.maven.eventspy;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Plain ExecutionEvent that, unlike a mock, can be shared between threads and garbage collected.
+ */
+public class StubExecutionEvent implements ExecutionEvent {
+    private final Type type;
+    private final MavenSession session;
+    private final MavenProject project;
+    private final MojoExecution mojoExecution;
+
+    public StubExecutionEvent(Type type, MavenSession session, MavenProject project, MojoExecution mojoExecution) {
+        this.type = type;
+        this.session = session;
+        this.project = project;
+        this.mojoExecution = mojoExecution;
+    }
+
+    public static MojoExecution mojoExecution(String groupId, String artifactId, String version, String goal, String executionId) {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId(groupId);
+        plugin.setArtifactId(artifactId);
+        plugin.setVersion(version);
+        return new MojoExecution(plugin, goal, executionId);
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public MavenSession getSession() {
+        return session;
+    }
+
+    @Override
+    public MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    public MojoExecution getMojoExecution() {
+        return mojoExecution;
+    }
+
+    @Override
+    public Exception getException() {
+        return null;
+    }
+}
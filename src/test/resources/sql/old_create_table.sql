@@ -66,3 +66,11 @@ alter table plugin_execution
 alter table plugin_execution
     add constraint fk_plugin_execution_to_plugin
         foreign key (plugin_id) references plugin(id);
+
+insert into project (id, group_id, artifact_id, version) values (1, 'g', 'project', '1');
+insert into project (id, group_id, artifact_id, version) values (2, 'g', 'project', '1');
+insert into plugin (id, group_id, artifact_id, version) values (1, 'g', 'plugin', '1');
+insert into plugin (id, group_id, artifact_id, version) values (2, 'g', 'plugin', '1');
+insert into build (id, top_level_project_id, start_time, end_time) values (1, 2, '2013-01-01 10:00:00', '2013-01-01 10:01:00');
+insert into plugin_execution (build_id, project_id, plugin_id, goal, start_time, end_time) values (1, 1, 1, 'goal', '2013-01-01 10:00:00', '2013-01-01 10:00:30');
+insert into plugin_execution (build_id, project_id, plugin_id, goal, start_time, end_time) values (1, 2, 2, 'goal', '2013-01-01 10:00:30', '2013-01-01 10:01:00');